@@ -0,0 +1,277 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RouteRepairReport;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers the routes handed out by calcDeliveryPath and repairs them when the airspace
+ * changes. Only legs that enter a newly added restricted area are touched: the flown part
+ * up to the last clear position is kept and just the remainder of that leg is re-planned.
+ * <p>
+ * Routes are kept per plan (the same drone can fly in several plans) and are immutable: a
+ * repair builds a new route and swaps it in, so readers never see a half-repaired one.
+ * Repairs run one at a time on their own thread, off the request that noticed the change.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActiveRouteRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveRouteRegistry.class);
+
+    private final PathPlanner pathPlanner;
+
+    // plans beyond this many are forgotten, oldest first
+    @Value("${ilp.routes.max-plans:256}")
+    private int maxPlans = 256;
+
+    // plan id -> route index in that plan -> route, in registration order of the plans; a drone
+    // based at two service points has a route from each in the same plan
+    private final LinkedHashMap<String, Map<Integer, ActiveRoute>> plans = new LinkedHashMap<>();
+    private final ExecutorService repairs = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("route-repair").daemon().factory());
+    private volatile CompletableFuture<RouteRepairReport> lastRepair = CompletableFuture.completedFuture(null);
+    // newest airspace an event announced; a queued repair towards an older one is skipped
+    private volatile AirspaceSnapshot latest;
+    private volatile RouteRepairReport lastReport;
+
+    /**
+     * Registers (or replaces) route {@code routeIndex} of plan {@code planId}, planned against
+     * {@code airspace}.
+     */
+    public void register(String planId, int routeIndex, CalcDeliveryResponse.DronePath dronePath, int maxMoves,
+                         AirspaceSnapshot airspace) {
+        List<Leg> legs = new ArrayList<>();
+        for (CalcDeliveryResponse.DeliveryPath delivery : dronePath.getDeliveries()) {
+            List<Position> flight = delivery.getFlightPath();
+            if (flight == null || flight.isEmpty()) continue;
+            // delivery legs end with a duplicated hover position, which is not part of the leg itself
+            boolean hover = delivery.getDeliveryId() != null && flight.size() > 1;
+            List<Position> path = hover ? flight.subList(0, flight.size() - 1) : flight;
+            // own copies, so nothing done to the response later reaches the registry
+            legs.add(new Leg(delivery.getDeliveryId(), path.stream().map(ActiveRouteRegistry::copyOf).toList(), hover));
+        }
+        ActiveRoute route = new ActiveRoute(dronePath.getDroneId(), maxMoves, legs, airspace);
+        synchronized (plans) {
+            plans.computeIfAbsent(planId, id -> new ConcurrentHashMap<>()).put(routeIndex, route);
+            while (plans.size() > maxPlans) plans.pollFirstEntry();
+        }
+    }
+
+    /**
+     * The (first) route of {@code droneId} in plan {@code planId}, as it is after any repairs.
+     */
+    public Optional<CalcDeliveryResponse.DronePath> getRoute(String planId, int droneId) {
+        Map<Integer, ActiveRoute> plan;
+        synchronized (plans) {
+            plan = plans.get(planId);
+        }
+        if (plan == null) return Optional.empty();
+        return new TreeMap<>(plan).values().stream()
+                .filter(route -> route.droneId == droneId)
+                .findFirst()
+                .map(ActiveRoute::toDronePath);
+    }
+
+    public void remove(String planId, int routeIndex) {
+        synchronized (plans) {
+            Map<Integer, ActiveRoute> plan = plans.get(planId);
+            if (plan != null) plan.remove(routeIndex);
+        }
+    }
+
+    public void clear(String planId) {
+        synchronized (plans) {
+            plans.remove(planId);
+        }
+    }
+
+    public RouteRepairReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Waits for the repairs already queued and returns the latest report (null if no
+     * airspace change was ever seen).
+     */
+    public RouteRepairReport awaitRepairs() {
+        lastRepair.join();
+        return lastReport;
+    }
+
+    @EventListener
+    public void onAirspaceChanged(AirspaceChangedEvent event) {
+        if (event.previous() == null) return; // nothing was planned before the first snapshot
+        // the publisher is planning a request; the repair does not have to hold it up
+        AirspaceSnapshot target = event.current();
+        latest = target;
+        lastRepair = CompletableFuture.supplyAsync(() -> target == latest ? repairAgainst(target) : lastReport, repairs)
+                .exceptionally(e -> {
+                    logger.warn("Route repair for airspace {} failed: {}", event.current().getVersion(), e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Brings every registered route up to {@code airspace}, re-planning only the legs that
+     * now cross a restricted area. Routes already at this version are left alone.
+     */
+    public synchronized RouteRepairReport repairAgainst(AirspaceSnapshot airspace) {
+        long started = System.nanoTime();
+        RouteRepairReport report = new RouteRepairReport();
+        report.setToVersion(airspace.getVersion());
+
+        List<Map<Integer, ActiveRoute>> current;
+        synchronized (plans) {
+            current = List.copyOf(plans.values());
+        }
+        for (Map<Integer, ActiveRoute> plan : current) {
+            for (Map.Entry<Integer, ActiveRoute> entry : List.copyOf(plan.entrySet())) {
+                int index = entry.getKey();
+                ActiveRoute route = entry.getValue();
+                if (route.airspace.getVersion().equals(airspace.getVersion())) continue;
+                report.setFromVersion(route.airspace.getVersion());
+
+                // anything that was clear before can only be blocked by an area that is new (or has moved)
+                Set<String> known = route.airspace.getRestrictedAreas().stream()
+                        .map(AirspaceService::contentKeyOf)
+                        .collect(Collectors.toSet());
+                boolean added = airspace.getRestrictedAreas().stream()
+                        .anyMatch(ra -> !known.contains(AirspaceService.contentKeyOf(ra)));
+
+                ActiveRoute repaired = added ? repair(route, airspace) : route.at(airspace, route.legs);
+                // a route registered again meanwhile was planned afresh and wins over this repair
+                if (repaired == null) {
+                    if (plan.remove(index, route)) report.getFailedDroneIds().add(route.droneId);
+                    continue;
+                }
+                if (!plan.replace(index, route, repaired)) continue;
+                int legsRepaired = repaired.legsChangedFrom(route);
+                if (legsRepaired > 0) {
+                    report.getChangedDroneIds().add(route.droneId);
+                    report.setLegsRepaired(report.getLegsRepaired() + legsRepaired);
+                } else {
+                    report.setUnchangedRoutes(report.getUnchangedRoutes() + 1);
+                }
+            }
+        }
+
+        report.setRepairMillis((System.nanoTime() - started) / 1_000_000);
+        if (!report.getChangedDroneIds().isEmpty() || !report.getFailedDroneIds().isEmpty()) {
+            logger.info("Airspace {} -> {}: repaired {} legs on drones {}, dropped drones {} ({} ms).",
+                    report.getFromVersion(), report.getToVersion(), report.getLegsRepaired(),
+                    report.getChangedDroneIds(), report.getFailedDroneIds(), report.getRepairMillis());
+        }
+        lastReport = report;
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        repairs.shutdownNow();
+    }
+
+    // The route moved to airspace with its blocked legs re-planned, or null when it cannot be
+    // kept within maxMoves. The original route is never modified.
+    private ActiveRoute repair(ActiveRoute route, AirspaceSnapshot airspace) {
+        List<Leg> newLegs = new ArrayList<>();
+        int totalMoves = route.totalMoves();
+
+        for (Leg leg : route.legs) {
+            int blockedAt = pathPlanner.firstBlocked(leg.path, airspace);
+            if (blockedAt < 0) {
+                newLegs.add(leg);
+                continue;
+            }
+            // the leg cannot be saved if it starts or has to end inside the new area
+            if (blockedAt == 0 || blockedAt == leg.path.size() - 1) return null;
+
+            // keep everything up to the last clear position and re-plan the rest of the leg
+            List<Position> prefix = leg.path.subList(0, blockedAt);
+            int budget = route.maxMoves - (totalMoves - leg.moves()) - (prefix.size() - 1) - (leg.hover ? 1 : 0);
+            List<Position> tail = pathPlanner.plan(prefix.getLast(), leg.path.getLast(), airspace, budget);
+            if (tail == null) return null;
+
+            List<Position> spliced = new ArrayList<>(prefix.subList(0, prefix.size() - 1));
+            spliced.addAll(tail);
+            totalMoves += (spliced.size() - leg.path.size());
+            newLegs.add(new Leg(leg.deliveryId, spliced, leg.hover));
+        }
+        return totalMoves > route.maxMoves ? null : route.at(airspace, newLegs);
+    }
+
+    private static Position copyOf(Position p) {
+        Position copy = new Position();
+        copy.setLng(p.getLng());
+        copy.setLat(p.getLat());
+        return copy;
+    }
+
+    private static final class ActiveRoute {
+        final int droneId;
+        final int maxMoves;
+        final List<Leg> legs;
+        final AirspaceSnapshot airspace;
+
+        ActiveRoute(int droneId, int maxMoves, List<Leg> legs, AirspaceSnapshot airspace) {
+            this.droneId = droneId;
+            this.maxMoves = maxMoves;
+            this.legs = List.copyOf(legs);
+            this.airspace = airspace;
+        }
+
+        ActiveRoute at(AirspaceSnapshot airspace, List<Leg> legs) {
+            return new ActiveRoute(droneId, maxMoves, legs, airspace);
+        }
+
+        int totalMoves() {
+            return legs.stream().mapToInt(Leg::moves).sum();
+        }
+
+        int legsChangedFrom(ActiveRoute before) {
+            int changed = 0;
+            for (int i = 0; i < legs.size(); i++) if (legs.get(i) != before.legs.get(i)) changed++;
+            return changed;
+        }
+
+        CalcDeliveryResponse.DronePath toDronePath() {
+            List<CalcDeliveryResponse.DeliveryPath> deliveries = new ArrayList<>();
+            for (Leg leg : legs) {
+                List<Position> flight = new ArrayList<>(leg.path.stream().map(ActiveRouteRegistry::copyOf).toList());
+                if (leg.hover) flight.add(flight.getLast());
+                deliveries.add(new CalcDeliveryResponse.DeliveryPath(leg.deliveryId, flight));
+            }
+            return new CalcDeliveryResponse.DronePath(droneId, deliveries);
+        }
+    }
+
+    private static final class Leg {
+        final Integer deliveryId;
+        final List<Position> path;
+        final boolean hover;
+
+        Leg(Integer deliveryId, List<Position> path, boolean hover) {
+            this.deliveryId = deliveryId;
+            this.path = List.copyOf(path);
+            this.hover = hover;
+        }
+
+        int moves() {
+            return path.size() - 1 + (hover ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Separate admission lanes for the planning, fleet-query and geometry endpoints, so a burst of
+ * heavy plans cannot hold up the cheap calls. Each lane lets a fixed number of requests run,
+ * queues a bounded number more for at most {@code max-wait}, and turns the rest away at once.
+ * Limits are read from {@code ilp.lanes.<lane>.*}; queue depth, running requests and
+ * rejections are published as {@code ilp.lane.*} meters tagged with the lane.
+ */
+@Component
+public class AdmissionLanes {
+
+    // paths relative to /api/v1; anything not listed runs outside the lanes
+    private static final List<LaneSpec> SPECS = List.of(
+            new LaneSpec("planning", 0, 32, Duration.ofSeconds(10), Duration.ofSeconds(5),
+                    List.of("/calcDeliveryPath", "/calcDeliveryPathAsGeoJson")),
+            new LaneSpec("fleet", 16, 64, Duration.ofSeconds(2), Duration.ofSeconds(1),
+                    List.of("/dronesWithCooling/*", "/droneDetails/*", "/queryAsPath/**", "/query",
+                            "/queryAvailableDrones", "/isInRestrictedArea", "/activeRoutes/**")),
+            new LaneSpec("geometry", 256, 1024, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                    List.of("/distanceTo", "/isCloseTo", "/nextPosition", "/isInRegion/**")));
+
+    private record LaneSpec(String name, int concurrency, int queue, Duration maxWait, Duration retryAfter,
+                            List<String> paths) {
+    }
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private final List<List<PathPattern>> patterns = new ArrayList<>();
+
+    public AdmissionLanes(Environment environment, MeterRegistry meterRegistry) {
+        PathPatternParser parser = new PathPatternParser();
+        for (LaneSpec spec : SPECS) {
+            String prefix = "ilp.lanes." + spec.name() + ".";
+            int concurrency = environment.getProperty(prefix + "concurrency", Integer.class, spec.concurrency());
+            // 0 = one per core, the same as the planner's CPU pool
+            if (concurrency <= 0) concurrency = Runtime.getRuntime().availableProcessors();
+            Lane lane = new Lane(spec.name(), concurrency,
+                    environment.getProperty(prefix + "queue-capacity", Integer.class, spec.queue()),
+                    environment.getProperty(prefix + "max-wait", Duration.class, spec.maxWait()),
+                    environment.getProperty(prefix + "retry-after", Duration.class, spec.retryAfter()),
+                    meterRegistry);
+            lanes.add(lane);
+            patterns.add(spec.paths().stream().map(p -> parser.parse("/api/v1" + p)).toList());
+        }
+    }
+
+    /**
+     * The lane serving the request path, or null when it is not admission controlled.
+     */
+    public Lane laneFor(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (int i = 0; i < lanes.size(); i++) {
+            for (PathPattern pattern : patterns.get(i)) {
+                if (pattern.matches(container)) return lanes.get(i);
+            }
+        }
+        return null;
+    }
+
+    public Lane lane(String name) {
+        return lanes.stream().filter(l -> l.name.equals(name)).findFirst().orElseThrow();
+    }
+
+    public static final class Lane {
+
+        private final String name;
+        private final int concurrency;
+        private final Semaphore permits;
+        private final int queueCapacity;
+        private final Duration maxWait;
+        private final Duration retryAfter;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Counter rejected;
+
+        private Lane(String name, int concurrency, int queueCapacity, Duration maxWait, Duration retryAfter,
+                     MeterRegistry meterRegistry) {
+            this.name = name;
+            this.concurrency = concurrency;
+            // fair, so queued requests are let in oldest first
+            this.permits = new Semaphore(concurrency, true);
+            this.queueCapacity = Math.max(0, queueCapacity);
+            this.maxWait = maxWait;
+            this.retryAfter = retryAfter;
+            Gauge.builder("ilp.lane.queued", queued, AtomicInteger::get)
+                    .description("Requests waiting for a slot in the lane")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("ilp.lane.active", this, Lane::getActive)
+                    .description("Requests running in the lane")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("ilp.lane.rejected")
+                    .description("Requests turned away with 429 because the lane's queue was full or the wait ran out")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Takes a slot, waiting in the queue if there is room in it; false when the request
+         * should be rejected. Every true must be paired with {@link #exit()}.
+         */
+        public boolean enter() throws InterruptedException {
+            // a zero timeout still honours fairness, unlike tryAcquire()
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) return true;
+            if (queued.incrementAndGet() > queueCapacity) {
+                queued.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) return true;
+                rejected.increment();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        public void exit() {
+            permits.release();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueued() {
+            return queued.get();
+        }
+
+        public int getActive() {
+            return concurrency - permits.availablePermits();
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package uk.ac.ed.acp.cw2.Service;
+
+/**
+ * Published by {@link AirspaceService} whenever a new snapshot becomes current;
+ * {@code previous} is null for the first one.
+ */
+public record AirspaceChangedEvent(AirspaceSnapshot previous, AirspaceSnapshot current) {
+}
@@ -0,0 +1,178 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Keeps the current {@link AirspaceSnapshot}. Snapshots are keyed by a hash of the
+ * restricted areas and service points, so the expensive precomputation (grid and
+ * landmark fields) only runs when the ILP data actually changes. Every new snapshot is
+ * published as an {@link AirspaceChangedEvent} so derived state can follow it.
+ */
+@Service
+public class AirspaceService implements ApplicationEventPublisherAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(AirspaceService.class);
+
+    private static final double STEP_SIZE = 0.00015;
+    // half a move per cell, so walls a little over one move thick still get fully-inside cells
+    private static final double GRID_CELL_SIZE = STEP_SIZE / 2;
+    private static final int GRID_MARGIN_CELLS = 80;
+    private static final int MAX_LANDMARKS = 12;
+    private static final int MAX_GRID_CELLS = 4_000_000;
+    // corridor corners sit about one move clear of the polygon
+    private static final double CORNER_CLEARANCE = STEP_SIZE;
+
+    private volatile AirspaceSnapshot current;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public AirspaceSnapshot snapshotOf(RestrictedArea[] areas, ServicePoint[] servicePoints) {
+        List<RestrictedArea> areaList = areas == null ? List.of() : List.of(areas);
+        List<ServicePoint> spList = servicePoints == null ? List.of() : List.of(servicePoints);
+
+        String version = versionOf(areaList, spList);
+        AirspaceSnapshot snapshot = current;
+        if (snapshot != null && snapshot.getVersion().equals(version)) return snapshot;
+
+        AirspaceSnapshot previous;
+        synchronized (this) {
+            previous = current;
+            if (previous != null && previous.getVersion().equals(version)) return previous;
+
+            long started = System.nanoTime();
+            snapshot = build(version, areaList, spList);
+            current = snapshot;
+            logger.info("Airspace snapshot {} built in {} ms ({} no-fly polygons, {} landmarks, {} corridor nodes).",
+                    version, (System.nanoTime() - started) / 1_000_000, snapshot.getNoFlyPolygons().size(),
+                    snapshot.getLandmarks().getLandmarks().size(), snapshot.getVisibilityGraph().getNodeCount());
+        }
+
+        // the bitmap is only a shortcut, so searches start on the exact test and switch once it is there
+        AirspaceSnapshot built = snapshot;
+        Thread.ofPlatform().name("occupancy-" + version).daemon().start(() -> {
+            long started = System.nanoTime();
+            if (built.rasterise()) {
+                logger.info("Occupancy bitmap for airspace {} ready in {} ms.", version, (System.nanoTime() - started) / 1_000_000);
+            }
+        });
+
+        // listeners run outside the lock so they are free to plan against the new snapshot;
+        // the very first snapshot is announced too (previous is null then)
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new AirspaceChangedEvent(previous, snapshot));
+        }
+        return snapshot;
+    }
+
+    public AirspaceSnapshot getCurrent() {
+        return current;
+    }
+
+    private AirspaceSnapshot build(String version, List<RestrictedArea> areas, List<ServicePoint> servicePoints) {
+        List<double[][]> polygons = new ArrayList<>();
+        List<Position> corners = new ArrayList<>();
+        for (RestrictedArea ra : areas) {
+            double[][] poly = toPolygon(ra.getVertices());
+            if (poly == null) continue;
+            polygons.add(poly);
+            corners.addAll(ra.getVertices().subList(0, ra.getVertices().size() - 1));
+        }
+
+        List<Position> spLocations = servicePoints.stream()
+                .map(ServicePoint::getLocation)
+                .filter(p -> p != null && p.getLng() != null && p.getLat() != null)
+                .toList();
+
+        LatticeGrid grid = LatticeGrid.covering(polygons, spLocations, GRID_CELL_SIZE, GRID_MARGIN_CELLS, STEP_SIZE);
+        LandmarkHeuristic landmarks;
+        if (grid == null || grid.getCellCount() > MAX_GRID_CELLS) {
+            logger.warn("Airspace too large for landmark grid; falling back to straight-line heuristic.");
+            grid = null;
+            landmarks = LandmarkHeuristic.euclideanOnly(STEP_SIZE);
+        } else {
+            landmarks = LandmarkHeuristic.build(grid, spLocations, corners, MAX_LANDMARKS, STEP_SIZE);
+        }
+
+        VisibilityGraph visibilityGraph = VisibilityGraph.build(polygons, CORNER_CLEARANCE);
+
+        return new AirspaceSnapshot(version, List.copyOf(areas), List.copyOf(polygons), spLocations, grid, landmarks,
+                visibilityGraph);
+    }
+
+    // Same acceptance rule as GeometricService.isInRegion: closed ring of at least 4 vertices
+    private double[][] toPolygon(List<Position> vertices) {
+        if (vertices == null || vertices.size() < 4) return null;
+        Position first = vertices.getFirst();
+        Position last = vertices.getLast();
+        if (!Objects.equals(first.getLat(), last.getLat()) || !Objects.equals(first.getLng(), last.getLng())) {
+            return null;
+        }
+
+        double[] xs = new double[vertices.size()];
+        double[] ys = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            Position v = vertices.get(i);
+            if (v.getLng() == null || v.getLat() == null) return null;
+            xs[i] = v.getLng();
+            ys[i] = v.getLat();
+        }
+        return new double[][]{xs, ys};
+    }
+
+    // What makes an area the same area in two snapshots: its id and every vertex. The DTOs have
+    // no value equality of their own, so areas are compared by this key.
+    static String contentKeyOf(RestrictedArea ra) {
+        StringBuilder key = new StringBuilder().append(ra.getId()).append(':').append(ra.getName());
+        if (ra.getVertices() != null) {
+            for (Position v : ra.getVertices()) key.append('|').append(v.getLng()).append(',').append(v.getLat());
+        }
+        return key.toString();
+    }
+
+    static String versionOf(List<RestrictedArea> areas, List<ServicePoint> servicePoints) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        for (RestrictedArea ra : areas) {
+            digest.update(("A" + ra.getId() + ":" + ra.getName()).getBytes(StandardCharsets.UTF_8));
+            if (ra.getVertices() == null) continue;
+            for (Position v : ra.getVertices()) {
+                buf.clear();
+                buf.putDouble(v.getLng() == null ? Double.NaN : v.getLng());
+                buf.putDouble(v.getLat() == null ? Double.NaN : v.getLat());
+                digest.update(buf.array());
+            }
+        }
+        for (ServicePoint sp : servicePoints) {
+            digest.update(("S" + sp.getId()).getBytes(StandardCharsets.UTF_8));
+            if (sp.getLocation() == null || sp.getLocation().getLng() == null || sp.getLocation().getLat() == null) continue;
+            buf.clear();
+            buf.putDouble(sp.getLocation().getLng());
+            buf.putDouble(sp.getLocation().getLat());
+            digest.update(buf.array());
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+
+import java.util.List;
+
+/**
+ * Immutable view of the restricted areas (and the service points used as landmarks)
+ * at one point in time, plus everything precomputed from them. Identified by a
+ * content hash so derived data can be reused until the airspace actually changes.
+ */
+public final class AirspaceSnapshot {
+
+    private final String version;
+    private final List<RestrictedArea> restrictedAreas;
+    private final List<double[][]> noFlyPolygons;
+    private final NoFlyIndex noFly;
+    private final LatticeGrid grid;
+    private final LandmarkHeuristic landmarks;
+    private final VisibilityGraph visibilityGraph;
+    private final List<Position> servicePointLocations;
+
+    AirspaceSnapshot(String version, List<RestrictedArea> restrictedAreas, List<double[][]> noFlyPolygons,
+                     List<Position> servicePointLocations, LatticeGrid grid, LandmarkHeuristic landmarks,
+                     VisibilityGraph visibilityGraph) {
+        this.version = version;
+        this.restrictedAreas = restrictedAreas;
+        this.noFlyPolygons = noFlyPolygons;
+        this.noFly = NoFlyIndex.of(noFlyPolygons);
+        this.servicePointLocations = servicePointLocations;
+        this.grid = grid;
+        this.landmarks = landmarks;
+        this.visibilityGraph = visibilityGraph;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public List<RestrictedArea> getRestrictedAreas() {
+        return restrictedAreas;
+    }
+
+    /** Closed no-fly polygons as {lng[], lat[]} arrays. */
+    public List<double[][]> getNoFlyPolygons() {
+        return noFlyPolygons;
+    }
+
+    /**
+     * Whether the point lies inside any no-fly polygon (same ray-cast as GeometricService.isInRegion).
+     */
+    public boolean isNoFly(double lng, double lat) {
+        return noFly.contains(lng, lat);
+    }
+
+    /**
+     * 16-bit mask of the compass moves from this point that would end in a no-fly polygon
+     * (bit d for d * 22.5 degrees); 0 in open sky.
+     */
+    public int blockedDirections(double lng, double lat) {
+        return noFly.blockedDirections(lng, lat);
+    }
+
+    /**
+     * Rasterises the no-fly polygons into an occupancy bitmap, after which blocked checks are
+     * bit probes (cells on an edge still use the exact test). Safe to call more than once;
+     * false when there is nothing to rasterise or the area is too large.
+     */
+    public boolean rasterise() {
+        return noFly.rasterise();
+    }
+
+    public List<Position> getServicePointLocations() {
+        return servicePointLocations;
+    }
+
+    public LatticeGrid getGrid() {
+        return grid;
+    }
+
+    public LandmarkHeuristic getLandmarks() {
+        return landmarks;
+    }
+
+    public VisibilityGraph getVisibilityGraph() {
+        return visibilityGraph;
+    }
+
+    /**
+     * A* heuristic for a search from {@code from} towards {@code goal}, in moves.
+     */
+    public LandmarkHeuristic.Bound heuristicToward(Position from, Position goal) {
+        return landmarks.toward(from, goal);
+    }
+}
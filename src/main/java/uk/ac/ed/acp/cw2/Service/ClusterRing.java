@@ -0,0 +1,46 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Consistent-hash ring over the nodes of a cluster. Every node sits at {@code virtualNodes}
+ * points on the ring and a key belongs to the first point at or after its own hash, so
+ * adding or removing a node only moves the keys that node owns (or takes over).
+ */
+public final class ClusterRing {
+
+    private final List<String> nodes;
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    public ClusterRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        if (this.nodes.isEmpty()) throw new IllegalArgumentException("A cluster ring needs at least one node");
+        for (String node : this.nodes) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) points.put(hash(node + "#" + i), node);
+        }
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        // past the last point the ring wraps round to the first
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    // first 8 bytes of SHA-256: the same on every node and JVM, unlike String.hashCode spreads
+    static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.ClusterPath;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Optional cluster mode: instances listed in {@code ilp.cluster.peers} share one
+ * consistent-hash ring, and every plan (by its plan cache key) and every leg path (by its
+ * airspace version and endpoints) has one owning node. Plans are fetched from their owner
+ * and leg paths looked up and stored there, so each result is cached once in the cluster
+ * instead of once per instance. A peer that fails or times out is simply not used: the
+ * caller computes locally.
+ * <p>
+ * Calls between nodes carry the shared {@code ilp.cluster.secret}; a node only serves its
+ * internal endpoints, or plans a forwarded batch as owner, for callers presenting it.
+ * <p>
+ * Calls between nodes are counted as {@code ilp.cluster.remote}, tagged by kind (plan or
+ * path) and outcome (hit, miss or error).
+ */
+@Service
+public class ClusterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterService.class);
+
+    /** Set on a request one node passes to another, so the owner plans it itself. */
+    public static final String FORWARDED_HEADER = "ILP-Cluster-Forwarded";
+    /** The shared cluster secret, on every call one node makes to another. */
+    public static final String SECRET_HEADER = "ILP-Cluster-Secret";
+
+    private final boolean enabled;
+    private final String self;
+    private final byte[] secret;
+    private final ClusterRing ring;
+    private final RestTemplate plans;
+    private final RestTemplate paths;
+    private final MeterRegistry meterRegistry;
+
+    public ClusterService(@Value("${ilp.cluster.enabled:false}") boolean enabled,
+                          @Value("${ilp.cluster.self:}") String self,
+                          @Value("${ilp.cluster.peers:}") String peers,
+                          @Value("${ilp.cluster.secret:}") String secret,
+                          @Value("${ilp.cluster.virtual-nodes:128}") int virtualNodes,
+                          @Value("${ilp.cluster.connect-timeout:500ms}") Duration connectTimeout,
+                          @Value("${ilp.cluster.plan-timeout:60s}") Duration planTimeout,
+                          @Value("${ilp.cluster.path-timeout:200ms}") Duration pathTimeout,
+                          MeterRegistry meterRegistry) {
+        this.self = normalise(self);
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        if (enabled && this.self.isEmpty()) {
+            throw new IllegalStateException("ilp.cluster.self must be this instance's base URL when the cluster is enabled");
+        }
+        if (enabled && (secret == null || secret.isBlank())) {
+            throw new IllegalStateException("ilp.cluster.secret must be set when the cluster is enabled");
+        }
+        this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        List<String> nodes = Stream.concat(Stream.of(this.self), Arrays.stream(peers.split(",")))
+                .map(ClusterService::normalise)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .toList();
+        this.ring = enabled ? new ClusterRing(nodes, virtualNodes) : null;
+        if (enabled) logger.info("Cluster mode on: {} owns its share of {}", this.self, nodes);
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(connectTimeout)
+                .build();
+        this.plans = restTemplate(httpClient, planTimeout);
+        this.paths = restTemplate(httpClient, pathTimeout);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<String> getNodes() {
+        return ring == null ? List.of(self) : ring.getNodes();
+    }
+
+    /**
+     * True when the cluster is on and {@code presented} is its secret; compared in constant
+     * time so the secret cannot be guessed byte by byte.
+     */
+    public boolean isTrusted(String presented) {
+        if (!enabled || presented == null) return false;
+        return MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The peer owning {@code key}, or null when this instance owns it (always, with the
+     * cluster off).
+     */
+    public String ownerOf(String key) {
+        if (ring == null) return null;
+        String owner = ring.ownerOf(key);
+        return owner.equals(self) ? null : owner;
+    }
+
+    public static String pathKey(String version, Position from, Position to) {
+        return version + "|" + from.getLng() + "," + from.getLat() + "|" + to.getLng() + "," + to.getLat();
+    }
+
+    /**
+     * The plan for {@code dispatches} from its owner, which plans it (or answers from its
+     * cache) as an ordinary calcDeliveryPath call; null when the owner could not be used.
+     */
+    public CalcDeliveryResponse fetchPlan(String owner, List<MedDispatchRec> dispatches) {
+        HttpHeaders headers = peerHeaders();
+        headers.set(FORWARDED_HEADER, self);
+        try {
+            CalcDeliveryResponse response = plans.postForObject(owner + "/api/v1/calcDeliveryPath",
+                    new HttpEntity<>(dispatches, headers), CalcDeliveryResponse.class);
+            count("plan", response == null ? "error" : "hit");
+            return response;
+        } catch (RestClientException e) {
+            count("plan", "error");
+            logger.warn("Cluster peer {} could not plan {} dispatches ({}), planning locally", owner, dispatches.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The leg path cached by its owner, or null when the owner has none or could not be
+     * asked within the path timeout.
+     */
+    public List<Position> findPath(String owner, String version, Position from, Position to) {
+        try {
+            ResponseEntity<Position[]> response = paths.postForEntity(owner + "/internal/v1/cluster/paths/lookup",
+                    new HttpEntity<>(clusterPath(version, from, to, null), peerHeaders()), Position[].class);
+            boolean hit = response.getStatusCode() == HttpStatus.OK && response.getBody() != null;
+            count("path", hit ? "hit" : "miss");
+            return hit ? List.of(response.getBody()) : null;
+        } catch (RestClientException e) {
+            count("path", "error");
+            logger.debug("Path lookup on cluster peer {} failed: {}", owner, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hands a locally planned leg to its owner to keep, without waiting for it.
+     */
+    public void savePath(String owner, String version, Position from, Position to, List<Position> path) {
+        ClusterPath body = clusterPath(version, from, to, path);
+        Thread.ofVirtual().name("cluster-save-path").start(() -> {
+            try {
+                paths.exchange(owner + "/internal/v1/cluster/paths", HttpMethod.PUT, new HttpEntity<>(body, peerHeaders()), Void.class);
+            } catch (RestClientException e) {
+                logger.debug("Could not store path on cluster peer {}: {}", owner, e.getMessage());
+            }
+        });
+    }
+
+    private HttpHeaders peerHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SECRET_HEADER, new String(secret, StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    private void count(String kind, String outcome) {
+        meterRegistry.counter("ilp.cluster.remote", "kind", kind, "outcome", outcome).increment();
+    }
+
+    private static ClusterPath clusterPath(String version, Position from, Position to, List<Position> path) {
+        ClusterPath body = new ClusterPath();
+        body.setVersion(version);
+        body.setFrom(from);
+        body.setTo(to);
+        body.setPath(path);
+        return body;
+    }
+
+    private static RestTemplate restTemplate(HttpClient httpClient, Duration readTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    private static String normalise(String url) {
+        String trimmed = url == null ? "" : url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
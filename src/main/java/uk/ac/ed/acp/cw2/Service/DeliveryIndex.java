@@ -0,0 +1,197 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Delivery points bucketed in a uniform grid, so the greedy router can walk them nearest
+ * first from wherever the drone is instead of scanning the whole batch every step. Points
+ * are addressed by their index in the list given to {@link #of}; removed points are skipped
+ * from then on.
+ */
+public final class DeliveryIndex {
+
+    private static final double STEP_SIZE = 0.00015;
+    // aim for a couple of points per cell; a cell is never smaller than one move
+    private static final double POINTS_PER_CELL = 2;
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final double[] lngs;
+    private final double[] lats;
+    private final boolean[] removed;
+    private final double originLng;
+    private final double originLat;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[][] cells;
+    // points not yet removed, per cell, so emptied cells cost nothing to walk past
+    private final int[] live;
+    private int size;
+
+    private DeliveryIndex(List<Position> points) {
+        int n = points.size();
+        lngs = new double[n];
+        lats = new double[n];
+        removed = new boolean[n];
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            lngs[i] = points.get(i).getLng();
+            lats[i] = points.get(i).getLat();
+            minLng = Math.min(minLng, lngs[i]);
+            minLat = Math.min(minLat, lats[i]);
+            maxLng = Math.max(maxLng, lngs[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+        }
+        size = n;
+
+        if (n == 0) {
+            originLng = originLat = 0;
+            cellSize = STEP_SIZE;
+            cols = rows = 0;
+            cells = new int[0][];
+            live = new int[0];
+            return;
+        }
+
+        double area = Math.max(maxLng - minLng, STEP_SIZE) * Math.max(maxLat - minLat, STEP_SIZE);
+        double cell = Math.max(STEP_SIZE, Math.sqrt(area * POINTS_PER_CELL / n));
+        while (((maxLng - minLng) / cell + 1) * ((maxLat - minLat) / cell + 1) > MAX_CELLS) cell *= 2;
+        originLng = minLng;
+        originLat = minLat;
+        cellSize = cell;
+        cols = (int) ((maxLng - minLng) / cell) + 1;
+        rows = (int) ((maxLat - minLat) / cell) + 1;
+
+        List<List<Integer>> lists = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) lists.add(null);
+        for (int i = 0; i < n; i++) {
+            int k = cellOf(lngs[i], lats[i]);
+            if (lists.get(k) == null) lists.set(k, new ArrayList<>(2));
+            lists.get(k).add(i);
+        }
+        cells = new int[cols * rows][];
+        live = new int[cols * rows];
+        for (int k = 0; k < cells.length; k++) {
+            List<Integer> ids = lists.get(k);
+            if (ids == null) continue;
+            cells[k] = ids.stream().mapToInt(Integer::intValue).toArray();
+            live[k] = cells[k].length;
+        }
+    }
+
+    public static DeliveryIndex of(List<Position> points) {
+        return new DeliveryIndex(points);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void remove(int point) {
+        if (removed[point]) return;
+        removed[point] = true;
+        live[cellOf(lngs[point], lats[point])]--;
+        size--;
+    }
+
+    /**
+     * The remaining points in order of increasing distance (in degrees) from the given position.
+     * Only the cells needed to prove the next point is the nearest are ever looked at.
+     */
+    public Cursor nearest(double lng, double lat) {
+        return new Cursor(lng, lat);
+    }
+
+    public final class Cursor {
+
+        private final double lng;
+        private final double lat;
+        private final long qc;
+        private final long qr;
+        // {distance, point}, nearest first; ties keep the list order
+        private final PriorityQueue<double[]> found = new PriorityQueue<>((a, b) ->
+                a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        private long ring;
+        private final long lastRing;
+
+        private Cursor(double lng, double lat) {
+            this.lng = lng;
+            this.lat = lat;
+            qc = (long) Math.floor((lng - originLng) / cellSize);
+            qr = (long) Math.floor((lat - originLat) / cellSize);
+            // rings that miss the grid entirely hold nothing, so start at the first one that does not
+            long dc = Math.max(0, Math.max(-qc, qc - (cols - 1)));
+            long dr = Math.max(0, Math.max(-qr, qr - (rows - 1)));
+            ring = Math.max(dc, dr);
+            lastRing = Math.max(Math.max(Math.abs(qc), Math.abs(qc - (cols - 1))),
+                    Math.max(Math.abs(qr), Math.abs(qr - (rows - 1))));
+        }
+
+        public boolean hasNext() {
+            return settle() != null;
+        }
+
+        /**
+         * Distance to the next point, a lower bound for every point still to come;
+         * infinite when there are none left.
+         */
+        public double peekDistance() {
+            double[] head = settle();
+            return head == null ? Double.POSITIVE_INFINITY : head[0];
+        }
+
+        public int peek() {
+            return (int) settle()[1];
+        }
+
+        public int next() {
+            double[] head = settle();
+            found.poll();
+            return (int) head[1];
+        }
+
+        // grows the searched rings until the nearest found point is provably the nearest left
+        private double[] settle() {
+            while (true) {
+                while (!found.isEmpty() && removed[(int) found.peek()[1]]) found.poll();
+                double[] head = found.peek();
+                // everything in ring r is at least r - 1 whole cells away
+                if (head != null && (ring > lastRing || head[0] <= (ring - 1) * cellSize)) return head;
+                if (ring > lastRing) return null;
+                scanRing(ring++);
+            }
+        }
+
+        private void scanRing(long r) {
+            long r0 = Math.max(0, qr - r), r1 = Math.min(rows - 1, qr + r);
+            long c0 = Math.max(0, qc - r), c1 = Math.min(cols - 1, qc + r);
+            for (long row = r0; row <= r1; row++) {
+                boolean edgeRow = row == qr - r || row == qr + r;
+                if (edgeRow) {
+                    for (long col = c0; col <= c1; col++) scanCell((int) (row * cols + col));
+                } else {
+                    if (qc - r >= 0 && qc - r < cols) scanCell((int) (row * cols + qc - r));
+                    if (r > 0 && qc + r >= 0 && qc + r < cols) scanCell((int) (row * cols + qc + r));
+                }
+            }
+        }
+
+        private void scanCell(int k) {
+            if (live[k] == 0) return;
+            for (int point : cells[k]) {
+                if (!removed[point]) found.add(new double[]{Math.hypot(lngs[point] - lng, lats[point] - lat), point});
+            }
+        }
+    }
+
+    private int cellOf(double lng, double lat) {
+        int c = Math.clamp((long) ((lng - originLng) / cellSize), 0, cols - 1);
+        int r = Math.clamp((long) ((lat - originLat) / cellSize), 0, rows - 1);
+        return r * cols + c;
+    }
+}
@@ -0,0 +1,123 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+/**
+ * Global dispatch-to-drone assignment for large batches. Each drone slot (a drone at one
+ * service point) is copied once per delivery it may take, and the Hungarian method picks
+ * the cheapest overall matching of dispatches to those copies. Small batches keep using
+ * the greedy planner, which already does well there.
+ */
+@Service
+public class DispatchAssigner {
+
+    // solver costs must stay finite; leaving a dispatch out is cheaper than an infeasible pair
+    private static final double INFEASIBLE = 1e12;
+    private static final double UNASSIGNED = 1e9;
+
+    private final int minBatch;
+    private final int maxPerDrone;
+
+    public DispatchAssigner(@Value("${ilp.assignment.min-batch:24}") int minBatch,
+                            @Value("${ilp.assignment.max-per-drone:8}") int maxPerDrone) {
+        this.minBatch = minBatch;
+        this.maxPerDrone = Math.max(1, maxPerDrone);
+    }
+
+    public boolean appliesTo(int batchSize) {
+        return minBatch > 0 && batchSize >= minBatch;
+    }
+
+    /**
+     * Matches dispatches (rows) to drone slots (columns) at minimum total cost.
+     * {@code cost[d][s]} is infinite when slot {@code s} cannot serve dispatch {@code d}.
+     * Returns the slot per dispatch, or -1 when the dispatch is left for the fallback pass.
+     */
+    public int[] assign(double[][] cost, int slotCount) {
+        int n = cost.length;
+        int[] result = new int[n];
+        Arrays.fill(result, -1);
+        if (n == 0 || slotCount == 0) return result;
+
+        // columns: maxPerDrone copies of every slot, then one "unassigned" column per dispatch
+        int copies = Math.min(maxPerDrone, n);
+        int slotColumns = slotCount * copies;
+        int m = slotColumns + n;
+
+        double[][] a = new double[n][m];
+        for (int d = 0; d < n; d++) {
+            for (int s = 0; s < slotCount; s++) {
+                double c = cost[d][s];
+                for (int k = 0; k < copies; k++) {
+                    // later copies cost a hair more, so equal-cost work spreads over the drones
+                    a[d][s * copies + k] = Double.isFinite(c) ? c + k * 1e-6 : INFEASIBLE;
+                }
+            }
+            for (int u = 0; u < n; u++) a[d][slotColumns + u] = UNASSIGNED;
+        }
+
+        int[] columnOf = hungarian(a, n, m);
+        for (int d = 0; d < n; d++) {
+            int col = columnOf[d];
+            if (col < slotColumns && Double.isFinite(cost[d][col / copies])) result[d] = col / copies;
+        }
+        return result;
+    }
+
+    // Shortest augmenting path Hungarian method for n rows <= m columns, O(n^2 m).
+    // Returns the column matched to every row.
+    static int[] hungarian(double[][] a, int n, int m) {
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];   // row matched to column j (1-based, 0 = free)
+        int[] way = new int[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            double[] minv = new double[m + 1];
+            boolean[] used = new boolean[m + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            do {
+                used[j0] = true;
+                int i0 = p[j0], j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    double cur = a[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] columnOf = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) columnOf[p[j] - 1] = j - 1;
+        }
+        return columnOf;
+    }
+}
@@ -0,0 +1,122 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Splits very large dispatch batches into sub-problems: one per service point region (every
+ * delivery goes to its nearest hub) and time slot. Regions own the drones based at their
+ * hub, so different regions never compete for a drone and are planned side by side on a
+ * work-stealing pool; the time slots of one region share its drones and run in turn.
+ */
+@Component
+public class DispatchPartitioner {
+
+    /**
+     * Dispatches of one sub-problem; {@code hub} indexes the hub list given to
+     * {@link #partition}, {@code slot} is "date/slot number" ("any" when undated).
+     */
+    public record Partition(int hub, String slot, List<MedDispatchRec> dispatches) {
+    }
+
+    private final int minBatch;
+    private final long slotMinutes;
+    private final ForkJoinPool pool;
+
+    public DispatchPartitioner(@Value("${ilp.partition.min-batch:400}") int minBatch,
+                               @Value("${ilp.partition.time-slot:6h}") Duration timeSlot,
+                               @Value("${ilp.partition.parallelism:0}") int parallelism) {
+        this.minBatch = minBatch;
+        this.slotMinutes = Math.max(1, timeSlot.toMinutes());
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public boolean appliesTo(int batchSize) {
+        return minBatch > 0 && batchSize >= minBatch;
+    }
+
+    /**
+     * Groups dispatches by time slot and nearest hub, keeping the request order inside each
+     * group. Dispatches without a delivery location are not placed anywhere.
+     */
+    public List<Partition> partition(List<MedDispatchRec> dispatches, List<Position> hubs) {
+        Map<String, Partition> groups = new TreeMap<>();
+        if (hubs.isEmpty()) return List.of();
+
+        for (MedDispatchRec dispatch : dispatches) {
+            Position delivery = dispatch.getDelivery();
+            if (delivery == null) continue;
+            int hub = nearestHub(hubs, delivery);
+            String slot = slotOf(dispatch);
+            // zero-padded hub index so the TreeMap orders regions numerically within a slot
+            String key = slot + "#" + String.format("%06d", hub);
+            groups.computeIfAbsent(key, k -> new Partition(hub, slot, new ArrayList<>())).dispatches().add(dispatch);
+        }
+        return List.copyOf(groups.values());
+    }
+
+    /**
+     * Plans every partition on the work-stealing pool; results come back in partition order.
+     * Regions run in parallel, but the partitions of one region are handed to {@code planner}
+     * one at a time and in partition order. Parallel streams started inside {@code planner}
+     * run on the same pool.
+     */
+    public <T> List<T> planAll(List<Partition> partitions, Function<Partition, T> planner) {
+        Map<Integer, List<Integer>> byHub = new TreeMap<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            byHub.computeIfAbsent(partitions.get(i).hub(), hub -> new ArrayList<>()).add(i);
+        }
+        List<T> results = new ArrayList<>(Collections.nCopies(partitions.size(), null));
+        pool.submit(() -> byHub.values().parallelStream().forEach(region -> {
+            for (int i : region) results.set(i, planner.apply(partitions.get(i)));
+        })).join();
+        return results;
+    }
+
+    /**
+     * {@code fn} applied to every item on the same pool, results in item order. For other
+     * parallel planning work (e.g. routing each drone's share of an assignment), so it stays
+     * within this pool's bound instead of spilling onto the common pool.
+     */
+    public <T, R> List<R> mapAll(List<T> items, Function<T, R> fn) {
+        return pool.submit(() -> items.parallelStream().map(fn).toList()).join();
+    }
+
+    private String slotOf(MedDispatchRec dispatch) {
+        if (dispatch.getDate() == null || dispatch.getTime() == null) return "any";
+        try {
+            long minute = LocalTime.parse(dispatch.getTime()).toSecondOfDay() / 60;
+            return dispatch.getDate() + "/" + (minute / slotMinutes);
+        } catch (DateTimeParseException e) {
+            return "any";
+        }
+    }
+
+    private static int nearestHub(List<Position> hubs, Position p) {
+        int best = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < hubs.size(); i++) {
+            double d = Math.hypot(hubs.get(i).getLng() - p.getLng(), hubs.get(i).getLat() - p.getLat());
+            if (d < bestDist) {
+                bestDist = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -11,12 +11,10 @@ import uk.ac.ed.acp.cw2.dto.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -24,9 +22,33 @@ public class DroneService {
 
     // Create a logger instance for this class
     private static final Logger logger = LoggerFactory.getLogger(DroneService.class);
+    private static final double STEP_SIZE = 0.00015;
+    // legs the live plan remembers before it starts over
+    private static final int LIVE_LEG_ENTRIES = 50_000;
+    // the live plan's tours among the active routes
+    private static final String LIVE_PLAN_ID = "live";
 
     private final IlpClient ilpClient;
     private final GeometricService geometricService;
+    private final AirspaceService airspaceService;
+    private final PathPlanner pathPlanner;
+    private final ActiveRouteRegistry activeRoutes;
+    private final PlanningCpuPool planningCpuPool;
+    private final PlanCache planCache;
+    private final ReturnFieldService returnFields;
+    private final DispatchAssigner dispatchAssigner;
+    private final DispatchPartitioner dispatchPartitioner;
+    private final WarmStartStore warmStart;
+    private final ClusterService cluster;
+
+    // the plan kept up to date by ingestDispatch, guarded by liveLock
+    private final ReentrantLock liveLock = new ReentrantLock();
+    private LivePlan live;
+
+    // ILP reference data needed for one planning run
+    private record ReferenceData(Drone[] drones, DroneForServicePoint[] dronesForServicePoints,
+                                 ServicePoint[] servicePoints, RestrictedArea[] restrictedAreas) {
+    }
 
     public List<Integer> getDronesWithCooling(boolean state) {
         return Arrays.stream(ilpClient.getAllDrones())
@@ -231,8 +253,16 @@ public class DroneService {
     }
 
     public List<Integer> queryAvailableDrones(List<MedDispatchRec> dispatchRequests) {
-        List<Drone> drones = Arrays.asList(ilpClient.getAllDrones());
-        List<DroneForServicePoint> dronesForServicePoints = Arrays.asList(ilpClient.getAllDronesForServicePoints());
+        List<Drone> drones;
+        List<DroneForServicePoint> dronesForServicePoints;
+        // both lists are independent ILP calls, fetch them side by side
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            // the calls note stale ILP data on the request, so they carry its binding along
+            Future<Drone[]> dronesCall = scope.submit(RequestTimings.propagate(ilpClient::getAllDrones));
+            Future<DroneForServicePoint[]> dfspCall = scope.submit(RequestTimings.propagate(ilpClient::getAllDronesForServicePoints));
+            drones = Arrays.asList(join(dronesCall, scope));
+            dronesForServicePoints = Arrays.asList(join(dfspCall, scope));
+        }
 
         return drones.stream()
                 .filter(drone -> canServeAllDispatches(drone, dispatchRequests, dronesForServicePoints))
@@ -254,9 +284,7 @@ public class DroneService {
             MedDispatchRequirements requirements = request.getRequirements();
 
             // Capability checks
-            if (drone.getCapability().getCapacity() < requirements.getCapacity()) return false;
-            if (Boolean.TRUE.equals(requirements.getCooling()) && !drone.getCapability().isCooling()) return false;
-            if (Boolean.TRUE.equals(requirements.getHeating()) && !drone.getCapability().isHeating()) return false;
+            if (!meetsRequirements(drone, requirements)) return false;
 
             // Availability and cost checks
             if (!isDroneAvailableForDispatch(drone, request, droneServicePoints)) return false;
@@ -307,311 +335,983 @@ public class DroneService {
         return false; // No service point satisfies this dispatch
     }
 
-    private static final double STEP_SIZE = 0.00015;
-    private static final double[] ALLOWED_ANGLES = new double[16];
-    static {
-        for (int i = 0; i < 16; i++) ALLOWED_ANGLES[i] = i * 22.5;
+    /**
+     * Main entry for calcDeliveryPath; legs are planned by {@link PathPlanner}.
+     */
+    public CalcDeliveryResponse calcDeliveryPath(List<MedDispatchRec> dispatches) {
+        return calcDeliveryPath(dispatches, PlanningProgress.NONE);
     }
 
     /**
-     * Main entry for calcDeliveryPath using A* on 16-direction grid.
+     * Same as {@link #calcDeliveryPath(List)}, reporting into {@code progress} and stopping
+     * with a CancellationException once it is cancelled.
      */
-    public CalcDeliveryResponse calcDeliveryPath(List<MedDispatchRec> dispatches) {
-        // fetch ILP resources
-        Drone[] allDrones = ilpClient.getAllDrones();
-        Map<Integer, Drone> droneMap = Arrays.stream(allDrones)
-                .collect(Collectors.toMap(Drone::getId, d -> d));
+    public CalcDeliveryResponse calcDeliveryPath(List<MedDispatchRec> dispatches, PlanningProgress progress) {
+        return calcDeliveryPath(dispatches, progress, false);
+    }
 
-        DroneForServicePoint[] dfspArray = ilpClient.getAllDronesForServicePoints();
-        List<DroneForServicePoint> dfsps = dfspArray == null ? List.of() : Arrays.asList(dfspArray);
+    /**
+     * calcDeliveryPath passed on by another cluster node as this plan's owner: planned (or
+     * answered from the cache) here, never passed on again.
+     */
+    public CalcDeliveryResponse calcDeliveryPathAsOwner(List<MedDispatchRec> dispatches) {
+        return calcDeliveryPath(dispatches, PlanningProgress.NONE, true);
+    }
 
-        ServicePoint[] servicePointsArr = ilpClient.getAllServicePoints();
-        Map<Integer, ServicePoint> servicePointById = servicePointsArr == null
-                ? Map.of()
-                : Arrays.stream(servicePointsArr).collect(Collectors.toMap(ServicePoint::getId, sp -> sp));
+    private CalcDeliveryResponse calcDeliveryPath(List<MedDispatchRec> dispatches, PlanningProgress progress, boolean owner) {
+        // I/O stays on the calling (virtual) thread, the searches go to the CPU pool
+        ReferenceData data = RequestTimings.time("ilp", this::fetchReferenceData);
+        String key = planCache.keyOf(dispatches, data.drones(), data.dronesForServicePoints(),
+                data.servicePoints(), data.restrictedAreas());
+
+        if (progress == PlanningProgress.NONE) {
+            // in cluster mode the node owning the key plans and caches it; if it cannot, plan here
+            String peer = owner ? null : cluster.ownerOf(key);
+            if (peer != null) {
+                CalcDeliveryResponse remote = RequestTimings.time("cluster", () -> cluster.fetchPlan(peer, dispatches));
+                if (remote != null) return remote;
+            }
+            return planCache.computeIfAbsent(key, () -> planningCpuPool.call(() -> planDeliveries(key, dispatches, progress, data)));
+        }
+
+        // jobs and deadline runs have their own progress, so they only share finished plans;
+        // a plan cut short by its deadline is not worth keeping
+        CalcDeliveryResponse cached = planCache.getIfPresent(key);
+        if (cached != null) {
+            if (!progress.hasDeadline()) return cached;
+            // a finished plan is returned well within any deadline
+            CalcDeliveryResponse copy = new CalcDeliveryResponse();
+            copy.setTotalCost(cached.getTotalCost());
+            copy.setTotalMoves(cached.getTotalMoves());
+            copy.setDronePaths(cached.getDronePaths());
+            copy.setUndeliveredDispatchIds(cached.getUndeliveredDispatchIds());
+            copy.setDeadlineReached(false);
+            return copy;
+        }
+        CalcDeliveryResponse response = planningCpuPool.call(() -> planDeliveries(key, dispatches, progress, data));
+        if (!Boolean.TRUE.equals(response.getDeadlineReached())) planCache.put(key, response);
+        return response;
+    }
+
+    // The four ILP calls do not depend on each other, so they run concurrently on virtual threads.
+    // (StructuredTaskScope is still a preview API on Java 21; this gives the same fail-fast shape.)
+    private ReferenceData fetchReferenceData() {
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Drone[]> drones = scope.submit(RequestTimings.propagate(ilpClient::getAllDrones));
+            Future<DroneForServicePoint[]> dfsps = scope.submit(RequestTimings.propagate(ilpClient::getAllDronesForServicePoints));
+            Future<ServicePoint[]> servicePoints = scope.submit(RequestTimings.propagate(ilpClient::getAllServicePoints));
+            Future<RestrictedArea[]> restrictedAreas = scope.submit(RequestTimings.propagate(ilpClient::getRestrictedAreas));
+            return new ReferenceData(join(drones, scope), join(dfsps, scope), join(servicePoints, scope), join(restrictedAreas, scope));
+        }
+    }
 
-        RestrictedArea[] raArray = ilpClient.getRestrictedAreas();
-        List<RestrictedArea> restrictedAreas = raArray == null ? List.of() : Arrays.asList(raArray);
+    // waits for one fan-out call; the first failure cancels its siblings and is rethrown as-is
+    private static <T> T join(Future<T> future, ExecutorService scope) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            scope.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while fetching ILP data");
+        } catch (ExecutionException e) {
+            scope.shutdownNow();
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    // planId names the plan among the active routes; the same batch on the same ILP data is the same plan
+    private CalcDeliveryResponse planDeliveries(String planId, List<MedDispatchRec> dispatches, PlanningProgress progress,
+                                                ReferenceData data) {
+        // reuses the landmark fields as long as restricted areas and service points are unchanged
+        AirspaceSnapshot airspace = RequestTimings.time("snapshot",
+                () -> airspaceService.snapshotOf(data.restrictedAreas(), data.servicePoints()));
 
         // pending dispatch map id -> MedDispatchRec (retain insertion order)
         Map<Integer, MedDispatchRec> pending = new LinkedHashMap<>();
         for (MedDispatchRec m : dispatches) pending.put(m.getId(), m);
 
+        List<DroneSlot> slots = slotsOf(data);
+
+        // "route" covers choosing and ordering the deliveries, searches included
+        List<DroneTour> tours = RequestTimings.time("route", () -> {
+            DroneTour[] tourOfSlot = new DroneTour[slots.size()];
+            if (dispatchPartitioner.appliesTo(pending.size())) planPartitioned(slots, tourOfSlot, pending, airspace, progress);
+            else planBatch(slots, tourOfSlot, pending, airspace, progress);
+            List<DroneTour> planned = new ArrayList<>();
+            for (DroneTour tour : tourOfSlot) if (tour != null) planned.add(tour);
+
+            // anytime mode: spend whatever budget is left on shortening the tours
+            if (progress.hasDeadline() && !progress.pastDeadline()) {
+                improveTours(planned, airspace, progress);
+            }
+            return planned;
+        });
+
+        CalcDeliveryResponse resp = toResponse(tours, pending.keySet());
+        for (int i = 0; i < tours.size(); i++) {
+            // kept so the route can be repaired if a restricted area appears later
+            activeRoutes.register(planId, i, resp.getDronePaths().get(i), tours.get(i).drone.getCapability().getMaxMoves(), airspace);
+        }
+        if (progress.hasDeadline()) resp.setDeadlineReached(progress.pastDeadline());
+        return resp;
+    }
+
+    // Response for the given (non-empty) tours, in order, with the dispatches left undelivered
+    private CalcDeliveryResponse toResponse(List<DroneTour> tours, Collection<Integer> undeliveredIds) {
         List<CalcDeliveryResponse.DronePath> resultDronePaths = new ArrayList<>();
         int totalMoves = 0;
         double totalCost = 0.0;
+        for (DroneTour tour : tours) {
+            for (TourStop stop : tour.stops) {
+                // each delivery is charged as a full flight (initial + final + moves out, hover and back)
+                int extraMoves = extraMoves(stop.pathTo, stop.returnPath);
+                totalMoves += extraMoves;
+                totalCost += flightCost(tour.drone, extraMoves);
+            }
+            totalMoves += moves(tour.stops.getLast().returnPath);
+            resultDronePaths.add(dronePathOf(tour));
+        }
+
+        CalcDeliveryResponse resp = new CalcDeliveryResponse();
+        resp.setTotalCost(totalCost);
+        resp.setTotalMoves(totalMoves);
+        resp.setDronePaths(resultDronePaths);
+        resp.setUndeliveredDispatchIds(new ArrayList<>(undeliveredIds));
+        return resp;
+    }
+
+    private static CalcDeliveryResponse.DronePath dronePathOf(DroneTour tour) {
+        List<CalcDeliveryResponse.DeliveryPath> deliveriesForDrone = new ArrayList<>();
+        for (TourStop stop : tour.stops) {
+            // build flightPath segment: pathToDelivery + hover (duplicate last position)
+            List<Position> flightToDelivery = new ArrayList<>(stop.pathTo);
+            flightToDelivery.add(flightToDelivery.get(flightToDelivery.size() - 1));
+            deliveriesForDrone.add(new CalcDeliveryResponse.DeliveryPath(stop.dispatch.getId(), flightToDelivery));
+        }
+        // final return-to-base path as a delivery-like segment (deliveryId = null); it is the
+        // return leg already planned for the last delivery, so no extra search is needed
+        deliveriesForDrone.add(new CalcDeliveryResponse.DeliveryPath(null, new ArrayList<>(tour.stops.getLast().returnPath)));
+        return new CalcDeliveryResponse.DronePath(tour.drone.getId(), deliveriesForDrone);
+    }
 
-        // iterate over service points and available drones greedily
-        outerServicePointLoop:
+    // every drone at every service point it flies from, in ILP order
+    private static List<DroneSlot> slotsOf(ReferenceData data) {
+        Map<Integer, Drone> droneMap = Arrays.stream(data.drones())
+                .collect(Collectors.toMap(Drone::getId, d -> d));
+
+        DroneForServicePoint[] dfspArray = data.dronesForServicePoints();
+        List<DroneForServicePoint> dfsps = dfspArray == null ? List.of() : Arrays.asList(dfspArray);
+
+        ServicePoint[] servicePointsArr = data.servicePoints();
+        Map<Integer, ServicePoint> servicePointById = servicePointsArr == null
+                ? Map.of()
+                : Arrays.stream(servicePointsArr).collect(Collectors.toMap(ServicePoint::getId, sp -> sp));
+
+        List<DroneSlot> slots = new ArrayList<>();
         for (DroneForServicePoint spEntry : dfsps) {
             ServicePoint sp = servicePointById.get(spEntry.getServicePointId());
             if (sp == null) continue;
-
-            // for each drone availability at this service point
             for (DroneForServicePoint.DroneAvailability avail : spEntry.getDrones()) {
                 Drone drone = droneMap.get(avail.getId());
                 if (drone == null) continue;
+                slots.add(new DroneSlot(drone, avail, sp.getId(), sp.getLocation()));
+            }
+        }
+        return slots;
+    }
 
-                // attempt to build a route for this drone starting/ending at sp
-                List<CalcDeliveryResponse.DeliveryPath> deliveriesForDrone = new ArrayList<>();
-                Position startPos = sp.getLocation();
-                Position currentPos = makePos(startPos.getLng(), startPos.getLat());
-
-                int movesUsedForDrone = 0;
-
-                // Keep attempting to take the best reachable pending dispatch until none left or drone exhausted
-                boolean didProgress;
-                do {
-                    didProgress = false;
-                    // choose candidate that leads to minimal extra moves (heuristic)
-                    Integer chosenId = null;
-                    List<Position> chosenPathToDelivery = null;
-                    List<Position> chosenReturnPath = null;
-                    int chosenExtraMoves = Integer.MAX_VALUE;
-                    double chosenFlightCost = 0.0;
-
-                    for (MedDispatchRec candidate : List.copyOf(pending.values())) {
-                        Position delivery = candidate.getDelivery();
-                        if (delivery == null) continue; // skip invalid
-
-                        // availability check for this drone at this service point/time
-                        if (!isDroneAvailableAtSlot(avail, candidate.getDate(), candidate.getTime())) {
-                            continue;
-                        }
-
-                        // A* from currentPos -> delivery
-                        List<Position> pathToDelivery = aStarPath(currentPos, delivery, restrictedAreas, drone.getCapability().getMaxMoves());
-                        if (pathToDelivery == null) continue; // unreachable
-
-                        // A* from delivery -> service point (return)
-                        List<Position> pathReturn = aStarPath(delivery, startPos, restrictedAreas, drone.getCapability().getMaxMoves());
-                        if (pathReturn == null) continue; // cannot return => invalid
-
-                        // compute moves: moves are edges = nodes-1
-                        int movesTo = Math.max(0, pathToDelivery.size() - 1);
-                        // hover represented by adding an identical position => +1 move for hover
-                        int hoverMoves = 1;
-                        int movesReturn = Math.max(0, pathReturn.size() - 1);
-                        int extraMoves = movesTo + hoverMoves + movesReturn;
-
-                        // ensure drone does not exceed maxMoves
-                        if (movesUsedForDrone + extraMoves > drone.getCapability().getMaxMoves()) {
-                            continue;
-                        }
-
-                        // compute flight cost for this flight (start -> delivery -> return)
-                        double flightCost = drone.getCapability().getCostInitial()
-                                + drone.getCapability().getCostFinal()
-                                + (extraMoves) * drone.getCapability().getCostPerMove();
-
-                        // respect candidate maxCost if present
-                        Double maxCost = candidate.getRequirements() == null ? null : candidate.getRequirements().getMaxCost();
-                        if (maxCost != null && flightCost > maxCost) continue;
-
-                        // pick candidate with smallest extraMoves (tie-breaker: smaller flightCost)
-                        if (extraMoves < chosenExtraMoves || (extraMoves == chosenExtraMoves && flightCost < chosenFlightCost)) {
-                            chosenId = candidate.getId();
-                            chosenPathToDelivery = pathToDelivery;
-                            chosenReturnPath = pathReturn;
-                            chosenExtraMoves = extraMoves;
-                            chosenFlightCost = flightCost;
-                        }
-                    }
+    // Plans one batch over the given drone slots into tourOfSlot (tour per slot, in slot order;
+    // null until the slot is given a delivery), extending the tours already there. Planned
+    // dispatches are removed from pending.
+    private void planBatch(List<DroneSlot> slots, DroneTour[] tourOfSlot, Map<Integer, MedDispatchRec> pending,
+                           AirspaceSnapshot airspace, PlanningProgress progress) {
+        if (dispatchAssigner.appliesTo(pending.size())) {
+            assignAndRoute(slots, tourOfSlot, pending, airspace, progress);
+        }
 
-                    if (chosenId != null) {
-                        // we will commit chosen candidate
-                        didProgress = true;
+        // greedy pass: the whole batch when it is small, otherwise whatever the assignment left
+        // over, appended to the assigned tours where the drones still have moves to spare
+        for (int s = 0; s < slots.size() && !pending.isEmpty() && !progress.pastDeadline(); s++) {
+            DroneTour tour = tourOfSlot[s] != null ? tourOfSlot[s] : new DroneTour(slots.get(s).drone(), slots.get(s).start());
+            routeDrone(slots.get(s), tour, pending, airspace, progress);
+            if (!tour.stops.isEmpty()) tourOfSlot[s] = tour;
+        }
+    }
 
-                        // build flightPath segment: pathToDelivery + hover (duplicate last position)
-                        List<Position> flightToDelivery = new ArrayList<>(chosenPathToDelivery);
-                        // append hover duplicate
-                        flightToDelivery.add(flightToDelivery.get(flightToDelivery.size() - 1));
+    // Very large batches: every region/time-slot partition is planned with the drones based at
+    // its service point, then whatever they could not serve gets one more go with all drones.
+    // Regions run side by side; a region's partitions run one after another and keep extending
+    // the same tours, so each drone slot has one tour and one maxMoves budget in the end.
+    private void planPartitioned(List<DroneSlot> slots, DroneTour[] tourOfSlot, Map<Integer, MedDispatchRec> pending,
+                                 AirspaceSnapshot airspace, PlanningProgress progress) {
+        Map<Integer, Position> hubById = new LinkedHashMap<>();
+        for (DroneSlot slot : slots) hubById.putIfAbsent(slot.servicePointId(), slot.start());
+        List<Integer> hubIds = new ArrayList<>(hubById.keySet());
+
+        List<DispatchPartitioner.Partition> partitions =
+                dispatchPartitioner.partition(List.copyOf(pending.values()), new ArrayList<>(hubById.values()));
+        List<Integer> planned = dispatchPartitioner.planAll(partitions, RequestTimings.propagate(part -> {
+            // a region's slots are its own, so only partitions of the same region touch these tours
+            int hubId = hubIds.get(part.hub());
+            List<Integer> own = new ArrayList<>();
+            for (int s = 0; s < slots.size(); s++) if (slots.get(s).servicePointId() == hubId) own.add(s);
+            List<DroneSlot> ownSlots = own.stream().map(slots::get).toList();
+            DroneTour[] ownTours = own.stream().map(s -> tourOfSlot[s]).toArray(DroneTour[]::new);
+
+            Map<Integer, MedDispatchRec> subPending = new LinkedHashMap<>();
+            for (MedDispatchRec m : part.dispatches()) subPending.put(m.getId(), m);
+            planBatch(ownSlots, ownTours, subPending, airspace, progress);
+            for (int i = 0; i < own.size(); i++) tourOfSlot[own.get(i)] = ownTours[i];
+            return part.dispatches().size() - subPending.size();
+        }));
+
+        for (DroneTour tour : tourOfSlot) {
+            if (tour != null) for (TourStop stop : tour.stops) pending.remove(stop.dispatch.getId());
+        }
+        logger.debug("Planned {} dispatches in {} partitions, {} left for the shared pass.",
+                planned.stream().mapToInt(Integer::intValue).sum(), partitions.size(), pending.size());
 
-                        // add as delivery segment
-                        deliveriesForDrone.add(new CalcDeliveryResponse.DeliveryPath(chosenId, flightToDelivery));
+        // e.g. the nearest service point has no drone that can carry it or is on duty then
+        if (!pending.isEmpty() && !progress.pastDeadline()) {
+            planBatch(slots, tourOfSlot, pending, airspace, progress);
+        }
+    }
 
-                        // update counters and pending set
-                        movesUsedForDrone += chosenExtraMoves;
-                        totalMoves += chosenExtraMoves;
-                        totalCost += chosenFlightCost;
+    // Large batches: match dispatches to drone slots in one global assignment, then route each
+    // slot's share on its own. Shares are disjoint and routing only reads the airspace and the
+    // return fields, so they run in parallel on the partitioner's bounded pool. Whatever a
+    // drone could not fit stays pending.
+    private void assignAndRoute(List<DroneSlot> slots, DroneTour[] tourOfSlot, Map<Integer, MedDispatchRec> pending,
+                                AirspaceSnapshot airspace, PlanningProgress progress) {
+        List<MedDispatchRec> batch = List.copyOf(pending.values());
+        double[][] cost = new double[batch.size()][slots.size()];
+        for (int s = 0; s < slots.size(); s++) {
+            DroneSlot slot = slots.get(s);
+            ReturnField field = returnFields.fieldFor(airspace, slot.start());
+            for (int d = 0; d < batch.size(); d++) {
+                cost[d][s] = estimatedTripCost(slot, field, batch.get(d), airspace);
+            }
+        }
+        progress.checkCancelled();
+        int[] slotOf = dispatchAssigner.assign(cost, slots.size());
 
-                        // mark delivered and remove
-                        pending.remove(chosenId);
+        Map<Integer, Map<Integer, MedDispatchRec>> shares = new TreeMap<>();
+        for (int d = 0; d < batch.size(); d++) {
+            if (slotOf[d] < 0) continue;
+            shares.computeIfAbsent(slotOf[d], s -> new LinkedHashMap<>()).put(batch.get(d).getId(), batch.get(d));
+        }
 
-                        // update current position to delivery (the last real position)
-                        MedDispatchRec finished = null;
-                        Position deliveryPos = flightToDelivery.get(flightToDelivery.size() - 1); // the hover duplicate
-                        currentPos = makePos(deliveryPos.getLng(), deliveryPos.getLat());
+        List<Map.Entry<Integer, Map<Integer, MedDispatchRec>>> work = new ArrayList<>(shares.entrySet());
+        List<DroneTour> routed = dispatchPartitioner.mapAll(work,
+                RequestTimings.propagate((Map.Entry<Integer, Map<Integer, MedDispatchRec>> e) -> {
+                    DroneSlot slot = slots.get(e.getKey());
+                    // a slot that already flies carries on from its last delivery with what it has left
+                    DroneTour tour = tourOfSlot[e.getKey()] != null ? tourOfSlot[e.getKey()] : new DroneTour(slot.drone(), slot.start());
+                    routeDrone(slot, tour, e.getValue(), airspace, progress);
+                    return tour;
+                }));
+
+        int before = pending.size();
+        for (int i = 0; i < work.size(); i++) {
+            DroneTour tour = routed.get(i);
+            if (tour.stops.isEmpty()) continue;
+            tourOfSlot[work.get(i).getKey()] = tour;
+            for (TourStop stop : tour.stops) pending.remove(stop.dispatch.getId());
+        }
+        int matched = before - pending.size();
+        logger.debug("Assignment routed {} of {} dispatches over {} drone slots.", matched, batch.size(), shares.size());
+    }
 
-                    }
-                } while (didProgress && !pending.isEmpty());
-
-                // If this drone delivered any, append final return-to-base path as a delivery-like segment (deliveryId = null)
-                if (!deliveriesForDrone.isEmpty()) {
-                    // compute return path from currentPos -> startPos
-                    List<Position> returnPath = aStarPath(currentPos, startPos, restrictedAreas, drone.getCapability().getMaxMoves());
-                    if (returnPath != null && returnPath.size() > 0) {
-                        deliveriesForDrone.add(new CalcDeliveryResponse.DeliveryPath(null, returnPath));
-                        int returnMoves = Math.max(0, returnPath.size() - 1);
-                        totalMoves += returnMoves;
-                        movesUsedForDrone += returnMoves;
-                        // cost for the return-only segment: we already charged costInitial+costFinal when choosing the first delivery.
-                        // To keep costs consistent, we will **not** double-charge initial+final for each segment; instead costs were added per chosen candidate above (which included full flight start->return).
-                    }
+    // Assignment cost of serving the dispatch from this slot as its own out-and-back flight,
+    // using the return field distance (or the landmark bound past its radius). Infinite when
+    // the drone cannot carry it, is not on duty, or even the return leg alone breaks a limit.
+    private double estimatedTripCost(DroneSlot slot, ReturnField field, MedDispatchRec dispatch, AirspaceSnapshot airspace) {
+        Position delivery = dispatch.getDelivery();
+        if (delivery == null) return Double.POSITIVE_INFINITY;
+        if (!isDroneAvailableAtSlot(slot.availability(), dispatch.getDate(), dispatch.getTime())) return Double.POSITIVE_INFINITY;
+        if (dispatch.getRequirements() != null && !meetsRequirements(slot.drone(), dispatch.getRequirements())) {
+            return Double.POSITIVE_INFINITY;
+        }
 
-                    resultDronePaths.add(new CalcDeliveryResponse.DronePath(drone.getId(), deliveriesForDrone));
-                }
+        // rejecting needs a true lower bound: the field distance can overestimate near walls, the landmark one cannot.
+        // Chained deliveries can arrive from closer by, so only hover + return is certain.
+        double backBound = airspace.heuristicToward(delivery, slot.start()).estimate(delivery.getLng(), delivery.getLat());
+        if (!withinLimits(slot.drone(), dispatch, 1 + backBound, slot.drone().getCapability().getMaxMoves())) {
+            return Double.POSITIVE_INFINITY;
+        }
 
-                if (pending.isEmpty()) break outerServicePointLoop;
-            }
+        // the field distance is the better guess for what the trip costs, it just must not decide feasibility
+        double oneWay = field == null ? Double.POSITIVE_INFINITY : field.movesFrom(delivery.getLng(), delivery.getLat());
+        if (Double.isInfinite(oneWay)) oneWay = backBound;
+        return flightCost(slot.drone(), (int) Math.ceil(2 * oneWay) + 1);
+    }
+
+    // Per (drone, service point) pre-filter: pending dispatches the drone can carry, is on duty
+    // for, and could still fly out to and back from within its remaining moves and the
+    // dispatch's maxCost. Only the hover and the way back are certain (a chained delivery may
+    // start close by), so that is the bound; it is kept in backBoundOf. Keeps the request order.
+    private List<MedDispatchRec> eligibleDispatches(DroneSlot slot, Collection<MedDispatchRec> pending,
+                                                    AirspaceSnapshot airspace, int movesLeft,
+                                                    Map<Integer, Double> backBoundOf) {
+        List<MedDispatchRec> eligible = new ArrayList<>();
+        for (MedDispatchRec candidate : pending) {
+            Position delivery = candidate.getDelivery();
+            if (delivery == null) continue; // skip invalid
+            if (candidate.getRequirements() != null && !meetsRequirements(slot.drone(), candidate.getRequirements())) continue;
+            // availability check for this drone at this service point/time
+            if (!isDroneAvailableAtSlot(slot.availability(), candidate.getDate(), candidate.getTime())) continue;
+
+            double backBound = airspace.heuristicToward(delivery, slot.start()).estimate(delivery.getLng(), delivery.getLat());
+            if (!withinLimits(slot.drone(), candidate, 1 + backBound, movesLeft)) continue;
+            eligible.add(candidate);
+            backBoundOf.put(candidate.getId(), backBound);
         }
+        return eligible;
+    }
 
-        // Build and return response
-        CalcDeliveryResponse resp = new CalcDeliveryResponse();
-        resp.setTotalCost(totalCost);
-        resp.setTotalMoves(totalMoves);
-        resp.setDronePaths(resultDronePaths);
-        return resp;
+    // Lower bound on the extra moves of flying from currentPos to the candidate and home, using
+    // the planned return leg (kept in returnPaths); -1 when the candidate is already taken or
+    // cannot fit the drone's remaining moves or its maxCost.
+    private int candidateBound(DroneSlot slot, MedDispatchRec candidate, Position currentPos,
+                               Map<Integer, Double> backBoundOf, AirspaceSnapshot airspace, ReturnField returnField,
+                               Map<Integer, List<Position>> returnPaths, Map<Integer, MedDispatchRec> pending,
+                               int movesLeft, PlanningProgress progress) {
+        if (!pending.containsKey(candidate.getId())) return -1; // taken earlier in this tour
+        Position delivery = candidate.getDelivery();
+
+        // O(1) reject: even the landmark lower bounds for out + hover + back break maxMoves or maxCost
+        double outBound = airspace.heuristicToward(currentPos, delivery).estimate(currentPos.getLng(), currentPos.getLat());
+        if (!withinLimits(slot.drone(), candidate, outBound + 1 + backBoundOf.get(candidate.getId()), movesLeft)) return -1;
+
+        // delivery -> service point (return), descending the service point's field
+        List<Position> pathReturn = returnPaths.computeIfAbsent(candidate.getId(), id -> pathPlanner.planReturn(
+                delivery, slot.start(), returnField, airspace, slot.drone().getCapability().getMaxMoves(), progress));
+        if (pathReturn == null) return -1; // cannot return => invalid
+
+        // the actual return leg tightens the bound
+        int leastMoves = leastMoves(outBound) + 1 + moves(pathReturn);
+        return withinLimits(slot.drone(), candidate, leastMoves, movesLeft) ? leastMoves : -1;
+    }
+
+    // what the next candidate out of the cursor, and everything after it, adds at the very least
+    private static double leastExtraMoves(DeliveryIndex.Cursor cursor, double leastHoverAndReturn) {
+        return cursor.peekDistance() / STEP_SIZE + leastHoverAndReturn - 1e-9;
+    }
+
+    // false when a flight of at least leastMoves moves already breaks the drone's moves or the dispatch's maxCost
+    private static boolean withinLimits(Drone drone, MedDispatchRec dispatch, double leastMoves, int movesLeft) {
+        if (leastMoves > movesLeft) return false;
+        return !exceedsMaxCost(dispatch, flightCost(drone, leastMoves(leastMoves)));
+    }
+
+    // whole moves a landmark bound guarantees; the slack keeps rounding from overshooting an exact bound
+    private static int leastMoves(double bound) {
+        return Double.isFinite(bound) ? (int) Math.ceil(bound - 1e-9) : Integer.MAX_VALUE;
     }
 
+    private static boolean meetsRequirements(Drone drone, MedDispatchRequirements requirements) {
+        if (drone.getCapability().getCapacity() < requirements.getCapacity()) return false;
+        if (Boolean.TRUE.equals(requirements.getCooling()) && !drone.getCapability().isCooling()) return false;
+        return !Boolean.TRUE.equals(requirements.getHeating()) || drone.getCapability().isHeating();
+    }
 
-    private List<Position> aStarPath(Position start, Position goal, List<RestrictedArea> restrictedAreas, int maxMovesLimit) {
-        if (start == null || goal == null) return null;
+    // Extends one drone's tour out of and back to its service point, repeatedly taking the pending
+    // dispatch that adds the fewest moves. Taken dispatches are removed from pending.
+    private void routeDrone(DroneSlot slot, DroneTour tour, Map<Integer, MedDispatchRec> pending,
+                            AirspaceSnapshot airspace, PlanningProgress progress) {
+        // carry on from the last delivery if the tour already has some
+        Position from = tour.stops.isEmpty() ? slot.start() : tour.stops.getLast().pathTo.getLast();
+        Position currentPos = makePos(from.getLng(), from.getLat());
+        // return legs only depend on the delivery, so each is worked out once per drone
+        ReturnField returnField = returnFields.fieldFor(airspace, slot.start());
+        Map<Integer, List<Position>> returnPaths = new HashMap<>();
+        int maxMoves = slot.drone().getCapability().getMaxMoves();
+
+        int movesUsedForDrone = tour.stops.stream().mapToInt(stop -> extraMoves(stop.pathTo, stop.returnPath)).sum();
+
+        // what this drone could ever take from its service point, decided once and without a search,
+        // indexed by where the deliveries are so each step only looks at the ones near enough to matter
+        long eligibilityStarted = System.nanoTime();
+        Map<Integer, Double> backBoundOf = new HashMap<>();
+        List<MedDispatchRec> eligible = eligibleDispatches(slot, pending.values(), airspace, maxMoves - movesUsedForDrone, backBoundOf);
+        DeliveryIndex index = DeliveryIndex.of(eligible.stream().map(MedDispatchRec::getDelivery).toList());
+        // every candidate adds at least the hover and the shortest way home of any of them to its outbound leg
+        double leastHoverAndReturn = 1 + backBoundOf.values().stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        RequestTimings.record("eligibility", System.nanoTime() - eligibilityStarted);
+
+        // Keep attempting to take the best reachable pending dispatch until none left or drone exhausted
+        boolean didProgress;
+        do {
+            didProgress = false;
+            // choose candidate that leads to minimal extra moves (heuristic)
+            MedDispatchRec chosen = null;
+            List<Position> chosenPathToDelivery = null;
+            List<Position> chosenReturnPath = null;
+            int chosenExtraMoves = Integer.MAX_VALUE;
+            int chosenRank = Integer.MAX_VALUE;
+            boolean chosenFar = false;
+            int movesLeft = maxMoves - movesUsedForDrone;
+            long boundNanos = 0;
+
+            // candidates come out of the index nearest first; the straight-line distance is a lower
+            // bound on the outbound leg, so whatever is still in the index can be bounded as a whole
+            DeliveryIndex.Cursor cursor = index.nearest(currentPos.getLng(), currentPos.getLat());
+
+            // short outbound legs: everything closer than the corridor planner's threshold
+            List<Integer> nearRanks = new ArrayList<>();
+            while (cursor.hasNext()) {
+                progress.checkCancelled();
+                // out of time: settle for the candidates gathered so far
+                if (progress.pastDeadline()) break;
+                if (leastExtraMoves(cursor, leastHoverAndReturn) > movesLeft) break;
+                int rank = cursor.peek();
+                if (pathPlanner.isLongLeg(currentPos, eligible.get(rank).getDelivery())) break;
+                cursor.next();
+
+                long started = System.nanoTime();
+                int leastMoves = candidateBound(slot, eligible.get(rank), currentPos, backBoundOf, airspace,
+                        returnField, returnPaths, pending, movesLeft, progress);
+                boundNanos += System.nanoTime() - started;
+                if (leastMoves >= 0) nearRanks.add(rank);
+            }
+            Collections.sort(nearRanks);
+            List<MedDispatchRec> nearCandidates = nearRanks.stream().map(eligible::get).toList();
+
+            // all short outbound legs share one multi-target search, which stops as soon as
+            // no remaining candidate can beat the best one found
+            if (!nearCandidates.isEmpty() && !progress.pastDeadline()) {
+                List<Position> targets = new ArrayList<>();
+                int[] hoverAndReturn = new int[nearCandidates.size()];
+                for (int i = 0; i < nearCandidates.size(); i++) {
+                    MedDispatchRec candidate = nearCandidates.get(i);
+                    targets.add(candidate.getDelivery());
+                    hoverAndReturn[i] = 1 + Math.max(0, returnPaths.get(candidate.getId()).size() - 1);
+                }
+                PathPlanner.TargetPath best = pathPlanner.nearestTarget(currentPos, targets, hoverAndReturn,
+                        (i, movesTo) -> !exceedsMaxCost(nearCandidates.get(i), flightCost(slot.drone(), movesTo + hoverAndReturn[i])),
+                        airspace, movesLeft, progress);
+                progress.searchDone();
+
+                if (best != null) {
+                    chosen = nearCandidates.get(best.target());
+                    chosenPathToDelivery = best.path();
+                    chosenReturnPath = returnPaths.get(chosen.getId());
+                    chosenExtraMoves = extraMoves(chosenPathToDelivery, chosenReturnPath);
+                    chosenRank = nearRanks.get(best.target());
+                }
+            }
 
-        // trivial close check
-        DistanceRequest closeCheck = new DistanceRequest();
-        closeCheck.setPosition1(start);
-        closeCheck.setPosition2(goal);
-        if (geometricService.calculateDistance(closeCheck) <= STEP_SIZE / 2) {
-            // already at target: return single node (caller may append hover)
-            List<Position> p = new ArrayList<>();
-            p.add(makePos(start.getLng(), start.getLat()));
-            return p;
+            // long outbound legs follow the corridor planner one by one, cheapest bound first. A
+            // candidate is only bounded once nothing nearer in the index could undercut it, and the
+            // searches stop once no bound left can beat the best flight found.
+            // {lower bound on the extra moves, place in the request}
+            PriorityQueue<int[]> farCandidates = new PriorityQueue<>(
+                    Comparator.<int[]>comparingInt(c -> c[0]).thenComparingInt(c -> c[1]));
+            while (!progress.pastDeadline()) {
+                int bar = Math.min(movesLeft, chosenExtraMoves);
+                if (!farCandidates.isEmpty()) bar = Math.min(bar, farCandidates.peek()[0]);
+                if (cursor.hasNext() && leastExtraMoves(cursor, leastHoverAndReturn) <= bar) {
+                    progress.checkCancelled();
+                    int rank = cursor.next();
+                    long started = System.nanoTime();
+                    int leastMoves = candidateBound(slot, eligible.get(rank), currentPos, backBoundOf, airspace,
+                            returnField, returnPaths, pending, movesLeft, progress);
+                    boundNanos += System.nanoTime() - started;
+                    if (leastMoves >= 0) farCandidates.add(new int[]{leastMoves, rank});
+                    continue;
+                }
+                if (farCandidates.isEmpty() || farCandidates.peek()[0] > chosenExtraMoves) break;
+
+                int rank = farCandidates.poll()[1];
+                MedDispatchRec candidate = eligible.get(rank);
+                List<Position> pathToDelivery = planLeg(currentPos, candidate.getDelivery(), airspace, maxMoves, progress);
+                progress.searchDone();
+                if (pathToDelivery == null) continue; // unreachable
+
+                // compute moves: moves are edges = nodes-1, plus one hover move
+                List<Position> pathReturn = returnPaths.get(candidate.getId());
+                int extraMoves = extraMoves(pathToDelivery, pathReturn);
+
+                // ensure drone does not exceed maxMoves
+                if (extraMoves > movesLeft) continue;
+
+                // compute flight cost for this flight (start -> delivery -> return)
+                double flightCost = flightCost(slot.drone(), extraMoves);
+
+                // respect candidate maxCost if present
+                if (exceedsMaxCost(candidate, flightCost)) continue;
+
+                // pick candidate with smallest extraMoves (flight cost grows with moves, so it is the tie-breaker too);
+                // on a tie a long leg beats a short one, and the earlier dispatch in the request wins among long legs
+                if (extraMoves < chosenExtraMoves || (extraMoves == chosenExtraMoves && (!chosenFar || rank < chosenRank))) {
+                    chosen = candidate;
+                    chosenPathToDelivery = pathToDelivery;
+                    chosenReturnPath = pathReturn;
+                    chosenExtraMoves = extraMoves;
+                    chosenRank = rank;
+                    chosenFar = true;
+                }
+            }
+
+            RequestTimings.record("eligibility", boundNanos);
+
+            if (chosen != null) {
+                // we will commit chosen candidate
+                didProgress = true;
+                tour.stops.add(new TourStop(chosen, chosenPathToDelivery, chosenReturnPath));
+                movesUsedForDrone += chosenExtraMoves;
+
+                // mark delivered and remove
+                pending.remove(chosen.getId());
+                index.remove(chosenRank);
+                progress.dispatchAssigned();
+
+                // update current position to delivery (the last real position)
+                Position deliveryPos = chosenPathToDelivery.get(chosenPathToDelivery.size() - 1);
+                currentPos = makePos(deliveryPos.getLng(), deliveryPos.getLat());
+            }
+        } while (didProgress && !pending.isEmpty() && !progress.pastDeadline());
+    }
+
+    // Local search over each drone's delivery order: swap neighbouring deliveries whenever
+    // that shortens the flight, until no swap helps or the deadline passes.
+    private void improveTours(List<DroneTour> tours, AirspaceSnapshot airspace, PlanningProgress progress) {
+        int swaps = 0;
+        for (DroneTour tour : tours) {
+            boolean improved = true;
+            while (improved && !progress.pastDeadline()) {
+                improved = false;
+                for (int i = 0; i + 1 < tour.stops.size() && !progress.pastDeadline(); i++) {
+                    if (trySwap(tour, i, airspace, progress)) {
+                        improved = true;
+                        swaps++;
+                    }
+                }
+            }
+        }
+        if (swaps > 0) logger.debug("Anytime improvement applied {} delivery swaps.", swaps);
+    }
+
+    private boolean trySwap(DroneTour tour, int i, AirspaceSnapshot airspace, PlanningProgress progress) {
+        int maxMoves = tour.drone.getCapability().getMaxMoves();
+        TourStop a = tour.stops.get(i);
+        TourStop b = tour.stops.get(i + 1);
+        TourStop next = i + 2 < tour.stops.size() ? tour.stops.get(i + 2) : null;
+        Position before = i == 0 ? tour.start : a.pathTo.getFirst();
+
+        List<Position> toB = planLeg(before, b.dispatch.getDelivery(), airspace, maxMoves, progress);
+        progress.searchDone();
+        if (toB == null) return false;
+        List<Position> bToA = planLeg(b.dispatch.getDelivery(), a.dispatch.getDelivery(), airspace, maxMoves, progress);
+        progress.searchDone();
+        if (bToA == null) return false;
+        // after the swap a is the one that flies on to the next stop (its return home is unchanged)
+        List<Position> aToNext = null;
+        if (next != null) {
+            aToNext = planLeg(a.dispatch.getDelivery(), next.dispatch.getDelivery(), airspace, maxMoves, progress);
+            progress.searchDone();
+            if (aToNext == null) return false;
         }
 
-        // node key formatting to stable string to avoid floating noise
-        var df = new DecimalFormat("0.0000000000", DecimalFormatSymbols.getInstance(Locale.US));
+        int oldFlown = moves(a.pathTo) + moves(b.pathTo) + (next == null ? moves(b.returnPath) : moves(next.pathTo));
+        int newFlown = moves(toB) + moves(bToA) + (next == null ? moves(a.returnPath) : moves(aToNext));
+        if (newFlown >= oldFlown) return false;
 
-        Function<Position, String> keyOf = pos -> df.format(pos.getLat()) + "," + df.format(pos.getLng());
+        TourStop newB = new TourStop(b.dispatch, toB, b.returnPath);
+        TourStop newA = new TourStop(a.dispatch, bToA, a.returnPath);
+        TourStop newNext = next == null ? null : new TourStop(next.dispatch, aToNext, next.returnPath);
 
-        class Node implements Comparable<Node> {
-            Position pos;
-            int g; // moves so far
-            double f; // g + heuristic
-            Node(Position pos, int g, double f) { this.pos = pos; this.g = g; this.f = f; }
-            @Override public int compareTo(Node o) { return Double.compare(this.f, o.f); }
+        // the swapped stops must still respect maxCost and the drone's move budget
+        for (TourStop stop : next == null ? List.of(newB, newA) : List.of(newB, newA, newNext)) {
+            if (exceedsMaxCost(stop.dispatch, flightCost(tour.drone, extraMoves(stop.pathTo, stop.returnPath)))) return false;
         }
+        List<TourStop> candidate = new ArrayList<>(tour.stops);
+        candidate.set(i, newB);
+        candidate.set(i + 1, newA);
+        if (next != null) candidate.set(i + 2, newNext);
+        int used = candidate.stream().mapToInt(stop -> extraMoves(stop.pathTo, stop.returnPath)).sum();
+        if (used > maxMoves) return false;
+
+        tour.stops.clear();
+        tour.stops.addAll(candidate);
+        return true;
+    }
 
-        PriorityQueue<Node> open = new PriorityQueue<>();
-        Map<String, Integer> gScore = new HashMap<>();
-        Map<String, Position> cameFrom = new HashMap<>();
+    // Point-to-point leg, reusing a path stored for this airspace by an earlier run if there is one;
+    // in cluster mode the path is looked up on, and stored with, the node owning the leg.
+    // A peer's path is only used if it checks out against this airspace (the store checks its own), else the leg is planned here.
+    private List<Position> planLeg(Position from, Position to, AirspaceSnapshot airspace, int maxMoves, PlanningProgress progress) {
+        String version = airspace.getVersion();
+        String peer = cluster.ownerOf(ClusterService.pathKey(version, from, to));
+        List<Position> known = peer == null ? warmStart.findPath(airspace, from, to) : cluster.findPath(peer, version, from, to);
+        if (known != null && peer != null && !LegPaths.isFlyable(known, from, to, airspace)) {
+            logger.warn("Discarding an invalid path for leg {} -> {} from cluster peer {}, planning it here.", from, to, peer);
+            known = null;
+        }
+        if (known != null) return moves(known) <= maxMoves ? known : null;
 
-        Position startCopy = makePos(start.getLng(), start.getLat());
-        Position goalCopy = makePos(goal.getLng(), goal.getLat());
-        String startKey = keyOf.apply(startCopy);
-        String goalKey = keyOf.apply(goalCopy);
+        List<Position> path = pathPlanner.plan(from, to, airspace, maxMoves, progress);
+        if (path != null) {
+            if (peer == null) warmStart.savePath(version, from, to, path);
+            else cluster.savePath(peer, version, from, to, path);
+        }
+        return path;
+    }
 
-        // heuristic: Euclidean distance / STEP_SIZE -> estimated moves
-        DistanceRequest hdr = new DistanceRequest();
-        hdr.setPosition1(startCopy);
-        hdr.setPosition2(goalCopy);
-        double hStart = geometricService.calculateDistance(hdr) / STEP_SIZE;
+    private static int moves(List<Position> path) {
+        return Math.max(0, path.size() - 1);
+    }
 
-        open.add(new Node(startCopy, 0, hStart));
-        gScore.put(startKey, 0);
+    // hover represented by adding an identical position => +1 move for hover
+    private static int extraMoves(List<Position> pathToDelivery, List<Position> pathReturn) {
+        return moves(pathToDelivery) + 1 + moves(pathReturn);
+    }
 
-        int expansions = 0;
-        int maxExpansions = (maxMovesLimit > 0) ? Math.min(maxMovesLimit * 5, 50000) : 50000; // safety cap
+    private static double flightCost(Drone drone, int extraMoves) {
+        return drone.getCapability().getCostInitial()
+                + drone.getCapability().getCostFinal()
+                + extraMoves * drone.getCapability().getCostPerMove();
+    }
 
-        while (!open.isEmpty() && expansions++ < maxExpansions) {
-            Node current = open.poll();
-            String currKey = keyOf.apply(current.pos);
+    private static boolean exceedsMaxCost(MedDispatchRec dispatch, double flightCost) {
+        Double maxCost = dispatch.getRequirements() == null ? null : dispatch.getRequirements().getMaxCost();
+        return maxCost != null && flightCost > maxCost;
+    }
 
-            // stop if within STEP_SIZE/2 of goal
-            DistanceRequest stopCheck = new DistanceRequest();
-            stopCheck.setPosition1(current.pos);
-            stopCheck.setPosition2(goalCopy);
-            if (geometricService.calculateDistance(stopCheck) <= STEP_SIZE / 2) {
-                // reconstruct path from startKey -> current.pos -> goal (append goal as exact)
-                List<Position> path = reconstructPath(cameFrom, keyOf, startKey, currKey);
-                // append final exact goal position (so return path ends at the delivery coordinates)
-                path.add(makePos(goalCopy.getLng(), goalCopy.getLat()));
-                return path;
-            }
+    // a drone together with the service point it flies from and its duty hours there
+    private record DroneSlot(Drone drone, DroneForServicePoint.DroneAvailability availability, int servicePointId, Position start) {
+    }
 
-            // generate neighbors
-            for (double angle : ALLOWED_ANGLES) {
-                NextPositionRequest npr = new NextPositionRequest();
-                npr.setStart(current.pos);
-                npr.setAngle(angle);
-                Position neighbor;
-                try {
-                    neighbor = geometricService.nextPosition(npr);
-                } catch (Exception e) {
-                    continue; // invalid angle or coords
+    // one drone's deliveries in flying order, out of and back to its service point
+    private static class DroneTour {
+        final Drone drone;
+        final Position start;
+        final List<TourStop> stops = new ArrayList<>();
+
+        DroneTour(Drone drone, Position start) {
+            this.drone = drone;
+            this.start = start;
+        }
+    }
+
+    private record TourStop(MedDispatchRec dispatch, List<Position> pathTo, List<Position> returnPath) {
+    }
+
+    /**
+     * Adds one dispatch to the live plan, or replaces it when its id is already there, without
+     * re-planning the rest: it goes in at the cheapest feasible place in any drone's tour,
+     * a new tour included, and only that tour is then re-optimised around it. If the ILP
+     * data has changed since the last update, every live dispatch is inserted again first.
+     */
+    public LivePlanUpdate ingestDispatch(MedDispatchRec dispatch) {
+        long started = System.nanoTime();
+        LivePlanUpdate update = new LivePlanUpdate();
+        update.setDispatchId(dispatch == null ? null : dispatch.getId());
+        Position delivery = dispatch == null ? null : dispatch.getDelivery();
+        if (delivery == null || delivery.getLng() == null || delivery.getLat() == null) {
+            update.setError("delivery position required");
+            return update;
+        }
+
+        ReferenceData data = fetchReferenceData();
+        liveLock.lock();
+        try {
+            planningCpuPool.call(() -> {
+                if (live == null || !isCurrentFor(live, data)) {
+                    update.setReplanned(live != null && !live.dispatches.isEmpty());
+                    rebuildLivePlan(data);
+                }
+                update.setReplaced(removeLive(dispatch.getId()));
+                live.dispatches.put(dispatch.getId(), dispatch);
+                Insertion insertion = insertLive(dispatch);
+                if (insertion == null) {
+                    live.undelivered.put(dispatch.getId(), dispatch);
+                    return null;
                 }
-                if (neighbor == null) continue;
-
-                // skip if neighbor is inside restricted area (we treat a restricted area with missing limits as NO-FLY if limits absent)
-                boolean blocked = false;
-                for (RestrictedArea ra : restrictedAreas) {
-                    try {
-                        if (ra.getVertices() != null && !ra.getVertices().isEmpty()) {
-                            IsInRegionRequest irr = new IsInRegionRequest();
-                            irr.setPosition(neighbor);
-                            irr.setRegion(toRegion(ra));
-                            if (geometricService.isInRegion(irr)) {
-                                blocked = true;
-                                break;
-                            }
-                        } else {
-                            // limits missing -> whole area is no-fly; but if vertices empty skip
-                        }
-                    } catch (Exception ignored) {}
+                DroneTour tour = live.tourOfSlot[insertion.slot()];
+                // the tour it went into is the only one that changed, so only it is re-optimised
+                for (int i = Math.max(0, insertion.stop() - 1); i <= insertion.stop() && i + 1 < tour.stops.size(); i++) {
+                    trySwap(tour, i, live.airspace, PlanningProgress.NONE);
                 }
-                if (blocked) continue;
-
-                String neighKey = keyOf.apply(neighbor);
-                int tentativeG = current.g + 1; // one additional move
-
-                Integer prevG = gScore.get(neighKey);
-                if (prevG == null || tentativeG < prevG) {
-                    cameFrom.put(neighKey, current.pos);
-                    gScore.put(neighKey, tentativeG);
-                    // heuristic from neighbor -> goal
-                    DistanceRequest hdr2 = new DistanceRequest();
-                    hdr2.setPosition1(neighbor);
-                    hdr2.setPosition2(goalCopy);
-                    double h = geometricService.calculateDistance(hdr2) / STEP_SIZE;
-                    double f = tentativeG + h;
-                    open.add(new Node(neighbor, tentativeG, f));
+                registerLive(insertion.slot());
+
+                DroneSlot slot = live.slots.get(insertion.slot());
+                update.setDroneId(slot.drone().getId());
+                update.setServicePointId(slot.servicePointId());
+                update.setStopIndex(indexOfStop(tour, dispatch.getId()));
+                update.setAddedMoves(insertion.addedMoves());
+                update.setAddedCost(insertion.addedCost());
+                return null;
+            });
+        } finally {
+            liveLock.unlock();
+        }
+        update.setUpdateMillis((System.nanoTime() - started) / 1e6);
+        return update;
+    }
+
+    /**
+     * The live plan as a calcDeliveryPath answer; empty before the first dispatch.
+     */
+    public CalcDeliveryResponse getLivePlan() {
+        liveLock.lock();
+        try {
+            if (live == null) return toResponse(List.of(), List.of());
+            List<DroneTour> tours = Arrays.stream(live.tourOfSlot).filter(Objects::nonNull).toList();
+            return toResponse(tours, live.undelivered.keySet());
+        } finally {
+            liveLock.unlock();
+        }
+    }
+
+    public void clearLivePlan() {
+        liveLock.lock();
+        try {
+            live = null;
+            activeRoutes.clear(LIVE_PLAN_ID);
+        } finally {
+            liveLock.unlock();
+        }
+    }
+
+    // whether the live plan was made with this ILP data; new copies of it usually have the same content
+    private boolean isCurrentFor(LivePlan plan, ReferenceData data) {
+        if (plan.sameArrays(data)) return true;
+        if (!plan.referenceKey.equals(referenceKeyOf(data))) return false;
+        plan.data = data;
+        return true;
+    }
+
+    private String referenceKeyOf(ReferenceData data) {
+        return planCache.keyOf(List.of(), data.drones(), data.dronesForServicePoints(), data.servicePoints(), data.restrictedAreas());
+    }
+
+    // New ILP data: same dispatches, in the order they came in, inserted into empty tours
+    private void rebuildLivePlan(ReferenceData data) {
+        long started = System.nanoTime();
+        AirspaceSnapshot airspace = airspaceService.snapshotOf(data.restrictedAreas(), data.servicePoints());
+        LivePlan previous = live;
+        live = new LivePlan(data, referenceKeyOf(data), airspace, slotsOf(data));
+        activeRoutes.clear(LIVE_PLAN_ID);
+        if (previous == null || previous.dispatches.isEmpty()) return;
+
+        for (MedDispatchRec dispatch : previous.dispatches.values()) {
+            live.dispatches.put(dispatch.getId(), dispatch);
+            if (insertLive(dispatch) == null) live.undelivered.put(dispatch.getId(), dispatch);
+        }
+        for (int s = 0; s < live.tourOfSlot.length; s++) if (live.tourOfSlot[s] != null) registerLive(s);
+        logger.info("ILP data changed: re-inserted {} live dispatches in {} ms.", live.dispatches.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Takes a dispatch out of the live plan, joining its neighbours up again; false if it was not there
+    private boolean removeLive(int dispatchId) {
+        if (live.dispatches.remove(dispatchId) == null) return false;
+        live.undelivered.remove(dispatchId);
+        Integer s = live.slotOfDispatch.remove(dispatchId);
+        if (s == null) return true;
+
+        DroneTour tour = live.tourOfSlot[s];
+        int k = indexOfStop(tour, dispatchId);
+        tour.stops.remove(k);
+        List<MedDispatchRec> displaced = new ArrayList<>();
+        if (k < tour.stops.size()) {
+            TourStop next = tour.stops.get(k);
+            Position before = k == 0 ? tour.start : tour.stops.get(k - 1).pathTo.getLast();
+            List<Position> path = liveLeg(before, next.dispatch.getDelivery(), tour.drone.getCapability().getMaxMoves());
+            if (path != null) {
+                tour.stops.set(k, new TourStop(next.dispatch, path, next.returnPath));
+            } else {
+                // cannot happen with a shortest-path planner, but then the rest of the tour goes back in
+                while (tour.stops.size() > k) displaced.add(tour.stops.removeLast().dispatch);
+            }
+        }
+        if (tour.stops.isEmpty()) live.tourOfSlot[s] = null;
+        registerLive(s);
+        for (MedDispatchRec d : displaced.reversed()) {
+            live.slotOfDispatch.remove(d.getId());
+            Insertion insertion = insertLive(d);
+            if (insertion == null) live.undelivered.put(d.getId(), d);
+            else registerLive(insertion.slot());
+        }
+        return true;
+    }
+
+    // keeps the active route of a live slot in step with its tour
+    private void registerLive(int s) {
+        DroneTour tour = live.tourOfSlot[s];
+        if (tour == null) activeRoutes.remove(LIVE_PLAN_ID, s);
+        else activeRoutes.register(LIVE_PLAN_ID, s, dronePathOf(tour), tour.drone.getCapability().getMaxMoves(), live.airspace);
+    }
+
+    // Cheapest insertion over every eligible drone slot and every place in its tour. Each place
+    // is bounded with the landmark heuristic first; places are then tried cheapest bound first
+    // with real (cached) legs, until no bound left can beat the best insertion found.
+    private Insertion insertLive(MedDispatchRec dispatch) {
+        Position x = dispatch.getDelivery();
+        AirspaceSnapshot airspace = live.airspace;
+        // {lower bound on the added cost, slot, place in its tour}
+        List<double[]> places = new ArrayList<>();
+        for (int s = 0; s < live.slots.size(); s++) {
+            DroneSlot slot = live.slots.get(s);
+            if (dispatch.getRequirements() != null && !meetsRequirements(slot.drone(), dispatch.getRequirements())) continue;
+            if (!isDroneAvailableAtSlot(slot.availability(), dispatch.getDate(), dispatch.getTime())) continue;
+
+            List<TourStop> stops = live.tourOfSlot[s] == null ? List.of() : live.tourOfSlot[s].stops;
+            int movesLeft = slot.drone().getCapability().getMaxMoves() - movesUsed(stops);
+            double back = airspace.heuristicToward(x, slot.start()).estimate(x.getLng(), x.getLat());
+            for (int k = 0; k <= stops.size(); k++) {
+                Position before = k == 0 ? slot.start() : stops.get(k - 1).pathTo.getLast();
+                double out = airspace.heuristicToward(before, x).estimate(before.getLng(), before.getLat());
+                // out + hover + back is what the dispatch itself pays; the tour may pay less, as a
+                // place mid-tour also replaces the leg to the next stop
+                if (exceedsMaxCost(dispatch, flightCost(slot.drone(), leastMoves(out + 1 + back)))) continue;
+                double bound = out + 1 + back;
+                if (k < stops.size()) {
+                    Position next = stops.get(k).dispatch.getDelivery();
+                    bound += airspace.heuristicToward(x, next).estimate(x.getLng(), x.getLat()) - moves(stops.get(k).pathTo);
                 }
+                if (bound > movesLeft) continue;
+                places.add(new double[]{addedCost(slot.drone(), bound), s, k});
             }
         }
+        places.sort(Comparator.<double[]>comparingDouble(p -> p[0]).thenComparingDouble(p -> p[1]).thenComparingDouble(p -> p[2]));
+
+        Insertion best = null;
+        for (double[] place : places) {
+            if (best != null && place[0] >= best.addedCost()) break;
+            Insertion insertion = tryInsertion(dispatch, (int) place[1], (int) place[2]);
+            if (insertion != null && (best == null || insertion.addedCost() < best.addedCost())) best = insertion;
+        }
+        if (best == null) return null;
+
+        DroneSlot slot = live.slots.get(best.slot());
+        DroneTour tour = live.tourOfSlot[best.slot()];
+        if (tour == null) tour = live.tourOfSlot[best.slot()] = new DroneTour(slot.drone(), slot.start());
+        if (best.nextPath() != null) {
+            TourStop next = tour.stops.get(best.stop());
+            tour.stops.set(best.stop(), new TourStop(next.dispatch, best.nextPath(), next.returnPath));
+        }
+        tour.stops.add(best.stop(), new TourStop(dispatch, best.pathTo(), best.returnPath()));
+        live.slotOfDispatch.put(dispatch.getId(), best.slot());
+        return best;
+    }
 
-        // failed to find path within expansion limits
-        return null;
+    // The exact insertion of the dispatch before stop k of slot s, or null if it breaks a limit
+    private Insertion tryInsertion(MedDispatchRec dispatch, int s, int k) {
+        DroneSlot slot = live.slots.get(s);
+        Drone drone = slot.drone();
+        int maxMoves = drone.getCapability().getMaxMoves();
+        List<TourStop> stops = live.tourOfSlot[s] == null ? List.of() : live.tourOfSlot[s].stops;
+        TourStop next = k < stops.size() ? stops.get(k) : null;
+        Position before = k == 0 ? slot.start() : stops.get(k - 1).pathTo.getLast();
+        Position x = dispatch.getDelivery();
+
+        List<Position> returnPath = live.returns.computeIfAbsent(slot.servicePointId() + "|" + x.getLng() + "," + x.getLat(),
+                key -> Objects.requireNonNullElse(pathPlanner.planReturn(x, slot.start(),
+                        returnFields.fieldFor(live.airspace, slot.start()), live.airspace, maxMoves, PlanningProgress.NONE), List.of()));
+        if (returnPath.isEmpty()) return null;
+        List<Position> pathTo = liveLeg(before, x, maxMoves);
+        if (pathTo == null) return null;
+        List<Position> nextPath = next == null ? null : liveLeg(x, next.dispatch.getDelivery(), maxMoves);
+        if (next != null && nextPath == null) return null;
+
+        int addedMoves = extraMoves(pathTo, returnPath) + (next == null ? 0 : moves(nextPath) - moves(next.pathTo));
+        if (movesUsed(stops) + addedMoves > maxMoves) return null;
+        if (exceedsMaxCost(dispatch, flightCost(drone, extraMoves(pathTo, returnPath)))) return null;
+        if (next != null && exceedsMaxCost(next.dispatch, flightCost(drone, extraMoves(nextPath, next.returnPath)))) return null;
+        return new Insertion(s, k, pathTo, returnPath, nextPath, addedMoves, addedCost(drone, addedMoves));
     }
 
-    private List<Position> reconstructPath(Map<String, Position> cameFrom, Function<Position, String> keyOf,
-                                           String startKey, String currentKey) {
-        LinkedList<Position> path = new LinkedList<>();
-        // currentKey corresponds to some Position; we need its Position. cameFrom stores mapping from childKey -> parentPos (not parentKey)
-        // find current position by parsing key
-        String[] parts = currentKey.split(",");
-        double lat = Double.parseDouble(parts[0]);
-        double lng = Double.parseDouble(parts[1]);
-        Position curr = makePos(lng, lat);
-        path.addFirst(curr);
-        String key = currentKey;
-        while (!key.equals(startKey)) {
-            Position parent = cameFrom.get(key);
-            if (parent == null) break;
-            path.addFirst(makePos(parent.getLng(), parent.getLat()));
-            key = keyOf.apply(parent);
+    // Leg between two positions of the live plan; computed once per live plan (or taken from planLeg's stores)
+    private List<Position> liveLeg(Position from, Position to, int maxMoves) {
+        if (live.legs.size() >= LIVE_LEG_ENTRIES) live.legs.clear();
+        List<Position> path = live.legs.computeIfAbsent(from.getLng() + "," + from.getLat() + ">" + to.getLng() + "," + to.getLat(),
+                key -> Objects.requireNonNullElse(planLeg(from, to, live.airspace, live.maxMoves, PlanningProgress.NONE), List.of()));
+        return path.isEmpty() || moves(path) > maxMoves ? null : path;
+    }
+
+    private static int movesUsed(List<TourStop> stops) {
+        return stops.stream().mapToInt(stop -> extraMoves(stop.pathTo, stop.returnPath)).sum();
+    }
+
+    // one more stop costs the drone's fixed charges plus the moves it adds to the tour
+    private static double addedCost(Drone drone, double addedMoves) {
+        return drone.getCapability().getCostInitial() + drone.getCapability().getCostFinal()
+                + addedMoves * drone.getCapability().getCostPerMove();
+    }
+
+    private static int indexOfStop(DroneTour tour, int dispatchId) {
+        for (int i = 0; i < tour.stops.size(); i++) if (tour.stops.get(i).dispatch.getId() == dispatchId) return i;
+        return -1;
+    }
+
+    // where a dispatch goes: before stop `stop` of slot `slot`; nextPath is that stop's new leg (null at the end)
+    private record Insertion(int slot, int stop, List<Position> pathTo, List<Position> returnPath, List<Position> nextPath,
+                             int addedMoves, double addedCost) {
+    }
+
+    // The live plan against one set of ILP data: a tour per drone slot (null while empty),
+    // every dispatch in arrival order, and the legs and return paths worked out so far
+    private static final class LivePlan {
+        ReferenceData data;
+        final String referenceKey;
+        final AirspaceSnapshot airspace;
+        final List<DroneSlot> slots;
+        // longest search any leg gets: the most moves of any drone
+        final int maxMoves;
+        final DroneTour[] tourOfSlot;
+        final Map<Integer, MedDispatchRec> dispatches = new LinkedHashMap<>();
+        final Map<Integer, MedDispatchRec> undelivered = new LinkedHashMap<>();
+        final Map<Integer, Integer> slotOfDispatch = new HashMap<>();
+        // an empty path marks a leg or return that cannot be flown
+        final Map<String, List<Position>> legs = new HashMap<>();
+        final Map<String, List<Position>> returns = new HashMap<>();
+
+        LivePlan(ReferenceData data, String referenceKey, AirspaceSnapshot airspace, List<DroneSlot> slots) {
+            this.data = data;
+            this.referenceKey = referenceKey;
+            this.airspace = airspace;
+            this.slots = slots;
+            this.maxMoves = slots.stream().mapToInt(slot -> slot.drone().getCapability().getMaxMoves()).max().orElse(0);
+            this.tourOfSlot = new DroneTour[slots.size()];
+        }
+
+        // the ILP client hands out the same arrays until it fetches new ones
+        boolean sameArrays(ReferenceData other) {
+            return data.drones() == other.drones() && data.dronesForServicePoints() == other.dronesForServicePoints()
+                    && data.servicePoints() == other.servicePoints() && data.restrictedAreas() == other.restrictedAreas();
+        }
+    }
+
+    /**
+     * Re-reads the restricted areas and repairs any active route that now crosses one.
+     * Returns the report of the latest repair (null if no airspace change was ever seen).
+     */
+    public RouteRepairReport refreshActiveRoutes() {
+        airspaceService.snapshotOf(ilpClient.getRestrictedAreas(), ilpClient.getAllServicePoints());
+        return activeRoutes.awaitRepairs();
+    }
+
+    /**
+     * For each position, whether it lies inside one of the ILP restricted areas. Uses the
+     * current airspace snapshot, so once its occupancy bitmap is built most answers are a
+     * bit probe rather than a ray-cast per area.
+     */
+    public List<Boolean> isInRestrictedArea(List<Position> positions) {
+        if (positions == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "positions required");
+        for (Position p : positions) {
+            if (p == null || p.getLng() == null || p.getLat() == null
+                    || p.getLat() < -90 || p.getLat() > 90 || p.getLng() < -180 || p.getLng() > 180) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid position");
+            }
         }
-        // ensure start at startKey position as first element (might be identical)
-        return new ArrayList<>(path);
+
+        AirspaceSnapshot airspace = airspaceService.snapshotOf(ilpClient.getRestrictedAreas(), ilpClient.getAllServicePoints());
+        List<Boolean> result = new ArrayList<>(positions.size());
+        for (Position p : positions) result.add(airspace.isNoFly(p.getLng(), p.getLat()));
+        return result;
     }
 
     private Position makePos(double lng, double lat) {
@@ -650,13 +1350,6 @@ public class DroneService {
         return false;
     }
 
-    private Region toRegion(RestrictedArea ra) {
-        Region region = new Region();
-        region.setName(ra.getName());
-        region.setVertices(ra.getVertices()); // same type, so OK
-        return region;
-    }
-
     public Map<String, Object> calcDeliveryPathAsGeoJson(List<MedDispatchRec> dispatches) {
         CalcDeliveryResponse response = calcDeliveryPath(dispatches);
 
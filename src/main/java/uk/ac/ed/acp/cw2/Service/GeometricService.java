@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ed.acp.cw2.dto.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -55,52 +56,76 @@ public class GeometricService {
 
     public boolean isInRegion(IsInRegionRequest request) {
         Position point = request.getPosition();
-        Region region = request.getRegion();
+        if (point == null) throw new IllegalArgumentException();
+        PolygonKernel polygon = kernelOf(request.getRegion());
 
-        if (point == null || region == null || region.getVertices() == null || region.getVertices().size() < 4) {
-            throw new IllegalArgumentException();
+        validateCoordinate(point.getLat(), point.getLng());
+
+        return isPointInPolygon(point, polygon);
+    }
+
+    /**
+     * {@link #isInRegion} for many positions against one region, with the region prepared once.
+     * Any invalid position or region rejects the whole batch.
+     */
+    public List<Boolean> isInRegionBatch(IsInRegionBatchRequest request) {
+        List<Position> points = request.getPositions();
+        if (points == null) throw new IllegalArgumentException();
+        PolygonKernel kernel = kernelOf(request.getRegion());
+
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Position p = points.get(i);
+            if (p == null) throw new IllegalArgumentException();
+            validateCoordinate(p.getLat(), p.getLng());
+            xs[i] = p.getLng();
+            ys[i] = p.getLat();
         }
 
-        validateCoordinate(point.getLat(), point.getLng());
+        boolean[] inside = new boolean[points.size()];
+        kernel.containsAll(xs, ys, inside);
+        List<Boolean> result = new ArrayList<>(inside.length);
+        int hits = 0;
+        for (boolean b : inside) {
+            result.add(b);
+            if (b) hits++;
+        }
+        logger.info("Safety Result: {} of {} points inside the region.", hits, inside.length);
+        return result;
+    }
 
+    // Validated closed ring of at least 4 vertices, unpacked for the ray-cast kernel
+    private PolygonKernel kernelOf(Region region) {
+        if (region == null || region.getVertices() == null || region.getVertices().size() < 4) {
+            throw new IllegalArgumentException();
+        }
         List<Position> vertices = region.getVertices();
-
         for (Position v : vertices) {
             validateCoordinate(v.getLat(), v.getLng());
         }
 
         Position first = vertices.getFirst();
         Position last = vertices.getLast();
-
         if (!Objects.equals(first.getLat(), last.getLat()) || !Objects.equals(first.getLng(), last.getLng())) {
             throw new IllegalArgumentException();
         }
 
-        return isPointInPolygon(point, vertices);
+        double[] xs = new double[vertices.size()];
+        double[] ys = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            xs[i] = vertices.get(i).getLng();
+            ys[i] = vertices.get(i).getLat();
+        }
+        return PolygonKernel.of(xs, ys);
     }
 
-    private boolean isPointInPolygon(Position point, List<Position> vertices) {
-        int crossings = 0;
+    private boolean isPointInPolygon(Position point, PolygonKernel polygon) {
         // REQ-GEO-04 Instrumentation: Initial state visibility
-        logger.debug("Safety Check: Starting ray-cast for point [{}, {}] against polygon with {} vertices.",
-                point.getLng(), point.getLat(), vertices.size());
-
-        for (int i = 0; i < vertices.size() - 1; i++) {
-            Position v1 = vertices.get(i);
-            Position v2 = vertices.get(i + 1);
-
-            boolean condY = (v1.getLat() > point.getLat()) != (v2.getLat() > point.getLat());
-            if (condY) {
-                double slope = (v2.getLng() - v1.getLng()) *
-                        (point.getLat() - v1.getLat()) /
-                        (v2.getLat() - v1.getLat()) + v1.getLng();
-                if (point.getLng() < slope) {
-                    crossings++;
-                    // REQ-GEO-04 Instrumentation: Track internal crossing logic
-                    logger.debug("Boundary Hit: Ray intersected edge between vertex {} and {}. Current crossing count: {}", i, i+1, crossings);
-                }
-            }
-        }
+        logger.debug("Safety Check: Starting ray-cast for point [{}, {}] against polygon with {} edges.",
+                point.getLng(), point.getLat(), polygon.getEdgeCount());
+
+        int crossings = polygon.crossings(point.getLng(), point.getLat());
 
         boolean isInside = crossings % 2 == 1;
         // REQ-GEO-04 Instrumentation: Final result visibility
@@ -1,24 +1,53 @@
 package uk.ac.ed.acp.cw2.Service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import uk.ac.ed.acp.cw2.dto.*;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 
+/**
+ * Calls to the ILP REST service. Every resource sits behind its own circuit breaker and keeps
+ * its last good copy ({@link IlpResource}), so a slow or failing ILP costs a bounded wait
+ * and stale data rather than an outage. The requests themselves go through
+ * {@link IlpTransport}, which hedges across mirrors when there are any.
+ */
 @Service
 public class IlpClient {
 
-    private final String ilpEndpoint = System.getenv().getOrDefault(
-            "ILP_ENDPOINT",
-            "https://ilp-rest-2025-bvh6e9hschfagrgy.ukwest-01.azurewebsites.net"
-    );
+    private final IlpTransport transport;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final IlpResource<Drone[]> drones;
+    private final IlpResource<RestrictedArea[]> restrictedAreas;
+    private final IlpResource<ServicePoint[]> servicePoints;
+    private final IlpResource<DroneForServicePoint[]> dronesForServicePoints;
+    private final IlpResource<MedDispatchRec[]> dispatches;
+
+    public IlpClient(IlpTransport transport,
+                     @Value("${ilp.client.retries:2}") int retries,
+                     @Value("${ilp.client.retry-backoff:200ms}") Duration retryBackoff,
+                     @Value("${ilp.client.breaker.failure-threshold:5}") int failureThreshold,
+                     @Value("${ilp.client.breaker.open-for:30s}") Duration openFor,
+                     @Value("${ilp.client.fresh-for:2s}") Duration freshFor,
+                     @Value("${ilp.client.stale-while-revalidate:30s}") Duration staleWhileRevalidate) {
+        this.transport = transport;
+        this.drones = new IlpResource<>("drones", () -> fetch("/drones", Drone[].class),
+                retries, retryBackoff, failureThreshold, openFor, freshFor, staleWhileRevalidate);
+        this.restrictedAreas = new IlpResource<>("restricted-areas", () -> fetch("/restricted-areas", RestrictedArea[].class),
+                retries, retryBackoff, failureThreshold, openFor, freshFor, staleWhileRevalidate);
+        this.servicePoints = new IlpResource<>("service-points", () -> fetch("/service-points", ServicePoint[].class),
+                retries, retryBackoff, failureThreshold, openFor, freshFor, staleWhileRevalidate);
+        this.dronesForServicePoints = new IlpResource<>("drones-for-service-points",
+                () -> fetch("/drones-for-service-points", DroneForServicePoint[].class),
+                retries, retryBackoff, failureThreshold, openFor, freshFor, staleWhileRevalidate);
+        this.dispatches = new IlpResource<>("dispatches", () -> fetch("/api/v1/dispatches", MedDispatchRec[].class),
+                retries, retryBackoff, failureThreshold, openFor, freshFor, staleWhileRevalidate);
+    }
 
     public Drone[] getAllDrones() {
-        return restTemplate.getForObject(ilpEndpoint + "/drones", Drone[].class);
+        return drones.get();
     }
 
     public Drone getDroneById(int id) {
@@ -27,18 +56,12 @@ public class IlpClient {
 
     // Fetch restricted areas
     public RestrictedArea[] getRestrictedAreas() {
-        return restTemplate.getForObject(
-                ilpEndpoint + "/restricted-areas",
-                RestrictedArea[].class
-        );
+        return restrictedAreas.get();
     }
 
     // Fetch service points
     public ServicePoint[] getAllServicePoints() {
-        return restTemplate.getForObject(
-                ilpEndpoint + "/service-points",
-                ServicePoint[].class
-        );
+        return servicePoints.get();
     }
 
     public ServicePoint getServicePointById(int id) {
@@ -47,23 +70,18 @@ public class IlpClient {
 
     // Fetch drones for service points
     public DroneForServicePoint[] getAllDronesForServicePoints() {
-        return restTemplate.getForObject(
-                ilpEndpoint + "/drones-for-service-points",
-                DroneForServicePoint[].class
-        );
+        return dronesForServicePoints.get();
     }
 
     public MedDispatchRec[] getAllDispatches() {
-        return restTemplate.getForObject(
-                ilpEndpoint + "/api/v1/dispatches",
-                MedDispatchRec[].class
-        );
+        return dispatches.get();
     }
 
     public MedDispatchRec getDispatchById(int id) {
-        return restTemplate.getForObject(
-                ilpEndpoint + "/api/v1/dispatches/" + id,
-                MedDispatchRec.class
-        );
+        return dispatches.call(() -> fetch("/api/v1/dispatches/" + id, MedDispatchRec.class));
+    }
+
+    private <T> T fetch(String path, Class<T> type) {
+        return transport.get(path, type);
     }
-}
\ No newline at end of file
+}
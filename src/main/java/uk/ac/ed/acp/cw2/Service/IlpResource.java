@@ -0,0 +1,196 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * One ILP resource (drones, service points, ...) behind a circuit breaker, with the last good
+ * copy kept for when the service is slow or down.
+ * <p>
+ * A copy younger than {@code freshFor} is served as is; up to {@code staleWhileRevalidate}
+ * past that it is still served while one background call fetches a new one. Otherwise the
+ * caller fetches, retrying with jittered exponential backoff. When every attempt fails, or the
+ * breaker is open, the last good copy is served and the request is told it is stale; only
+ * with no copy at all does the caller get a 503.
+ * <p>
+ * The breaker opens after {@code failureThreshold} failed calls in a row, turns callers away
+ * for {@code openFor}, then lets a single trial call through: success closes it, failure
+ * opens it again. 4xx answers are the caller's problem, not the service's, and do not count.
+ */
+final class IlpResource<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IlpResource.class);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private record Copy<T>(T data, long fetchedNanos) {
+    }
+
+    private final String name;
+    private final Supplier<T> fetch;
+    private final int retries;
+    private final Duration retryBackoff;
+    private final int failureThreshold;
+    private final long openForNanos;
+    private final long freshForNanos;
+    private final long staleForNanos;
+
+    private volatile Copy<T> lastGood;
+    // the last refresh failed, so whatever is served now is older than it should be
+    private volatile boolean degraded;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    // breaker state, guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedNanos;
+    private boolean trialInFlight;
+
+    IlpResource(String name, Supplier<T> fetch, int retries, Duration retryBackoff, int failureThreshold,
+                Duration openFor, Duration freshFor, Duration staleWhileRevalidate) {
+        this.name = name;
+        this.fetch = fetch;
+        this.retries = Math.max(0, retries);
+        this.retryBackoff = retryBackoff;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openForNanos = openFor.toNanos();
+        this.freshForNanos = freshFor.toNanos();
+        this.staleForNanos = freshFor.plus(staleWhileRevalidate).toNanos();
+    }
+
+    T get() {
+        Copy<T> copy = lastGood;
+        long age = copy == null ? Long.MAX_VALUE : System.nanoTime() - copy.fetchedNanos();
+        if (age < freshForNanos) return served(copy);
+        if (age < staleForNanos) {
+            revalidateInBackground();
+            return served(copy);
+        }
+        try {
+            return refresh();
+        } catch (RuntimeException e) {
+            if (copy == null || e instanceof HttpClientErrorException) throw e;
+            logger.warn("ILP {} unavailable ({}), serving data from {}s ago", name, e.getMessage(),
+                    Duration.ofNanos(age).toSeconds());
+            return served(copy);
+        }
+    }
+
+    /**
+     * A related call (e.g. one item of the resource) through the same breaker and retries, but
+     * with nothing cached: it either succeeds or throws.
+     */
+    <R> R call(Supplier<R> request) {
+        return attempt(request);
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    // one fetch through the breaker, retried; the last good copy is updated on success
+    private T refresh() {
+        try {
+            T data = attempt(fetch);
+            lastGood = new Copy<>(data, System.nanoTime());
+            degraded = false;
+            return data;
+        } catch (HttpClientErrorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            degraded = true;
+            throw e;
+        }
+    }
+
+    private <R> R attempt(Supplier<R> request) {
+        RuntimeException failure = null;
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (!allowCall()) {
+                if (failure != null) throw failure;
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "ILP " + name + " is unavailable");
+            }
+            try {
+                R data = request.get();
+                onSuccess();
+                return data;
+            } catch (HttpClientErrorException e) {
+                onSuccess(); // the service answered
+                throw e;
+            } catch (RuntimeException e) {
+                onFailure();
+                failure = e;
+            }
+            if (attempt < retries) backOff(attempt);
+        }
+        throw failure;
+    }
+
+    private void revalidateInBackground() {
+        if (!revalidating.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("ilp-revalidate-" + name).start(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.debug("Background refresh of ILP {} failed: {}", name, e.getMessage());
+            } finally {
+                revalidating.set(false);
+            }
+        });
+    }
+
+    private T served(Copy<T> copy) {
+        if (degraded) RequestTimings.markStale(name, Duration.ofNanos(System.nanoTime() - copy.fetchedNanos()));
+        return copy.data();
+    }
+
+    private synchronized boolean allowCall() {
+        if (state == State.CLOSED) return true;
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedNanos < openForNanos) return false;
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        // half open: exactly one trial call at a time
+        if (trialInFlight) return false;
+        trialInFlight = true;
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) logger.info("ILP {} is back, closing its circuit", name);
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) logger.warn("ILP {} failed {} times in a row, opening its circuit", name, consecutiveFailures);
+            state = State.OPEN;
+            openedNanos = System.nanoTime();
+            trialInFlight = false;
+        }
+    }
+
+    // somewhere between half and all of backoff * 2^attempt, so retrying callers do not arrive together
+    private void backOff(int attempt) {
+        long cap = retryBackoff.toNanos() << Math.min(attempt, 10);
+        long sleep = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        try {
+            Thread.sleep(Duration.ofNanos(sleep));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while retrying ILP " + name);
+        }
+    }
+}
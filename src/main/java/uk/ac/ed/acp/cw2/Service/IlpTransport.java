@@ -0,0 +1,205 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * HTTP GETs against the ILP service and its mirrors. The primary endpoint is asked first; if
+ * it has not answered within the recent p95 latency of that path, the same request goes to
+ * the next mirror as well (a hedge), and so on down the list. The first good answer wins and
+ * the requests still running are cancelled. A failed request moves on to the next endpoint
+ * straight away. Latencies are kept per endpoint template ({@code /api/v1/dispatches/{id}})
+ * rather than per concrete path, so there are only as many as the ILP API has endpoints.
+ * Hedges sent and hedges that won are counted as {@code ilp.client.hedges} and
+ * {@code ilp.client.hedge.wins}, against {@code ilp.client.requests}.
+ */
+@Component
+public class IlpTransport {
+
+    // latencies kept per path template for the hedge delay
+    private static final int WINDOW = 128;
+    // samples needed before the percentile is trusted over the initial delay
+    private static final int MIN_SAMPLES = 20;
+    // path segments that name one record (a number or a UUID) rather than a resource
+    private static final Pattern ID_SEGMENT = Pattern.compile("-?\\d+|\\p{XDigit}{8}(-\\p{XDigit}{4}){3}-\\p{XDigit}{12}");
+
+    private final List<String> endpoints;
+    private final RestTemplate restTemplate;
+    private final double percentile;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter requestCount;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Timer latency;
+
+    // ILP_ENDPOINT still wins; the property lets tests and the load generator point at a stub
+    public IlpTransport(@Value("${ILP_ENDPOINT:${ilp.service.url:https://ilp-rest-2025-bvh6e9hschfagrgy.ukwest-01.azurewebsites.net}}") String ilpEndpoint,
+                        @Value("${ILP_MIRRORS:${ilp.service.mirrors:}}") String mirrors,
+                        @Value("${ilp.client.connect-timeout:2s}") Duration connectTimeout,
+                        @Value("${ilp.client.read-timeout:5s}") Duration readTimeout,
+                        @Value("${ilp.client.hedge.percentile:0.95}") double percentile,
+                        @Value("${ilp.client.hedge.initial-delay:250ms}") Duration initialDelay,
+                        @Value("${ilp.client.hedge.min-delay:20ms}") Duration minDelay,
+                        MeterRegistry meterRegistry) {
+        this.endpoints = Stream.concat(Stream.of(ilpEndpoint), Arrays.stream(mirrors.split(",")))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> url.endsWith("/") ? url.substring(0, url.length() - 1) : url)
+                .distinct()
+                .toList();
+        this.percentile = percentile;
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.minDelayNanos = minDelay.toNanos();
+
+        // JDK HttpClient parks virtual threads cleanly while waiting on the ILP service
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(connectTimeout)
+                .build());
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+
+        this.requestCount = Counter.builder("ilp.client.requests")
+                .description("ILP fetches, however many endpoints each one went to")
+                .register(meterRegistry);
+        this.hedges = Counter.builder("ilp.client.hedges")
+                .description("Duplicate requests sent to a mirror because the earlier ones were slow or failed")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("ilp.client.hedge.wins")
+                .description("Fetches answered by a hedge rather than the first endpoint")
+                .register(meterRegistry);
+        this.latency = Timer.builder("ilp.client.latency")
+                .description("Time until the first good answer of an ILP fetch")
+                .register(meterRegistry);
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * GETs {@code path} (e.g. "/drones"), hedging across the mirrors; throws the last failure
+     * when every endpoint failed.
+     */
+    public <T> T get(String path, Class<T> type) {
+        requestCount.increment();
+        long started = System.nanoTime();
+        if (endpoints.size() == 1) {
+            T body = restTemplate.getForObject(endpoints.getFirst() + path, type);
+            sample(path, started);
+            return body;
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(requests);
+        List<Future<T>> inFlight = new ArrayList<>();
+        Map<Future<T>, Integer> endpointOf = new HashMap<>();
+        long hedgeDelay = hedgeDelay(path);
+        int next = 0;
+        try {
+            endpointOf.put(send(completion, inFlight, next, path, type), next++);
+            while (true) {
+                // wait a hedge delay while there is still a mirror to try, otherwise for whatever is running
+                Future<T> done = next < endpoints.size()
+                        ? completion.poll(hedgeDelay, TimeUnit.NANOSECONDS)
+                        : completion.take();
+                if (done == null) {
+                    // too slow: the same request goes to the next endpoint too
+                    endpointOf.put(send(completion, inFlight, next, path, type), next++);
+                    continue;
+                }
+                inFlight.remove(done);
+                try {
+                    T body = done.get();
+                    if (endpointOf.get(done) > 0) hedgeWins.increment();
+                    sample(path, started);
+                    return body;
+                } catch (ExecutionException e) {
+                    RuntimeException failure = e.getCause() instanceof RuntimeException re ? re : new CompletionException(e.getCause());
+                    // failed: move on to the next endpoint without waiting out the delay
+                    if (next < endpoints.size()) endpointOf.put(send(completion, inFlight, next, path, type), next++);
+                    else if (inFlight.isEmpty()) throw failure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while fetching " + path + " from the ILP");
+        } finally {
+            // the losers, or everything if this thread gave up
+            for (Future<T> loser : inFlight) loser.cancel(true);
+        }
+    }
+
+    private <T> Future<T> send(CompletionService<T> completion, List<Future<T>> inFlight, int endpoint,
+                               String path, Class<T> type) {
+        String url = endpoints.get(endpoint) + path;
+        Future<T> future = completion.submit(() -> restTemplate.getForObject(url, type));
+        inFlight.add(future);
+        if (endpoint > 0) hedges.increment();
+        return future;
+    }
+
+    // p95 (or the configured percentile) of recent answers on this path; the initial delay until enough are in
+    private long hedgeDelay(String path) {
+        LatencyWindow window = latencies.get(templateOf(path));
+        long delay = window == null ? -1 : window.percentile(percentile);
+        return delay < 0 ? initialDelayNanos : Math.max(minDelayNanos, delay);
+    }
+
+    private void sample(String path, long startedNanos) {
+        long nanos = System.nanoTime() - startedNanos;
+        latency.record(nanos, TimeUnit.NANOSECONDS);
+        latencies.computeIfAbsent(templateOf(path), p -> new LatencyWindow()).add(nanos);
+    }
+
+    // "/api/v1/dispatches/42?x=1" -> "/api/v1/dispatches/{id}"
+    private static String templateOf(String path) {
+        int query = path.indexOf('?');
+        String bare = query < 0 ? path : path.substring(0, query);
+        StringJoiner template = new StringJoiner("/");
+        for (String segment : bare.split("/", -1)) {
+            template.add(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return template.toString();
+    }
+
+    // the last WINDOW latencies of one path
+    private static final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(double p) {
+            if (count < MIN_SAMPLES) return -1;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.*;
+
+/**
+ * ALT (A*, landmarks, triangle inequality) lower bounds for the lattice search.
+ * Each landmark stores an obstacle-aware distance field over the {@link LatticeGrid};
+ * for any two points |d(L, goal) - d(L, x)| is a lower bound on d(x, goal).
+ */
+public final class LandmarkHeuristic {
+
+    // Grid distances run up to ~1.5% long against the 16-angle lattice and each lookup
+    // snaps to a cell centre, so the raw bound is shrunk by both to stay admissible.
+    private static final double GRID_STRETCH = 1.015;
+    private static final double SNAP_SLACK_CELLS = 2.0;
+    // goals hidden behind obstacles get their own field; kept small, each is one float per cell
+    private static final int MAX_GOAL_FIELDS = 32;
+
+    private final LatticeGrid grid;
+    private final List<Position> landmarks;
+    private final List<float[]> fields;
+    private final double stepSize;
+    private final double slack;
+    private final Map<Integer, float[]> goalFields = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+                    return size() > MAX_GOAL_FIELDS;
+                }
+            });
+
+    private LandmarkHeuristic(LatticeGrid grid, List<Position> landmarks, List<float[]> fields, double stepSize) {
+        this.grid = grid;
+        this.landmarks = landmarks;
+        this.fields = fields;
+        this.stepSize = stepSize;
+        this.slack = grid == null ? 0 : SNAP_SLACK_CELLS * grid.getCellSize() / stepSize;
+    }
+
+    /**
+     * Fallback with no landmarks: plain straight-line distance in moves.
+     */
+    public static LandmarkHeuristic euclideanOnly(double stepSize) {
+        return new LandmarkHeuristic(null, List.of(), List.of(), stepSize);
+    }
+
+    /**
+     * Picks up to {@code maxLandmarks} landmarks: every candidate in {@code preferred}
+     * first (service points), then polygon corners by farthest-point sampling so the
+     * landmarks surround the obstacles.
+     */
+    public static LandmarkHeuristic build(LatticeGrid grid, List<Position> preferred, List<Position> corners,
+                                          int maxLandmarks, double stepSize) {
+        List<Position> chosen = new ArrayList<>();
+        for (Position p : preferred) {
+            if (chosen.size() >= maxLandmarks) break;
+            chosen.add(p);
+        }
+
+        List<Position> remaining = new ArrayList<>(corners);
+        while (chosen.size() < maxLandmarks && !remaining.isEmpty()) {
+            Position best = null;
+            double bestGap = -1;
+            for (Position c : remaining) {
+                double gap = Double.POSITIVE_INFINITY;
+                for (Position l : chosen) {
+                    gap = Math.min(gap, Math.hypot(c.getLng() - l.getLng(), c.getLat() - l.getLat()));
+                }
+                if (gap > bestGap) {
+                    bestGap = gap;
+                    best = c;
+                }
+            }
+            remaining.remove(best);
+            chosen.add(best);
+        }
+
+        List<float[]> fields = new ArrayList<>(chosen.size());
+        for (Position l : chosen) {
+            fields.add(grid.floodFrom(l.getLng(), l.getLat(), stepSize));
+        }
+        return new LandmarkHeuristic(grid, List.copyOf(chosen), fields, stepSize);
+    }
+
+    /**
+     * Prepares the per-landmark goal distances so each estimate is one lookup per landmark.
+     * When an obstacle sits between {@code from} and {@code goal} the goal itself is promoted
+     * to a landmark: triangle bounds from far landmarks are flat along any straight line out
+     * of the start, so only a goal-centred field keeps the search off the obstacle face.
+     */
+    public Bound toward(Position from, Position goal) {
+        int goalCell = grid == null ? -1 : grid.cellOf(goal.getLng(), goal.getLat());
+        float[] goalDist = new float[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            goalDist[i] = goalCell < 0 ? Float.POSITIVE_INFINITY : fields.get(i)[goalCell];
+        }
+
+        float[] goalField = null;
+        if (goalCell >= 0 && !grid.lineOfSight(from.getLng(), from.getLat(), goal.getLng(), goal.getLat())) {
+            goalField = goalFields.get(goalCell);
+            if (goalField == null) {
+                goalField = grid.floodFrom(goal.getLng(), goal.getLat(), stepSize);
+                goalFields.put(goalCell, goalField);
+            }
+        }
+        return new Bound(goal.getLng(), goal.getLat(), goalDist, goalField);
+    }
+
+    public List<Position> getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Heuristic towards one goal, in moves. Never below the straight-line estimate.
+     */
+    public final class Bound {
+        private final double goalLng;
+        private final double goalLat;
+        private final float[] goalDist;
+        private final float[] goalField;
+
+        private Bound(double goalLng, double goalLat, float[] goalDist, float[] goalField) {
+            this.goalLng = goalLng;
+            this.goalLat = goalLat;
+            this.goalDist = goalDist;
+            this.goalField = goalField;
+        }
+
+        public double estimate(double lng, double lat) {
+            double euclid = Math.hypot(lng - goalLng, lat - goalLat) / stepSize;
+            if (goalDist.length == 0) return euclid;
+            int cell = grid.cellOf(lng, lat);
+            if (cell < 0) return euclid;
+
+            double best = 0;
+            if (goalField != null && !Float.isInfinite(goalField[cell])) {
+                best = goalField[cell];
+            }
+            for (int i = 0; i < goalDist.length; i++) {
+                float dg = goalDist[i];
+                float dx = fields.get(i)[cell];
+                if (Float.isInfinite(dg) || Float.isInfinite(dx)) continue;
+                best = Math.max(best, Math.abs(dg - dx));
+            }
+            double alt = (best - slack) / GRID_STRETCH;
+            return Math.max(euclid, alt);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Uniform grid laid over the operating area, used to precompute obstacle-aware
+ * distances. A cell is only marked blocked when it lies completely inside a no-fly
+ * polygon, so grid distances never overestimate what the drone lattice can do. The lattice
+ * only checks where a move lands, so with a hop length given a cell that one move could
+ * pass over (the polygon is at most a hop across there, along some lattice heading) is not
+ * blocked either.
+ */
+public final class LatticeGrid {
+
+    // 16-neighbourhood: axis, diagonal and knight moves, mirrors the 22.5 degree lattice closely
+    private static final int[] DX = {1, 0, -1, 0, 1, 1, -1, -1, 2, 1, -1, -2, -2, -1, 1, 2};
+    private static final int[] DY = {0, 1, 0, -1, 1, -1, 1, -1, 1, 2, 2, 1, -1, -2, -2, -1};
+    private static final float[] LEN = new float[16];
+    // cells a move passes between; a diagonal is stopped only when both are blocked,
+    // a knight move when either is, so thin walls cannot be jumped
+    private static final int[][] VIA = new int[16][];
+    // the 16 lattice headings give 8 lines a hop can run along
+    private static final double[] AXIS_X = new double[8];
+    private static final double[] AXIS_Y = new double[8];
+    static {
+        for (int i = 0; i < 8; i++) {
+            AXIS_X[i] = Math.cos(Math.toRadians(i * 22.5));
+            AXIS_Y[i] = Math.sin(Math.toRadians(i * 22.5));
+        }
+        for (int i = 0; i < 16; i++) {
+            LEN[i] = (float) Math.hypot(DX[i], DY[i]);
+            int sx = Integer.signum(DX[i]), sy = Integer.signum(DY[i]);
+            if (Math.abs(DX[i]) == 2) VIA[i] = new int[]{sx, 0, sx, sy};
+            else if (Math.abs(DY[i]) == 2) VIA[i] = new int[]{0, sy, sx, sy};
+            else if (DX[i] != 0 && DY[i] != 0) VIA[i] = new int[]{sx, 0, 0, sy};
+        }
+    }
+
+    private final double minLng;
+    private final double minLat;
+    private final double cellSize;
+    private final double hopLength;
+    private final int cols;
+    private final int rows;
+    private final BitSet blocked;
+    private final BitSet boundary;
+
+    private LatticeGrid(double minLng, double minLat, double cellSize, double hopLength, int cols, int rows) {
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.cellSize = cellSize;
+        this.hopLength = hopLength;
+        this.cols = cols;
+        this.rows = rows;
+        this.blocked = new BitSet(cols * rows);
+        this.boundary = new BitSet(cols * rows);
+    }
+
+    /**
+     * Builds a grid covering every polygon and extra point, padded by {@code marginCells}.
+     */
+    public static LatticeGrid covering(List<double[][]> polygons, List<Position> extraPoints,
+                                       double cellSize, int marginCells) {
+        return covering(polygons, extraPoints, cellSize, marginCells, 0);
+    }
+
+    /**
+     * As {@link #covering(List, List, double, int)}, for a lattice whose moves are
+     * {@code hopLength} long and only checked at their ends: walls a move can jump stay open.
+     */
+    public static LatticeGrid covering(List<double[][]> polygons, List<Position> extraPoints,
+                                       double cellSize, int marginCells, double hopLength) {
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+
+        for (double[][] poly : polygons) {
+            for (int i = 0; i < poly[0].length; i++) {
+                minLng = Math.min(minLng, poly[0][i]);
+                maxLng = Math.max(maxLng, poly[0][i]);
+                minLat = Math.min(minLat, poly[1][i]);
+                maxLat = Math.max(maxLat, poly[1][i]);
+            }
+        }
+        for (Position p : extraPoints) {
+            minLng = Math.min(minLng, p.getLng());
+            maxLng = Math.max(maxLng, p.getLng());
+            minLat = Math.min(minLat, p.getLat());
+            maxLat = Math.max(maxLat, p.getLat());
+        }
+        if (minLng > maxLng) return null; // nothing to cover
+
+        minLng -= marginCells * cellSize;
+        minLat -= marginCells * cellSize;
+        int cols = (int) Math.ceil((maxLng - minLng) / cellSize) + marginCells + 1;
+        int rows = (int) Math.ceil((maxLat - minLat) / cellSize) + marginCells + 1;
+
+        LatticeGrid grid = new LatticeGrid(minLng, minLat, cellSize, hopLength, cols, rows);
+        for (double[][] poly : polygons) grid.rasterise(poly);
+        return grid;
+    }
+
+    // Edge cells are flagged first; the remaining cells in the polygon bbox are uniform,
+    // so their centre decides whether the whole cell is inside. Inside cells a hop can cross
+    // are left open.
+    private void rasterise(double[][] poly) {
+        double[] xs = poly[0];
+        double[] ys = poly[1];
+        BitSet edgeCells = new BitSet(cols * rows);
+
+        int pMinC = cols, pMaxC = -1, pMinR = rows, pMaxR = -1;
+        for (int i = 0; i < xs.length - 1; i++) {
+            int c0 = clampCol(colOf(Math.min(xs[i], xs[i + 1])));
+            int c1 = clampCol(colOf(Math.max(xs[i], xs[i + 1])));
+            int r0 = clampRow(rowOf(Math.min(ys[i], ys[i + 1])));
+            int r1 = clampRow(rowOf(Math.max(ys[i], ys[i + 1])));
+            pMinC = Math.min(pMinC, c0);
+            pMaxC = Math.max(pMaxC, c1);
+            pMinR = Math.min(pMinR, r0);
+            pMaxR = Math.max(pMaxR, r1);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    if (segmentTouchesCell(xs[i], ys[i], xs[i + 1], ys[i + 1], c, r)) {
+                        edgeCells.set(r * cols + c);
+                    }
+                }
+            }
+        }
+
+        for (int r = pMinR; r <= pMaxR; r++) {
+            for (int c = pMinC; c <= pMaxC; c++) {
+                int idx = r * cols + c;
+                if (edgeCells.get(idx)) continue;
+                if (containsPoint(xs, ys, minLng + (c + 0.5) * cellSize, minLat + (r + 0.5) * cellSize)
+                        && !hopCrosses(xs, ys, c, r)) {
+                    blocked.set(idx);
+                }
+            }
+        }
+        boundary.or(edgeCells);
+        blocked.andNot(boundary);
+    }
+
+    // True when a move of hopLength along some lattice heading can pass through cell (c, r) of
+    // a polygon it lies inside: somewhere in the cell the polygon is at most a hop across.
+    private boolean hopCrosses(double[] xs, double[] ys, int c, int r) {
+        if (hopLength <= 0) return false;
+        double left = minLng + c * cellSize, bottom = minLat + r * cellSize;
+        // only cells near the boundary can be that thin
+        double cx = left + cellSize / 2, cy = bottom + cellSize / 2;
+        if (distanceToBoundary(xs, ys, cx, cy) > hopLength + cellSize) return false;
+
+        for (int a = 0; a < 8; a++) {
+            double ux = AXIS_X[a], uy = AXIS_Y[a];
+            // lines along u through the cell, by their offset w along the normal (-uy, ux)
+            double w0 = Double.POSITIVE_INFINITY, w1 = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < 4; k++) {
+                double w = -uy * (left + (k & 1) * cellSize) + ux * (bottom + (k >> 1) * cellSize);
+                w0 = Math.min(w0, w);
+                w1 = Math.max(w1, w);
+            }
+            // the chord length is linear in w between polygon vertices, so these offsets hold its minimum
+            double eps = cellSize * 1e-6;
+            List<Double> offsets = new ArrayList<>(List.of(w0 + eps, w1 - eps));
+            for (int i = 0; i < xs.length - 1; i++) {
+                double w = -uy * xs[i] + ux * ys[i];
+                if (w > w0 && w < w1) {
+                    offsets.add(Math.max(w0 + eps, w - eps));
+                    offsets.add(Math.min(w1 - eps, w + eps));
+                }
+            }
+            for (double w : offsets) {
+                double[] p = pointOnLine(left, bottom, ux, uy, w);
+                if (p != null && chord(xs, ys, p[0], p[1], ux, uy) <= hopLength * (1 + 1e-6)) return true;
+            }
+        }
+        return false;
+    }
+
+    // some point of cell (left, bottom) on the line along u at normal offset w, or null if it misses the cell
+    private double[] pointOnLine(double left, double bottom, double ux, double uy, double w) {
+        // the line is (w * -uy, w * ux) + t * u; clip t to the cell as in segmentTouchesCell
+        double x0 = -uy * w, y0 = ux * w;
+        double t0 = Double.NEGATIVE_INFINITY, t1 = Double.POSITIVE_INFINITY;
+        double[] p = {-ux, ux, -uy, uy};
+        double[] q = {x0 - left, left + cellSize - x0, y0 - bottom, bottom + cellSize - y0};
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) return null;
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) t0 = Math.max(t0, t);
+                else t1 = Math.min(t1, t);
+            }
+        }
+        if (t0 > t1) return null;
+        double t = (t0 + t1) / 2;
+        return new double[]{x0 + t * ux, y0 + t * uy};
+    }
+
+    // length of the stretch of the polygon along u that contains (x, y), an inside point
+    private static double chord(double[] xs, double[] ys, double x, double y, double ux, double uy) {
+        double ahead = Double.POSITIVE_INFINITY, behind = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xs.length - 1; i++) {
+            double ex = xs[i + 1] - xs[i], ey = ys[i + 1] - ys[i];
+            double denom = ux * ey - uy * ex;
+            if (denom == 0) continue; // parallel: its ends are met through the neighbouring edges
+            double dx = xs[i] - x, dy = ys[i] - y;
+            double t = (dx * ey - dy * ex) / denom;  // along u
+            double s = (dx * uy - dy * ux) / denom;  // along the edge
+            if (s < 0 || s > 1) continue;
+            if (t >= 0) ahead = Math.min(ahead, t);
+            else behind = Math.min(behind, -t);
+        }
+        return ahead + behind;
+    }
+
+    private static double distanceToBoundary(double[] xs, double[] ys, double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xs.length - 1; i++) {
+            double ex = xs[i + 1] - xs[i], ey = ys[i + 1] - ys[i];
+            double len2 = ex * ex + ey * ey;
+            double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((x - xs[i]) * ex + (y - ys[i]) * ey) / len2));
+            best = Math.min(best, Math.hypot(x - xs[i] - t * ex, y - ys[i] - t * ey));
+        }
+        return best;
+    }
+
+    private boolean segmentTouchesCell(double x0, double y0, double x1, double y1, int c, int r) {
+        // Liang-Barsky clip of the segment against the cell rectangle
+        double left = minLng + c * cellSize, right = left + cellSize;
+        double bottom = minLat + r * cellSize, top = bottom + cellSize;
+        double dx = x1 - x0, dy = y1 - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - left, right - x0, y0 - bottom, top - y0};
+        double t0 = 0, t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) return false;
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) t0 = Math.max(t0, t);
+                else t1 = Math.min(t1, t);
+                if (t0 > t1) return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean containsPoint(double[] xs, double[] ys, double x, double y) {
+        boolean inside = false;
+        for (int i = 0; i < xs.length - 1; i++) {
+            if ((ys[i] > y) != (ys[i + 1] > y)) {
+                double cross = (xs[i + 1] - xs[i]) * (y - ys[i]) / (ys[i + 1] - ys[i]) + xs[i];
+                if (x < cross) inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Dijkstra flood fill from the cell containing the given point. Distances are in
+     * units of {@code stepSize}; unreachable cells hold {@link Float#POSITIVE_INFINITY}.
+     */
+    public float[] floodFrom(double lng, double lat, double stepSize) {
+        float[] dist = new float[cols * rows];
+        floodInto(FloatBuffer.wrap(dist), lng, lat, stepSize, false, Float.POSITIVE_INFINITY);
+        return dist;
+    }
+
+    /**
+     * Flood fill into {@code dist} (one float per cell, heap or mapped). With
+     * {@code avoidBoundary} cells touching a polygon edge are impassable too, which keeps the
+     * field a little clear of obstacles; cells beyond {@code maxDistance} stay infinite.
+     */
+    public void floodInto(FloatBuffer dist, double lng, double lat, double stepSize,
+                          boolean avoidBoundary, float maxDistance) {
+        for (int i = 0; i < cols * rows; i++) dist.put(i, Float.POSITIVE_INFINITY);
+        int source = cellOf(lng, lat);
+        if (source < 0) return;
+
+        float scale = (float) (cellSize / stepSize);
+        // entries pack (distance bits << 32 | cell); non-negative floats order like their bits
+        PriorityQueue<Long> open = new PriorityQueue<>();
+        dist.put(source, 0f);
+        open.add((long) source);
+
+        while (!open.isEmpty()) {
+            long entry = open.poll();
+            int idx = (int) entry;
+            float d = Float.intBitsToFloat((int) (entry >>> 32));
+            if (d > dist.get(idx)) continue;
+
+            int c = idx % cols;
+            int r = idx / cols;
+            for (int k = 0; k < 16; k++) {
+                int nc = c + DX[k], nr = r + DY[k];
+                if (nc < 0 || nr < 0 || nc >= cols || nr >= rows) continue;
+                int n = nr * cols + nc;
+                if (blocked.get(n) || cutsCorner(c, r, k)) continue;
+                if (avoidBoundary && boundary.get(n)) continue;
+                float nd = d + LEN[k] * scale;
+                if (nd < dist.get(n) && nd <= maxDistance) {
+                    dist.put(n, nd);
+                    open.add(((long) Float.floatToIntBits(nd) << 32) | n);
+                }
+            }
+        }
+    }
+
+    private boolean cutsCorner(int c, int r, int k) {
+        int[] via = VIA[k];
+        if (via == null) return false;
+        boolean first = blocked.get((r + via[1]) * cols + c + via[0]);
+        boolean second = blocked.get((r + via[3]) * cols + c + via[2]);
+        boolean knight = Math.abs(DX[k]) == 2 || Math.abs(DY[k]) == 2;
+        return knight ? (first || second) : (first && second);
+    }
+
+    /**
+     * True when the straight segment crosses no blocked cell (sampled at half-cell spacing).
+     */
+    public boolean lineOfSight(double lng0, double lat0, double lng1, double lat1) {
+        int samples = (int) Math.ceil(Math.hypot(lng1 - lng0, lat1 - lat0) / (cellSize / 2));
+        for (int i = 0; i <= samples; i++) {
+            double t = samples == 0 ? 0 : (double) i / samples;
+            int cell = cellOf(lng0 + t * (lng1 - lng0), lat0 + t * (lat1 - lat0));
+            if (cell >= 0 && blocked.get(cell)) return false;
+        }
+        return true;
+    }
+
+    public int cellOf(double lng, double lat) {
+        int c = colOf(lng), r = rowOf(lat);
+        if (c < 0 || r < 0 || c >= cols || r >= rows) return -1;
+        return r * cols + c;
+    }
+
+    private int colOf(double lng) {
+        return (int) Math.floor((lng - minLng) / cellSize);
+    }
+
+    private int rowOf(double lat) {
+        return (int) Math.floor((lat - minLat) / cellSize);
+    }
+
+    private int clampCol(int c) {
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+
+    private int clampRow(int r) {
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    public boolean isBlocked(int cell) {
+        return blocked.get(cell);
+    }
+
+    public boolean isBoundary(int cell) {
+        return boundary.get(cell);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellCount() {
+        return cols * rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getMinLng() {
+        return minLng;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.List;
+
+/**
+ * Checks on leg paths the planner did not just compute itself (a peer's answer, a record
+ * read back from the warm-start store): they must look exactly like a path the planner
+ * would have produced, so nothing outside this process can slip a bad route into a plan.
+ */
+public final class LegPaths {
+
+    private static final double STEP_SIZE = 0.00015;
+    private static final double EPSILON = 1e-12;
+
+    private LegPaths() {
+    }
+
+    /**
+     * True when {@code path} starts on {@code from}, moves only in STEP_SIZE lattice hops
+     * and ends within half a step of {@code to}; the last hop may be the short snap onto the
+     * exact goal.
+     */
+    public static boolean isWellFormed(List<Position> path, Position from, Position to) {
+        if (path == null || path.isEmpty() || from == null || to == null) return false;
+        for (Position p : path) {
+            if (p == null || !Double.isFinite(p.getLng()) || !Double.isFinite(p.getLat())) return false;
+        }
+        Position first = path.getFirst();
+        if (Math.abs(first.getLng() - from.getLng()) > EPSILON || Math.abs(first.getLat() - from.getLat()) > EPSILON) {
+            return false;
+        }
+        for (int i = 1; i < path.size(); i++) {
+            Position a = path.get(i - 1), b = path.get(i);
+            double dLng = b.getLng() - a.getLng(), dLat = b.getLat() - a.getLat();
+            boolean snap = i == path.size() - 1 && Math.hypot(dLng, dLat) <= STEP_SIZE / 2 + EPSILON;
+            if (!snap && !isLatticeMove(dLng, dLat)) return false;
+        }
+        Position last = path.getLast();
+        return Math.hypot(last.getLng() - to.getLng(), last.getLat() - to.getLat()) <= STEP_SIZE / 2 + EPSILON;
+    }
+
+    /**
+     * {@link #isWellFormed} and no point of the path inside a no-fly area of {@code airspace}.
+     */
+    public static boolean isFlyable(List<Position> path, Position from, Position to, AirspaceSnapshot airspace) {
+        if (!isWellFormed(path, from, to)) return false;
+        for (Position p : path) {
+            if (airspace.isNoFly(p.getLng(), p.getLat())) return false;
+        }
+        return true;
+    }
+
+    private static boolean isLatticeMove(double dLng, double dLat) {
+        for (int d = 0; d < NoFlyIndex.DIRECTIONS; d++) {
+            if (Math.abs(dLng - NoFlyIndex.DIRECTION_LNG[d]) <= EPSILON
+                    && Math.abs(dLat - NoFlyIndex.DIRECTION_LAT[d]) <= EPSILON) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The no-fly polygons of one snapshot, prepared for the searches. Each polygon's bounding box
+ * (grown by a move) is registered in the buckets of a coarse grid, so a point only ever meets
+ * the few polygons around it, and a lattice node away from every wall is cleared with one
+ * bucket lookup.
+ */
+final class NoFlyIndex {
+
+    private static final double STEP_SIZE = 0.00015;
+    // ~13 moves; small enough that open sky is mostly empty buckets
+    private static final double BUCKET_SIZE = 0.002;
+    private static final int MAX_BUCKETS = 1 << 20;
+    // a neighbour is exactly one move away; the extra half move absorbs rounding
+    private static final double CLEARANCE = STEP_SIZE * 1.5;
+
+    static final int DIRECTIONS = 16;
+    static final int ALL_BLOCKED = (1 << DIRECTIONS) - 1;
+    // offsets of the 16 compass moves (0, 22.5, ... degrees), computed as GeometricService.nextPosition does
+    static final double[] DIRECTION_LNG = new double[DIRECTIONS];
+    static final double[] DIRECTION_LAT = new double[DIRECTIONS];
+
+    static {
+        for (int d = 0; d < DIRECTIONS; d++) {
+            double rad = Math.toRadians(d * 22.5);
+            DIRECTION_LNG[d] = STEP_SIZE * Math.cos(rad);
+            DIRECTION_LAT[d] = STEP_SIZE * Math.sin(rad);
+        }
+    }
+
+    private final PolygonKernel[] kernels;
+    // minLng, minLat, maxLng, maxLat per polygon
+    private final double[][] bounds;
+    private final double originLng;
+    private final double originLat;
+    private final double bucketSize;
+    private final int cols;
+    private final int rows;
+    private final int[][] buckets;
+    private final List<double[][]> polygons;
+    // rasterised copy, built off the request path; until it is there everything uses the exact test
+    private volatile OccupancyGrid occupancy;
+
+    private NoFlyIndex(List<double[][]> polygons) {
+        this.polygons = polygons;
+        int n = polygons.size();
+        kernels = new PolygonKernel[n];
+        bounds = new double[n][];
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double[] xs = polygons.get(i)[0];
+            double[] ys = polygons.get(i)[1];
+            kernels[i] = PolygonKernel.of(xs, ys);
+            double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int v = 0; v < xs.length; v++) {
+                b[0] = Math.min(b[0], xs[v]);
+                b[1] = Math.min(b[1], ys[v]);
+                b[2] = Math.max(b[2], xs[v]);
+                b[3] = Math.max(b[3], ys[v]);
+            }
+            bounds[i] = b;
+            minLng = Math.min(minLng, b[0] - CLEARANCE);
+            minLat = Math.min(minLat, b[1] - CLEARANCE);
+            maxLng = Math.max(maxLng, b[2] + CLEARANCE);
+            maxLat = Math.max(maxLat, b[3] + CLEARANCE);
+        }
+
+        if (n == 0) {
+            originLng = originLat = 0;
+            bucketSize = BUCKET_SIZE;
+            cols = rows = 0;
+            buckets = new int[0][];
+            return;
+        }
+
+        // polygons spread over a large area get coarser buckets rather than a huge table
+        double size = BUCKET_SIZE;
+        while (((maxLng - minLng) / size + 1) * ((maxLat - minLat) / size + 1) > MAX_BUCKETS) size *= 2;
+        originLng = minLng;
+        originLat = minLat;
+        bucketSize = size;
+        cols = (int) ((maxLng - minLng) / size) + 1;
+        rows = (int) ((maxLat - minLat) / size) + 1;
+
+        List<List<Integer>> lists = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) lists.add(null);
+        for (int i = 0; i < n; i++) {
+            double[] b = bounds[i];
+            int c0 = col(b[0] - CLEARANCE), c1 = col(b[2] + CLEARANCE);
+            int r0 = row(b[1] - CLEARANCE), r1 = row(b[3] + CLEARANCE);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int k = r * cols + c;
+                    if (lists.get(k) == null) lists.set(k, new ArrayList<>(2));
+                    lists.get(k).add(i);
+                }
+            }
+        }
+        buckets = new int[cols * rows][];
+        for (int k = 0; k < buckets.length; k++) {
+            List<Integer> ids = lists.get(k);
+            if (ids != null) buckets[k] = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    static NoFlyIndex of(List<double[][]> polygons) {
+        return new NoFlyIndex(polygons);
+    }
+
+    /**
+     * Builds the occupancy bitmap if it is not there yet; false when the polygons cover too
+     * large an area for one.
+     */
+    synchronized boolean rasterise() {
+        if (occupancy == null && !polygons.isEmpty()) occupancy = OccupancyGrid.build(polygons, this);
+        return occupancy != null;
+    }
+
+    /**
+     * Whether the point lies inside any of the polygons.
+     */
+    boolean contains(double lng, double lat) {
+        OccupancyGrid grid = occupancy;
+        if (grid != null) {
+            int cell = grid.probe(lng, lat);
+            if (cell != OccupancyGrid.EXACT) return cell == OccupancyGrid.BLOCKED;
+        }
+        return containsExact(lng, lat);
+    }
+
+    // the ray-cast against the polygons near the point, ignoring the bitmap
+    boolean containsExact(double lng, double lat) {
+        int[] ids = polygonsNear(lng, lat);
+        if (ids == null) return false;
+        for (int id : ids) {
+            if (kernels[id].contains(lng, lat)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Bit d is set when the move at d * 22.5 degrees from the point ends inside a polygon.
+     * With the bitmap each move is a bit probe; without it only polygons whose box comes
+     * within a move of the point are tested, each against the whole 16-point neighbourhood.
+     */
+    int blockedDirections(double lng, double lat) {
+        int[] ids = polygonsNear(lng, lat);
+        if (ids == null) return 0;
+
+        OccupancyGrid grid = occupancy;
+        if (grid != null) {
+            int mask = 0;
+            for (int d = 0; d < DIRECTIONS; d++) {
+                double x = lng + DIRECTION_LNG[d];
+                double y = lat + DIRECTION_LAT[d];
+                int cell = grid.probe(x, y);
+                if (cell == OccupancyGrid.BLOCKED || (cell == OccupancyGrid.EXACT && containsExact(x, y))) mask |= 1 << d;
+            }
+            return mask;
+        }
+
+        int mask = 0;
+        double[] xs = null;
+        double[] ys = null;
+        boolean[] inside = null;
+        for (int id : ids) {
+            double[] b = bounds[id];
+            if (lng < b[0] - CLEARANCE || lng > b[2] + CLEARANCE || lat < b[1] - CLEARANCE || lat > b[3] + CLEARANCE) {
+                continue;
+            }
+            if (xs == null) {
+                xs = new double[DIRECTIONS];
+                ys = new double[DIRECTIONS];
+                inside = new boolean[DIRECTIONS];
+                for (int d = 0; d < DIRECTIONS; d++) {
+                    xs[d] = lng + DIRECTION_LNG[d];
+                    ys[d] = lat + DIRECTION_LAT[d];
+                }
+            }
+            kernels[id].containsAll(xs, ys, inside);
+            for (int d = 0; d < DIRECTIONS; d++) {
+                if (inside[d]) mask |= 1 << d;
+            }
+            if (mask == ALL_BLOCKED) break;
+        }
+        return mask;
+    }
+
+    private int[] polygonsNear(double lng, double lat) {
+        if (cols == 0) return null;
+        double c = (lng - originLng) / bucketSize;
+        double r = (lat - originLat) / bucketSize;
+        if (c < 0 || r < 0 || c >= cols || r >= rows) return null;
+        return buckets[(int) r * cols + (int) c];
+    }
+
+    private int col(double lng) {
+        return Math.clamp((long) ((lng - originLng) / bucketSize), 0, cols - 1);
+    }
+
+    private int row(double lat) {
+        return Math.clamp((long) ((lat - originLat) / bucketSize), 0, rows - 1);
+    }
+}
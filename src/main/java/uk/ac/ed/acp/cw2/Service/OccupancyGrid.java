@@ -0,0 +1,137 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * No-fly occupancy rasterised at half a move per cell over the polygons' bounding box. Cells
+ * that an edge passes through (with a small safety margin) are marked as straddling and
+ * answered by the exact ray-cast; every other cell is entirely inside or entirely outside,
+ * decided once from its centre. A probe is then two bit lookups.
+ */
+final class OccupancyGrid {
+
+    static final int FREE = 0;
+    static final int BLOCKED = 1;
+    static final int EXACT = 2;
+
+    private static final double STEP_SIZE = 0.00015;
+    private static final double CELL_SIZE = STEP_SIZE / 2;
+    // keeps cells this close to an edge out of the rasterised answer, far above the ray-cast's rounding
+    private static final double EDGE_MARGIN = 1e-9;
+    private static final long MAX_CELLS = 64_000_000L;
+
+    private final double minLng;
+    private final double minLat;
+    private final int cols;
+    private final int rows;
+    private final BitSet blocked;
+    private final BitSet straddle;
+
+    private OccupancyGrid(double minLng, double minLat, int cols, int rows) {
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.cols = cols;
+        this.rows = rows;
+        this.blocked = new BitSet(cols * rows);
+        this.straddle = new BitSet(cols * rows);
+    }
+
+    /**
+     * Rasterises {@code polygons} ({lng[], lat[]} closed rings); null when there are none or
+     * they spread over too large an area for the bitmaps.
+     */
+    static OccupancyGrid build(List<double[][]> polygons, NoFlyIndex exact) {
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (double[][] poly : polygons) {
+            for (int i = 0; i < poly[0].length; i++) {
+                minLng = Math.min(minLng, poly[0][i]);
+                maxLng = Math.max(maxLng, poly[0][i]);
+                minLat = Math.min(minLat, poly[1][i]);
+                maxLat = Math.max(maxLat, poly[1][i]);
+            }
+        }
+        if (minLng > maxLng) return null;
+
+        // one spare cell all round, so everything outside the grid is open sky
+        minLng -= CELL_SIZE;
+        minLat -= CELL_SIZE;
+        long cols = (long) Math.ceil((maxLng - minLng) / CELL_SIZE) + 2;
+        long rows = (long) Math.ceil((maxLat - minLat) / CELL_SIZE) + 2;
+        if (cols * rows > MAX_CELLS) return null;
+
+        OccupancyGrid grid = new OccupancyGrid(minLng, minLat, (int) cols, (int) rows);
+        for (double[][] poly : polygons) grid.markEdges(poly[0], poly[1]);
+        for (double[][] poly : polygons) grid.fill(poly[0], poly[1], exact);
+        return grid;
+    }
+
+    /**
+     * {@link #FREE}, {@link #BLOCKED}, or {@link #EXACT} when the point's cell straddles an edge.
+     */
+    int probe(double lng, double lat) {
+        double c = (lng - minLng) / CELL_SIZE;
+        double r = (lat - minLat) / CELL_SIZE;
+        if (!(c >= 0 && r >= 0 && c < cols && r < rows)) return FREE;
+        int cell = (int) r * cols + (int) c;
+        if (straddle.get(cell)) return EXACT;
+        return blocked.get(cell) ? BLOCKED : FREE;
+    }
+
+    int getCellCount() {
+        return cols * rows;
+    }
+
+    // every cell a segment passes through or comes within EDGE_MARGIN of, column by column
+    private void markEdges(double[] xs, double[] ys) {
+        for (int i = 0; i < xs.length - 1; i++) {
+            double x1 = xs[i], y1 = ys[i], x2 = xs[i + 1], y2 = ys[i + 1];
+            double loX = Math.min(x1, x2), hiX = Math.max(x1, x2);
+            int c0 = col(loX - EDGE_MARGIN), c1 = col(hiX + EDGE_MARGIN);
+            for (int c = c0; c <= c1; c++) {
+                // the part of the segment over this column, widened by the margin
+                double a = Math.clamp(minLng + c * CELL_SIZE - EDGE_MARGIN, loX, hiX);
+                double b = Math.clamp(minLng + (c + 1) * CELL_SIZE + EDGE_MARGIN, loX, hiX);
+                double ya, yb;
+                if (hiX - loX < 1e-15) {
+                    ya = y1;
+                    yb = y2;
+                } else {
+                    ya = y1 + (y2 - y1) * (a - x1) / (x2 - x1);
+                    yb = y1 + (y2 - y1) * (b - x1) / (x2 - x1);
+                }
+                int r0 = row(Math.min(ya, yb) - EDGE_MARGIN), r1 = row(Math.max(ya, yb) + EDGE_MARGIN);
+                for (int r = r0; r <= r1; r++) straddle.set(r * cols + c);
+            }
+        }
+    }
+
+    // cells of the polygon's box that no edge touches take the answer of their centre
+    private void fill(double[] xs, double[] ys, NoFlyIndex exact) {
+        double loX = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            loX = Math.min(loX, xs[i]);
+            hiX = Math.max(hiX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        for (int r = row(loY); r <= row(hiY); r++) {
+            double lat = minLat + (r + 0.5) * CELL_SIZE;
+            for (int c = col(loX); c <= col(hiX); c++) {
+                int cell = r * cols + c;
+                if (straddle.get(cell) || blocked.get(cell)) continue;
+                if (exact.containsExact(minLng + (c + 0.5) * CELL_SIZE, lat)) blocked.set(cell);
+            }
+        }
+    }
+
+    private int col(double lng) {
+        return Math.clamp((long) Math.floor((lng - minLng) / CELL_SIZE), 0, cols - 1);
+    }
+
+    private int row(double lat) {
+        return Math.clamp((long) Math.floor((lat - minLat) / CELL_SIZE), 0, rows - 1);
+    }
+}
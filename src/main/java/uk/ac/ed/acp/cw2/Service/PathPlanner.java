@@ -0,0 +1,390 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Plans single legs for the delivery planner. Short legs use lattice A* directly; long legs
+ * follow the shortest visibility-graph corridor and only fall back to local A* where walking
+ * the 16-angle lattice along a corridor segment clips an obstacle.
+ */
+@Service
+@RequiredArgsConstructor
+public class PathPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathPlanner.class);
+
+    private static final double STEP_SIZE = 0.00015;
+    private static final double NODE_BUCKET = STEP_SIZE / 2;
+    private static final double[] ALLOWED_ANGLES = new double[16];
+    static {
+        for (int i = 0; i < 16; i++) ALLOWED_ANGLES[i] = i * 22.5;
+    }
+
+    private final GeometricService geometricService;
+
+    // legs shorter than this (in straight-line moves) go straight to lattice A*
+    @Value("${ilp.planner.corridor-min-moves:60}")
+    private int corridorMinMoves = 60;
+
+    /**
+     * Path from start to goal as consecutive STEP_SIZE moves, ending on the exact goal
+     * coordinates, or null when no path within {@code maxMovesLimit} was found.
+     */
+    public List<Position> plan(Position start, Position goal, AirspaceSnapshot airspace, int maxMovesLimit) {
+        return plan(start, goal, airspace, maxMovesLimit, PlanningProgress.NONE);
+    }
+
+    /**
+     * As {@link #plan(Position, Position, AirspaceSnapshot, int)}, but gives up (returns null)
+     * once the deadline of {@code progress} has passed.
+     */
+    public List<Position> plan(Position start, Position goal, AirspaceSnapshot airspace, int maxMovesLimit,
+                               PlanningProgress progress) {
+        if (start == null || goal == null) return null;
+
+        double straightMoves = Math.hypot(goal.getLng() - start.getLng(), goal.getLat() - start.getLat()) / STEP_SIZE;
+        if (straightMoves >= corridorMinMoves) {
+            List<Position> corridor = corridorPath(start, goal, airspace, maxMovesLimit, progress);
+            if (corridor != null) return corridor;
+            logger.debug("Corridor planning failed for a {}-move leg, using lattice A*.", Math.round(straightMoves));
+        }
+        return aStarPath(start, goal, airspace, maxMovesLimit, progress);
+    }
+
+    /**
+     * Return leg to a service point: read off the precomputed {@link ReturnField} when there
+     * is one, searching only when the descent gets stuck or the field does not reach.
+     */
+    public List<Position> planReturn(Position start, Position servicePoint, ReturnField field,
+                                     AirspaceSnapshot airspace, int maxMovesLimit, PlanningProgress progress) {
+        if (start == null || servicePoint == null) return null;
+        if (field != null) {
+            List<Position> path = field.descend(start, p -> isBlocked(p, airspace), maxMovesLimit);
+            if (path != null) return path;
+        }
+        progress.searchDone();
+        return plan(start, servicePoint, airspace, maxMovesLimit, progress);
+    }
+
+    // Walks each corridor segment greedily on the lattice; any blocked or non-improving step
+    // hands that segment to a local A* search instead.
+    List<Position> corridorPath(Position start, Position goal, AirspaceSnapshot airspace, int maxMovesLimit,
+                                PlanningProgress progress) {
+        List<Position> waypoints = airspace.getVisibilityGraph().route(start, goal);
+        if (waypoints == null) return null;
+
+        List<Position> path = new ArrayList<>();
+        Position current = makePos(start.getLng(), start.getLat());
+        path.add(current);
+        int limit = maxMovesLimit > 0 ? maxMovesLimit : Integer.MAX_VALUE;
+
+        for (int w = 1; w < waypoints.size(); w++) {
+            Position target = waypoints.get(w);
+            boolean last = w == waypoints.size() - 1;
+            // intermediate corners only need to be passed, the goal has to be reached
+            double tolerance = last ? STEP_SIZE / 2 : STEP_SIZE;
+
+            while (distance(current, target) > tolerance) {
+                Position next = greedyStep(current, target, airspace);
+                if (next == null) {
+                    // aStarPath reads a budget of 0 or less as unlimited, so a spent one has to stop here
+                    int budget = limit - (path.size() - 1);
+                    if (budget <= 0) return null;
+                    List<Position> local = aStarPath(current, target, airspace, maxMovesLimit > 0 ? budget : 0, progress);
+                    if (local == null) return null;
+                    // drop the exact-target hop A* appends unless this is the final goal
+                    int end = last ? local.size() : local.size() - 1;
+                    path.addAll(local.subList(1, Math.max(1, end)));
+                    current = path.getLast();
+                    if (path.size() - 1 > limit) return null;
+                    if (last) return path;
+                    break;
+                }
+                path.add(next);
+                current = next;
+                if (path.size() - 1 > limit) return null;
+            }
+        }
+
+        // the closing snap onto the goal is a move too
+        path.add(makePos(goal.getLng(), goal.getLat()));
+        return path.size() - 1 <= limit ? path : null;
+    }
+
+    private Position greedyStep(Position current, Position target, AirspaceSnapshot airspace) {
+        double remaining = distance(current, target);
+        Position best = null;
+        double bestDist = remaining;
+        for (double angle : ALLOWED_ANGLES) {
+            double rad = Math.toRadians(angle);
+            double lng = current.getLng() + STEP_SIZE * Math.cos(rad);
+            double lat = current.getLat() + STEP_SIZE * Math.sin(rad);
+            double d = Math.hypot(target.getLng() - lng, target.getLat() - lat);
+            if (d < bestDist) {
+                bestDist = d;
+                best = makePos(lng, lat);
+            }
+        }
+        if (best == null || isBlocked(best, airspace)) return null;
+        return best;
+    }
+
+    // every lattice search is counted and timed for the request's Server-Timing header
+    List<Position> aStarPath(Position start, Position goal, AirspaceSnapshot airspace, int maxMovesLimit,
+                             PlanningProgress progress) {
+        long started = System.nanoTime();
+        try {
+            return aStarSearch(start, goal, airspace, maxMovesLimit, progress);
+        } finally {
+            RequestTimings.record("astar", System.nanoTime() - started);
+        }
+    }
+
+    private List<Position> aStarSearch(Position start, Position goal, AirspaceSnapshot airspace, int maxMovesLimit,
+                                       PlanningProgress progress) {
+        if (start == null || goal == null) return null;
+
+        // trivial close check
+        DistanceRequest closeCheck = new DistanceRequest();
+        closeCheck.setPosition1(start);
+        closeCheck.setPosition2(goal);
+        if (geometricService.calculateDistance(closeCheck) <= STEP_SIZE / 2) {
+            // already at target: return single node (caller may append hover)
+            List<Position> p = new ArrayList<>();
+            p.add(makePos(start.getLng(), start.getLat()));
+            return p;
+        }
+
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        // 16 angles of irrational step make the reachable positions dense, so nodes are merged
+        // per half-step bucket; parents are kept as nodes so every path stays exact STEP_SIZE moves
+        Map<Long, Integer> gScore = new HashMap<>();
+
+        Position startCopy = makePos(start.getLng(), start.getLat());
+        Position goalCopy = makePos(goal.getLng(), goal.getLat());
+
+        // heuristic: landmark (ALT) lower bound in moves, never below Euclidean distance / STEP_SIZE
+        LandmarkHeuristic.Bound heuristic = airspace.heuristicToward(startCopy, goalCopy);
+        double hStart = heuristic.estimate(startCopy.getLng(), startCopy.getLat());
+
+        open.add(new Node(startCopy, 0, hStart, null));
+        gScore.put(bucketOf(startCopy), 0);
+
+        int expansions = 0;
+        int maxExpansions = (maxMovesLimit > 0) ? (int) Math.min(maxMovesLimit * 5L, 50000) : 50000; // safety cap
+
+        while (!open.isEmpty() && expansions++ < maxExpansions) {
+            // the clock is only read every 256 expansions
+            if ((expansions & 0xff) == 0 && progress.pastDeadline()) {
+                logger.debug("A* stopped at the planning deadline after {} expansions.", expansions);
+                return null;
+            }
+            Node current = open.poll();
+            // a cheaper node already claimed this bucket
+            if (current.g > gScore.getOrDefault(bucketOf(current.pos), Integer.MAX_VALUE)) continue;
+
+            // stop if within STEP_SIZE/2 of goal
+            DistanceRequest stopCheck = new DistanceRequest();
+            stopCheck.setPosition1(current.pos);
+            stopCheck.setPosition2(goalCopy);
+            if (geometricService.calculateDistance(stopCheck) <= STEP_SIZE / 2) {
+                // reconstruct path from start -> current.pos -> goal (append goal as exact)
+                List<Position> path = reconstructPath(current);
+                // append final exact goal position (so return path ends at the delivery coordinates)
+                path.add(makePos(goalCopy.getLng(), goalCopy.getLat()));
+                logger.debug("A* reached goal after {} expansions ({} moves).", expansions, current.g);
+                return path;
+            }
+
+            // generate neighbors; one lookup tells which of the 16 moves end in a no-fly area
+            int blocked = airspace.blockedDirections(current.pos.getLng(), current.pos.getLat());
+            for (int d = 0; d < ALLOWED_ANGLES.length; d++) {
+                if ((blocked & (1 << d)) != 0) continue;
+                Position neighbor = neighbour(current.pos, d);
+
+                long neighKey = bucketOf(neighbor);
+                int tentativeG = current.g + 1; // one additional move
+                // no room left for the snap onto the goal after it
+                if (maxMovesLimit > 0 && tentativeG + 1 > maxMovesLimit) continue;
+
+                Integer prevG = gScore.get(neighKey);
+                if (prevG == null || tentativeG < prevG) {
+                    gScore.put(neighKey, tentativeG);
+                    // heuristic from neighbor -> goal
+                    double h = heuristic.estimate(neighbor.getLng(), neighbor.getLat());
+                    double f = tentativeG + h;
+                    open.add(new Node(neighbor, tentativeG, f, current));
+                }
+            }
+        }
+
+        // failed to find path within expansion limits
+        logger.debug("A* gave up after {} expansions.", expansions);
+        return null;
+    }
+
+    /** Outcome of {@link #nearestTarget}: index of the chosen target and the path to it. */
+    public record TargetPath(int target, List<Position> path) {
+    }
+
+    /**
+     * Straight-line legs at least this long go through the corridor planner rather than a
+     * lattice search, so they are better planned one by one with {@link #plan}.
+     */
+    public boolean isLongLeg(Position start, Position goal) {
+        return Math.hypot(goal.getLng() - start.getLng(), goal.getLat() - start.getLat()) / STEP_SIZE >= corridorMinMoves;
+    }
+
+    /**
+     * One A* expansion from {@code start} towards all {@code targets} at once, minimising the
+     * moves to a target plus its {@code extraMoves}. The heuristic is the smallest landmark
+     * bound over the targets, so the search stops as soon as nothing left in the open set
+     * can beat the best accepted target. {@code accept} sees the target index and the moves
+     * to reach it. Returns null when no accepted target fits within {@code maxMovesLimit}.
+     */
+    public TargetPath nearestTarget(Position start, List<Position> targets, int[] extraMoves,
+                                    BiPredicate<Integer, Integer> accept, AirspaceSnapshot airspace,
+                                    int maxMovesLimit, PlanningProgress progress) {
+        long started = System.nanoTime();
+        try {
+            return nearestTargetSearch(start, targets, extraMoves, accept, airspace, maxMovesLimit, progress);
+        } finally {
+            RequestTimings.record("astar", System.nanoTime() - started);
+        }
+    }
+
+    private TargetPath nearestTargetSearch(Position start, List<Position> targets, int[] extraMoves,
+                                           BiPredicate<Integer, Integer> accept, AirspaceSnapshot airspace,
+                                           int maxMovesLimit, PlanningProgress progress) {
+        int k = targets.size();
+        if (start == null || k == 0) return null;
+
+        Position startCopy = makePos(start.getLng(), start.getLat());
+        LandmarkHeuristic.Bound[] bounds = new LandmarkHeuristic.Bound[k];
+        for (int i = 0; i < k; i++) bounds[i] = airspace.heuristicToward(startCopy, targets.get(i));
+        boolean[] settled = new boolean[k];
+
+        int bestTarget = -1;
+        int bestTotal = Integer.MAX_VALUE;
+        List<Position> bestPath = null;
+
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        Map<Long, Integer> gScore = new HashMap<>();
+        open.add(new Node(startCopy, 0, multiHeuristic(startCopy, bounds, extraMoves, settled), null));
+        gScore.put(bucketOf(startCopy), 0);
+
+        int expansions = 0;
+        while (!open.isEmpty() && expansions++ < 50000) {
+            if ((expansions & 0xff) == 0 && progress.pastDeadline()) break;
+            Node current = open.poll();
+            if (current.g > gScore.getOrDefault(bucketOf(current.pos), Integer.MAX_VALUE)) continue;
+            // the open set is ordered by a lower bound on the total, so nothing better is left
+            if (current.f >= bestTotal || current.f > maxMovesLimit) break;
+
+            for (int i = 0; i < k; i++) {
+                if (settled[i] || distance(current.pos, targets.get(i)) > STEP_SIZE / 2) continue;
+                settled[i] = true;
+                // same shape as aStarPath: lattice moves, then a snap onto the exact target
+                int moves = current.g == 0 ? 0 : current.g + 1;
+                int total = moves + extraMoves[i];
+                if (total < bestTotal && total <= maxMovesLimit && accept.test(i, moves)) {
+                    bestTotal = total;
+                    bestTarget = i;
+                    bestPath = reconstructPath(current);
+                    if (current.g > 0) bestPath.add(makePos(targets.get(i).getLng(), targets.get(i).getLat()));
+                }
+            }
+
+            int blocked = airspace.blockedDirections(current.pos.getLng(), current.pos.getLat());
+            for (int d = 0; d < ALLOWED_ANGLES.length; d++) {
+                if ((blocked & (1 << d)) != 0) continue;
+                Position neighbor = neighbour(current.pos, d);
+
+                long neighKey = bucketOf(neighbor);
+                int tentativeG = current.g + 1;
+                Integer prevG = gScore.get(neighKey);
+                if (prevG == null || tentativeG < prevG) {
+                    gScore.put(neighKey, tentativeG);
+                    double f = tentativeG + multiHeuristic(neighbor, bounds, extraMoves, settled);
+                    open.add(new Node(neighbor, tentativeG, f, current));
+                }
+            }
+        }
+
+        logger.debug("Multi-target search over {} targets: {} expansions, chose {}.", k, expansions, bestTarget);
+        return bestTarget < 0 ? null : new TargetPath(bestTarget, bestPath);
+    }
+
+    // smallest (bound to target + snap + extra) over the targets not reached yet
+    private double multiHeuristic(Position pos, LandmarkHeuristic.Bound[] bounds, int[] extraMoves, boolean[] settled) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < bounds.length; i++) {
+            if (settled[i]) continue;
+            best = Math.min(best, bounds[i].estimate(pos.getLng(), pos.getLat()) + 1 + extraMoves[i]);
+        }
+        return best;
+    }
+
+    /**
+     * Index of the first position on {@code path} inside a no-fly area of {@code airspace}, or -1.
+     */
+    int firstBlocked(List<Position> path, AirspaceSnapshot airspace) {
+        for (int i = 0; i < path.size(); i++) {
+            if (isBlocked(path.get(i), airspace)) return i;
+        }
+        return -1;
+    }
+
+    // the snapshot's polygons are prepared once, so this skips the per-call request objects and logging
+    private boolean isBlocked(Position position, AirspaceSnapshot airspace) {
+        return airspace.isNoFly(position.getLng(), position.getLat());
+    }
+
+    private static class Node implements Comparable<Node> {
+        Position pos;
+        int g; // moves so far
+        double f; // g + heuristic
+        Node parent;
+        Node(Position pos, int g, double f, Node parent) { this.pos = pos; this.g = g; this.f = f; this.parent = parent; }
+        // ties go to the deeper node so equal-f plateaus are not flooded breadth-first
+        @Override public int compareTo(Node o) { int c = Double.compare(this.f, o.f); return c != 0 ? c : Integer.compare(o.g, this.g); }
+    }
+
+    private List<Position> reconstructPath(Node last) {
+        LinkedList<Position> path = new LinkedList<>();
+        for (Node n = last; n != null; n = n.parent) {
+            path.addFirst(makePos(n.pos.getLng(), n.pos.getLat()));
+        }
+        return new ArrayList<>(path);
+    }
+
+    private long bucketOf(Position pos) {
+        long row = (long) Math.floor(pos.getLat() / NODE_BUCKET);
+        long col = (long) Math.floor(pos.getLng() / NODE_BUCKET);
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    // same position GeometricService.nextPosition gives for ALLOWED_ANGLES[d]
+    private Position neighbour(Position from, int d) {
+        return makePos(from.getLng() + NoFlyIndex.DIRECTION_LNG[d], from.getLat() + NoFlyIndex.DIRECTION_LAT[d]);
+    }
+
+    private double distance(Position a, Position b) {
+        return Math.hypot(a.getLng() - b.getLng(), a.getLat() - b.getLat());
+    }
+
+    private Position makePos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
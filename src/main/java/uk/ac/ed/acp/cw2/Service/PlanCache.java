@@ -0,0 +1,144 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of finished plans, keyed by a hash of the dispatch list and the ILP
+ * reference data it was planned against. Identical requests that arrive while a plan is
+ * still running wait for that plan instead of starting their own (single-flight).
+ */
+@Service
+public class PlanCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanCache.class);
+
+    // canonical form: fixed property order, so equal content always hashes the same
+    private static final JsonMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<CalcDeliveryResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public PlanCache(@Value("${ilp.cache.plan-entries:256}") int maxEntries,
+                     @Value("${ilp.cache.plan-ttl:5m}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // access-ordered, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PlanCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key for planning {@code dispatches} against {@code referenceData}. Dispatch order
+     * is kept: the greedy planner serves dispatches in request order, so it changes the plan.
+     */
+    public String keyOf(List<MedDispatchRec> dispatches, Object... referenceData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : referenceData) {
+                digest.update(CANONICAL.writeValueAsBytes(part));
+                digest.update((byte) 0);
+            }
+            digest.update(CANONICAL.writeValueAsBytes(dispatches));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public CalcDeliveryResponse getIfPresent(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (System.nanoTime() - entry.storedAt > ttlNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.response;
+        }
+    }
+
+    public void put(String key, CalcDeliveryResponse response) {
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Cached plan for {@code key}, joining a running computation for the same key or
+     * starting {@code planner} when there is none.
+     */
+    public CalcDeliveryResponse computeIfAbsent(String key, Supplier<CalcDeliveryResponse> planner) {
+        CalcDeliveryResponse cached = getIfPresent(key);
+        if (cached != null) {
+            logger.debug("Plan cache hit for {}.", key);
+            return cached;
+        }
+
+        CompletableFuture<CalcDeliveryResponse> mine = new CompletableFuture<>();
+        CompletableFuture<CalcDeliveryResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            logger.debug("Joining in-flight plan for {}.", key);
+            return join(running);
+        }
+
+        try {
+            CalcDeliveryResponse response = planner.get();
+            put(key, response);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static CalcDeliveryResponse join(CompletableFuture<CalcDeliveryResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private record Entry(CalcDeliveryResponse response, long storedAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded platform-thread pool for the CPU-heavy part of planning. Requests are served on
+ * virtual threads, and a virtual thread running a long search would hold on to its carrier;
+ * handing the work over here lets the virtual thread unmount while it waits.
+ */
+@Component
+public class PlanningCpuPool {
+
+    private final ExecutorService pool;
+
+    public PlanningCpuPool(@Value("${ilp.planner.cpu-threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(size, r -> {
+            Thread t = new Thread(r, "planner-cpu-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Runs {@code task} on the pool when called from a virtual thread, otherwise inline
+     * (platform callers such as the job executor are already bounded).
+     */
+    public <T> T call(Callable<T> task) {
+        if (!Thread.currentThread().isVirtual()) {
+            return callInline(task);
+        }
+        // the request's phase timings follow the work onto the pool thread
+        Future<T> future = pool.submit(RequestTimings.propagate(task));
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for planner");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static <T> T callInline(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException re) return re;
+        if (cause instanceof Error err) throw err;
+        return new CompletionException(cause);
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.PlanningJobStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Runs calcDeliveryPath batches as background jobs on the bounded planning executor, so
+ * large plans neither hold a Tomcat worker nor run into gateway timeouts. Finished jobs
+ * are kept for {@code ilp.jobs.result-ttl} and then evicted.
+ */
+@Service
+public class PlanningJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanningJobService.class);
+
+    private final DroneService droneService;
+    private final ThreadPoolTaskExecutor planningExecutor;
+    private final Duration resultTtl;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public PlanningJobService(DroneService droneService,
+                              @Qualifier("planningExecutor") ThreadPoolTaskExecutor planningExecutor,
+                              @Value("${ilp.jobs.result-ttl:10m}") Duration resultTtl) {
+        this.droneService = droneService;
+        this.planningExecutor = planningExecutor;
+        this.resultTtl = resultTtl;
+    }
+
+    public PlanningJobStatus submit(List<MedDispatchRec> dispatches) {
+        Job job = new Job(UUID.randomUUID().toString(), List.copyOf(dispatches));
+        jobs.put(job.id, job);
+        try {
+            job.future = planningExecutor.submit(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Planning queue is full, try again later");
+        }
+        return job.status();
+    }
+
+    public PlanningJobStatus getStatus(String jobId) {
+        return find(jobId).status();
+    }
+
+    public PlanningJobStatus cancel(String jobId) {
+        Job job = find(jobId);
+        if (job.state == PlanningJobStatus.State.QUEUED || job.state == PlanningJobStatus.State.RUNNING) {
+            job.progress.cancel();
+            Future<?> future = job.future;
+            if (future != null) future.cancel(true);
+            // a job cancelled before it ever started will not get to finish itself
+            if (job.state == PlanningJobStatus.State.QUEUED) job.finish(PlanningJobStatus.State.CANCELLED);
+        }
+        return job.status();
+    }
+
+    @Scheduled(fixedDelayString = "${ilp.jobs.evict-interval:60000}")
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job) {
+        if (!job.start()) return;
+        try {
+            job.result = droneService.calcDeliveryPath(job.dispatches, job.progress);
+            job.finish(PlanningJobStatus.State.DONE);
+        } catch (CancellationException e) {
+            job.finish(PlanningJobStatus.State.CANCELLED);
+        } catch (RuntimeException e) {
+            logger.warn("Planning job {} failed.", job.id, e);
+            job.error = e.getMessage();
+            job.finish(PlanningJobStatus.State.FAILED);
+        }
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired job " + jobId);
+        }
+        return job;
+    }
+
+    private static class Job {
+        final String id;
+        final List<MedDispatchRec> dispatches;
+        final PlanningProgress progress = new PlanningProgress();
+        final Instant submittedAt = Instant.now();
+        volatile Future<?> future;
+        volatile PlanningJobStatus.State state = PlanningJobStatus.State.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile CalcDeliveryResponse result;
+        volatile String error;
+
+        Job(String id, List<MedDispatchRec> dispatches) {
+            this.id = id;
+            this.dispatches = dispatches;
+        }
+
+        synchronized boolean start() {
+            if (finishedAt != null || progress.isCancelled()) return false;
+            state = PlanningJobStatus.State.RUNNING;
+            startedAt = Instant.now();
+            return true;
+        }
+
+        synchronized void finish(PlanningJobStatus.State finalState) {
+            if (finishedAt != null) return;
+            state = finalState;
+            finishedAt = Instant.now();
+        }
+
+        PlanningJobStatus status() {
+            PlanningJobStatus s = new PlanningJobStatus();
+            s.setJobId(id);
+            s.setState(state);
+            s.setTotalDispatches(dispatches.size());
+            s.setDispatchesAssigned(progress.getDispatchesAssigned());
+            s.setSearchesDone(progress.getSearchesDone());
+            s.setSubmittedAt(submittedAt);
+            s.setStartedAt(startedAt);
+            s.setFinishedAt(finishedAt);
+            s.setError(error);
+            if (state == PlanningJobStatus.State.DONE) s.setResult(result);
+            return s;
+        }
+    }
+}
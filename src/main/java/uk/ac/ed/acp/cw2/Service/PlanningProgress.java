@@ -0,0 +1,78 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress counters, a cancel flag and an optional deadline shared between a running plan
+ * and whoever is watching it. {@link #NONE} is used by synchronous callers that do not care.
+ */
+public class PlanningProgress {
+
+    public static final PlanningProgress NONE = new PlanningProgress();
+
+    private final AtomicInteger dispatchesAssigned = new AtomicInteger();
+    private final AtomicInteger searchesDone = new AtomicInteger();
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    public PlanningProgress() {
+        this.hasDeadline = false;
+        this.deadlineNanos = 0;
+    }
+
+    private PlanningProgress(Duration budget) {
+        this.hasDeadline = true;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+
+    /**
+     * Progress for an anytime plan: once {@code budget} has passed, the planner stops
+     * searching and returns the best complete plan found so far.
+     */
+    public static PlanningProgress withDeadline(Duration budget) {
+        return new PlanningProgress(budget);
+    }
+
+    // NONE is shared by every synchronous request, so it does not count anything
+    void dispatchAssigned() {
+        if (this != NONE) dispatchesAssigned.incrementAndGet();
+    }
+
+    void searchDone() {
+        if (this != NONE) searchesDone.incrementAndGet();
+    }
+
+    // called between searches, so a cancelled plan stops within one leg
+    void checkCancelled() {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Planning cancelled");
+        }
+    }
+
+    boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    boolean pastDeadline() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public void cancel() {
+        if (this != NONE) cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getDispatchesAssigned() {
+        return dispatchesAssigned.get();
+    }
+
+    public int getSearchesDone() {
+        return searchesDone.get();
+    }
+}
@@ -0,0 +1,111 @@
+package uk.ac.ed.acp.cw2.Service;
+
+/**
+ * One polygon prepared for repeated ray-cast tests: its edges unpacked into flat
+ * {@code double[]} columns, so the crossing count is a tight loop over primitives instead of
+ * getter calls on a {@code List<Position>}.
+ * <p>
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} the counting goes
+ * through {@link PolygonKernelVector}, several edges (or, for batches, several points) per
+ * instruction; otherwise, or with {@code -Dilp.geometry.scalar=true}, a plain loop does the
+ * same arithmetic. Both evaluate the exact expression of the original ray-cast, so the
+ * results are identical, boundary points included.
+ */
+public final class PolygonKernel {
+
+    static final boolean VECTORISED = vectorAvailable();
+
+    // per edge i (vertex i -> i+1): y1, y2, x1, and the x and y deltas
+    private final double[] y1;
+    private final double[] y2;
+    private final double[] x1;
+    private final double[] dx;
+    private final double[] dy;
+    private final int edges;
+    private final double minY;
+    private final double maxY;
+
+    private PolygonKernel(double[] xs, double[] ys) {
+        edges = xs.length - 1;
+        y1 = new double[edges];
+        y2 = new double[edges];
+        x1 = new double[edges];
+        dx = new double[edges];
+        dy = new double[edges];
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < edges; i++) {
+            y1[i] = ys[i];
+            y2[i] = ys[i + 1];
+            x1[i] = xs[i];
+            dx[i] = xs[i + 1] - xs[i];
+            dy[i] = ys[i + 1] - ys[i];
+        }
+        for (double y : ys) {
+            lo = Math.min(lo, y);
+            hi = Math.max(hi, y);
+        }
+        minY = lo;
+        maxY = hi;
+    }
+
+    /**
+     * Prepares a closed ring (first vertex repeated at the end) given as parallel lng/lat arrays.
+     */
+    public static PolygonKernel of(double[] xs, double[] ys) {
+        if (xs.length != ys.length || xs.length < 2) throw new IllegalArgumentException();
+        return new PolygonKernel(xs, ys);
+    }
+
+    public int getEdgeCount() {
+        return edges;
+    }
+
+    /**
+     * Edges crossed by a ray from the point towards +lng; odd means inside.
+     */
+    public int crossings(double px, double py) {
+        // every edge has both ends on one side of the ray, so nothing can cross
+        if (py < minY || py >= maxY) return 0;
+        if (VECTORISED && edges >= 2 * PolygonKernelVector.LANES) {
+            return PolygonKernelVector.crossings(y1, y2, x1, dx, dy, edges, px, py);
+        }
+        return scalarCrossings(px, py);
+    }
+
+    public boolean contains(double px, double py) {
+        return (crossings(px, py) & 1) == 1;
+    }
+
+    /**
+     * {@link #contains} for many points; {@code inside[i]} is set for ({@code px[i]}, {@code py[i]}).
+     */
+    public void containsAll(double[] px, double[] py, boolean[] inside) {
+        int n = px.length;
+        int done = 0;
+        if (VECTORISED && n >= PolygonKernelVector.LANES) {
+            int[] counts = new int[n];
+            done = PolygonKernelVector.crossingsMany(y1, y2, x1, dx, dy, edges, px, py, counts);
+            for (int i = 0; i < done; i++) inside[i] = (counts[i] & 1) == 1;
+        }
+        for (int i = done; i < n; i++) inside[i] = contains(px[i], py[i]);
+    }
+
+    int scalarCrossings(double px, double py) {
+        int count = 0;
+        for (int i = 0; i < edges; i++) {
+            if ((y1[i] > py) != (y2[i] > py) && px < dx[i] * (py - y1[i]) / dy[i] + x1[i]) count++;
+        }
+        return count;
+    }
+
+    private static boolean vectorAvailable() {
+        if (Boolean.getBoolean("ilp.geometry.scalar")) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return PolygonKernelVector.LANES >= 2;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API half of {@link PolygonKernel}. Only loaded once the incubator module is known to
+ * be present, so nothing else may refer to it directly.
+ */
+final class PolygonKernelVector {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+
+    private PolygonKernelVector() {
+    }
+
+    // one point against LANES edges at a time
+    static int crossings(double[] y1, double[] y2, double[] x1, double[] dx, double[] dy, int edges,
+                         double px, double py) {
+        int count = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(edges);
+        for (; i < bound; i += LANES) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, y1, i);
+            VectorMask<Double> straddles = a.compare(VectorOperators.GT, py)
+                    .eq(DoubleVector.fromArray(SPECIES, y2, i).compare(VectorOperators.GT, py))
+                    .not();
+            if (!straddles.anyTrue()) continue;
+            DoubleVector cross = DoubleVector.fromArray(SPECIES, dx, i)
+                    .mul(DoubleVector.broadcast(SPECIES, py).sub(a))
+                    .div(DoubleVector.fromArray(SPECIES, dy, i))
+                    .add(DoubleVector.fromArray(SPECIES, x1, i));
+            count += straddles.and(cross.compare(VectorOperators.GT, px)).trueCount();
+        }
+        for (; i < edges; i++) {
+            if ((y1[i] > py) != (y2[i] > py) && px < dx[i] * (py - y1[i]) / dy[i] + x1[i]) count++;
+        }
+        return count;
+    }
+
+    // LANES points against one edge at a time; returns how many leading points were counted
+    static int crossingsMany(double[] y1, double[] y2, double[] x1, double[] dx, double[] dy, int edges,
+                             double[] px, double[] py, int[] counts) {
+        int bound = SPECIES.loopBound(px.length);
+        double[] lane = new double[LANES];
+        for (int j = 0; j < bound; j += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, px, j);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, py, j);
+            DoubleVector acc = DoubleVector.zero(SPECIES);
+            for (int e = 0; e < edges; e++) {
+                VectorMask<Double> straddles = y.compare(VectorOperators.LT, y1[e])
+                        .eq(y.compare(VectorOperators.LT, y2[e]))
+                        .not();
+                if (!straddles.anyTrue()) continue;
+                // same operand order as the scalar loop: dx * (py - y1) / dy + x1
+                DoubleVector cross = DoubleVector.broadcast(SPECIES, dx[e])
+                        .mul(y.sub(y1[e]))
+                        .div(dy[e])
+                        .add(x1[e]);
+                acc = acc.add(1.0, straddles.and(x.compare(VectorOperators.LT, cross)));
+            }
+            acc.intoArray(lane, 0);
+            for (int k = 0; k < LANES; k++) counts[j + k] = (int) lane[k];
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,219 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Where the time of one request went, by phase (ILP fetch, snapshot, eligibility, searches,
+ * route selection, serialisation). Phases can nest, e.g. "astar" runs inside "route", so they
+ * do not add up to the total.
+ * <p>
+ * The timings of the request being served are bound to the current thread. Planning hops to
+ * the CPU pool and to parallel streams, so those hand-overs carry the binding along
+ * ({@link #propagate}); anything recorded on a thread with no binding is simply dropped, which
+ * keeps the warm-up, background jobs and the timing-disabled case free.
+ * <p>
+ * ILP resources the request had to take from a stale copy ({@link IlpResource}) are noted
+ * here too, so the response can say so. That is wanted even with timing off, so a request
+ * can be bound to {@link #staleOnly} timings, which keep the stale notes but no phases.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Calls and total time of one phase.
+     */
+    public record PhaseStat(long count, double millis) {
+    }
+
+    private static final class Phase {
+        final int order;
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        Phase(int order) {
+            this.order = order;
+        }
+    }
+
+    private final long startedNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOrder = new AtomicInteger();
+    private volatile long serializationStartNanos;
+    private volatile boolean timed = true;
+    // ILP resource -> age of the copy served, in seconds
+    private final Map<String, Long> staleData = new ConcurrentHashMap<>();
+
+    /**
+     * Timings that only collect stale-data notes until {@link #startTiming} is called.
+     */
+    public static RequestTimings staleOnly() {
+        RequestTimings timings = new RequestTimings();
+        timings.timed = false;
+        return timings;
+    }
+
+    public void startTiming() {
+        timed = true;
+    }
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds one call of {@code nanos} to the phase of the current request, if there is one.
+     */
+    public static void record(String phase, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) timings.add(phase, nanos);
+    }
+
+    /**
+     * Runs {@code work} as one call of {@code phase} of the current request.
+     */
+    public static <T> T time(String phase, Supplier<T> work) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) return work.get();
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timings.add(phase, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Notes that the current request was served a copy of an ILP resource this old because
+     * the service could not be reached.
+     */
+    public static void markStale(String resource, Duration age) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) timings.staleData.merge(resource, age.toSeconds(), Math::max);
+    }
+
+    /**
+     * {@code task}, run with the caller's timings bound on whichever thread picks it up.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) return task;
+        return () -> timings.callBound(task);
+    }
+
+    /**
+     * {@code fn}, run with the caller's timings bound on whichever thread picks it up.
+     */
+    public static <T, R> Function<T, R> propagate(Function<T, R> fn) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) return fn;
+        return arg -> {
+            RequestTimings previous = CURRENT.get();
+            CURRENT.set(timings);
+            try {
+                return fn.apply(arg);
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Binds these timings to the current thread until the returned scope is closed.
+     */
+    public Scope bind() {
+        RequestTimings previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> restore(previous);
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public void add(String phase, long nanos) {
+        if (!timed) return;
+        Phase p = phases.computeIfAbsent(phase, name -> new Phase(nextOrder.getAndIncrement()));
+        p.count.increment();
+        p.nanos.add(nanos);
+    }
+
+    /**
+     * Called just before the response body is written; the rest counts as serialisation.
+     */
+    public void markSerializationStart() {
+        serializationStartNanos = System.nanoTime();
+    }
+
+    public long serializationStartNanos() {
+        return serializationStartNanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startedNanos;
+    }
+
+    /**
+     * Phases in the order they were first recorded.
+     */
+    public Map<String, PhaseStat> snapshot() {
+        List<Map.Entry<String, Phase>> entries = new ArrayList<>(phases.entrySet());
+        entries.sort(Comparator.comparingInt(e -> e.getValue().order));
+        Map<String, PhaseStat> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Phase> e : entries) {
+            out.put(e.getKey(), new PhaseStat(e.getValue().count.sum(), e.getValue().nanos.sum() / 1e6));
+        }
+        return out;
+    }
+
+    /**
+     * The W3C Server-Timing header value, e.g. {@code ilp;dur=41.2, astar;dur=12.9;desc="18 calls", total;dur=80.3}.
+     */
+    public String toServerTiming(long totalNanos) {
+        StringJoiner header = new StringJoiner(", ");
+        for (Map.Entry<String, PhaseStat> e : snapshot().entrySet()) {
+            String entry = String.format(Locale.ROOT, "%s;dur=%.1f", e.getKey(), e.getValue().millis());
+            if (e.getValue().count() > 1) entry += ";desc=\"" + e.getValue().count() + " calls\"";
+            header.add(entry);
+        }
+        header.add(String.format(Locale.ROOT, "total;dur=%.1f", totalNanos / 1e6));
+        return header.toString();
+    }
+
+    /**
+     * The {@code ILP-Data-Stale} header value, e.g. {@code drones;age=42, restricted-areas;age=42},
+     * or null when all ILP data was current.
+     */
+    public String toStaleDataHeader() {
+        if (staleData.isEmpty()) return null;
+        StringJoiner header = new StringJoiner(", ");
+        new TreeMap<>(staleData).forEach((resource, age) -> header.add(resource + ";age=" + age));
+        return header.toString();
+    }
+
+    /**
+     * Takes over the stale-data notes of {@code other}, e.g. of one line of a streamed request.
+     */
+    public void addStaleData(RequestTimings other) {
+        other.staleData.forEach((resource, age) -> staleData.merge(resource, age, Math::max));
+    }
+
+    private <T> T callBound(Callable<T> task) throws Exception {
+        try (Scope ignored = bind()) {
+            return task.call();
+        }
+    }
+
+    private static void restore(RequestTimings previous) {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+}
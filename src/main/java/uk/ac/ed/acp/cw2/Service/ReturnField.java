@@ -0,0 +1,124 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Lattice distance (in moves) from every grid cell to one service point, flooded with a
+ * one-cell clearance around the no-fly polygons. Return legs are read off the field by
+ * gradient descent instead of a fresh A* search.
+ */
+public final class ReturnField {
+
+    private static final double[] HEADINGS = new double[16];
+    static {
+        for (int i = 0; i < 16; i++) HEADINGS[i] = Math.toRadians(i * 22.5);
+    }
+
+    private final LatticeGrid grid;
+    private final FloatBuffer dist;
+    private final Position target;
+    private final double stepSize;
+
+    ReturnField(LatticeGrid grid, FloatBuffer dist, Position target, double stepSize) {
+        this.grid = grid;
+        this.dist = dist;
+        this.target = target;
+        this.stepSize = stepSize;
+    }
+
+    public Position getTarget() {
+        return target;
+    }
+
+    /**
+     * Field distance from the given point to the service point in moves, or infinity when
+     * the point is off the grid, too close to an obstacle or beyond the field radius.
+     */
+    public double movesFrom(double lng, double lat) {
+        int cell = grid.cellOf(lng, lat);
+        return cell < 0 ? Double.POSITIVE_INFINITY : dist.get(cell);
+    }
+
+    /**
+     * Walks downhill from {@code start} one 16-angle move at a time, ending with the usual
+     * snap onto the exact service point coordinates. Returns null when the walk gets stuck
+     * or would exceed {@code maxMoves}; callers then fall back to a search.
+     */
+    public List<Position> descend(Position start, Predicate<Position> blocked, int maxMoves) {
+        List<Position> path = new ArrayList<>();
+        double lng = start.getLng(), lat = start.getLat();
+        path.add(makePos(lng, lat));
+        double score = score(lng, lat);
+        if (Double.isInfinite(score)) return null;
+
+        while (Math.hypot(target.getLng() - lng, target.getLat() - lat) > stepSize / 2) {
+            // one more move plus the closing snap must still fit
+            if (path.size() + 1 > maxMoves) return null;
+
+            double bestScore = score;
+            Position best = null;
+            for (double heading : HEADINGS) {
+                double nLng = lng + stepSize * Math.cos(heading);
+                double nLat = lat + stepSize * Math.sin(heading);
+                // the field is too coarse right at the target to lead the last move there
+                boolean arrives = Math.hypot(target.getLng() - nLng, target.getLat() - nLat) <= stepSize / 2;
+                double s = score(nLng, nLat);
+                if (!arrives && s >= bestScore) continue;
+                Position next = makePos(nLng, nLat);
+                if (blocked.test(next)) continue;
+                bestScore = s;
+                best = next;
+                if (arrives) break;
+            }
+            // every unblocked move goes uphill: a local minimum the coarse field cannot see past
+            if (best == null) return null;
+
+            path.add(best);
+            lng = best.getLng();
+            lat = best.getLat();
+            score = bestScore;
+        }
+
+        path.add(makePos(target.getLng(), target.getLat()));
+        return path;
+    }
+
+    // Field value interpolated between cell centres, plus a small straight-line term so the
+    // walk keeps moving towards the target inside a single cell.
+    private double score(double lng, double lat) {
+        double field = interpolate(lng, lat);
+        return field + 0.01 * Math.hypot(target.getLng() - lng, target.getLat() - lat) / stepSize;
+    }
+
+    private double interpolate(double lng, double lat) {
+        double cellSize = grid.getCellSize();
+        double fx = (lng - grid.getMinLng()) / cellSize - 0.5;
+        double fy = (lat - grid.getMinLat()) / cellSize - 0.5;
+        int c0 = (int) Math.floor(fx), r0 = (int) Math.floor(fy);
+        if (c0 < 0 || r0 < 0 || c0 + 1 >= grid.getCols() || r0 + 1 >= grid.getRows()) {
+            return movesFrom(lng, lat);
+        }
+
+        int cols = grid.getCols();
+        float v00 = dist.get(r0 * cols + c0), v10 = dist.get(r0 * cols + c0 + 1);
+        float v01 = dist.get((r0 + 1) * cols + c0), v11 = dist.get((r0 + 1) * cols + c0 + 1);
+        // next to a blocked cell the neighbours are infinite; use the cell itself there
+        if (Float.isInfinite(v00) || Float.isInfinite(v10) || Float.isInfinite(v01) || Float.isInfinite(v11)) {
+            return movesFrom(lng, lat);
+        }
+        double tx = fx - c0, ty = fy - r0;
+        return (v00 * (1 - tx) + v10 * tx) * (1 - ty) + (v01 * (1 - tx) + v11 * tx) * ty;
+    }
+
+    private static Position makePos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
@@ -0,0 +1,166 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds one {@link ReturnField} per service point for each airspace snapshot. Builds start
+ * in the background as soon as a snapshot is published; a planner asking for a field of a
+ * snapshot still being built waits for it. Fields larger than the mmap threshold live in a
+ * memory-mapped temp file instead of on the heap. Fields kept by the {@link WarmStartStore}
+ * for the same snapshot are reused instead of flooded again. Once a snapshot has been
+ * replaced its fields are dropped and not built again: a plan still running on it gets no
+ * field and searches its return legs instead.
+ */
+@Service
+public class ReturnFieldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReturnFieldService.class);
+
+    private static final double STEP_SIZE = 0.00015;
+    // one move per cell: coarse, but the one-cell clearance around obstacles makes it safe
+    private static final double CELL_SIZE = STEP_SIZE;
+    private static final int MAX_GRID_CELLS = 16_000_000;
+    // replaced snapshot versions remembered, so a late caller cannot start a build for them
+    private static final int MAX_RETIRED = 64;
+
+    private final int radiusMoves;
+    private final long mmapThresholdBytes;
+    private final WarmStartStore warmStart;
+    private final Map<String, CompletableFuture<Map<String, ReturnField>>> builds = new ConcurrentHashMap<>();
+    private final Set<String> retired = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_RETIRED;
+                }
+            }));
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "return-fields");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ReturnFieldService(@Value("${ilp.fields.radius-moves:250}") int radiusMoves,
+                              @Value("${ilp.fields.mmap-threshold-mb:64}") long mmapThresholdMb,
+                              WarmStartStore warmStart) {
+        this.radiusMoves = radiusMoves;
+        this.mmapThresholdBytes = mmapThresholdMb * 1024 * 1024;
+        this.warmStart = warmStart;
+    }
+
+    @EventListener
+    public void onAirspaceChanged(AirspaceChangedEvent event) {
+        AirspaceSnapshot current = event.current();
+        retired.remove(current.getVersion()); // the airspace may have changed back
+        if (event.previous() != null && !event.previous().getVersion().equals(current.getVersion())) {
+            retired.add(event.previous().getVersion());
+        }
+        // retired before they are dropped, so no late fieldFor can build them again in between
+        builds.keySet().removeIf(version -> {
+            if (version.equals(current.getVersion())) return false;
+            retired.add(version);
+            return true;
+        });
+        buildAsync(current);
+    }
+
+    /**
+     * Field towards {@code servicePoint} for this snapshot, or null when the service point
+     * has none (not in the snapshot, the airspace is too large to cover, or the snapshot has
+     * since been replaced).
+     */
+    public ReturnField fieldFor(AirspaceSnapshot airspace, Position servicePoint) {
+        CompletableFuture<Map<String, ReturnField>> build = buildAsync(airspace);
+        return build == null ? null : build.join().get(keyOf(servicePoint));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    private CompletableFuture<Map<String, ReturnField>> buildAsync(AirspaceSnapshot airspace) {
+        // null for a retired version: no entry is made and no build started
+        return builds.computeIfAbsent(airspace.getVersion(),
+                version -> retired.contains(version) ? null : CompletableFuture.supplyAsync(() -> build(airspace), builder));
+    }
+
+    private Map<String, ReturnField> build(AirspaceSnapshot airspace) {
+        long started = System.nanoTime();
+        Map<String, ReturnField> fields = new HashMap<>();
+        if (airspace.getServicePointLocations().isEmpty()) return fields;
+
+        LatticeGrid grid = LatticeGrid.covering(airspace.getNoFlyPolygons(), airspace.getServicePointLocations(),
+                CELL_SIZE, radiusMoves);
+        if (grid == null || grid.getCellCount() > MAX_GRID_CELLS) {
+            logger.warn("Return field grid too large; return legs will be searched instead.");
+            return fields;
+        }
+
+        long bytes = (long) grid.getCellCount() * Float.BYTES;
+        int reused = 0;
+        for (Position sp : airspace.getServicePointLocations()) {
+            FloatBuffer dist = warmStart.findField(airspace.getVersion(), sp, radiusMoves, grid.getCellCount());
+            if (dist != null) {
+                reused++;
+            } else {
+                dist = bytes > mmapThresholdBytes ? mapped(bytes) : FloatBuffer.allocate(grid.getCellCount());
+                grid.floodInto(dist, sp.getLng(), sp.getLat(), STEP_SIZE, true, radiusMoves);
+                warmStart.saveField(airspace.getVersion(), sp, radiusMoves, dist);
+            }
+            fields.put(keyOf(sp), new ReturnField(grid, dist, sp, STEP_SIZE));
+        }
+        logger.info("Return fields for snapshot {} ready in {} ms ({} service points, {} reused, {} cells each{}).",
+                airspace.getVersion(), (System.nanoTime() - started) / 1_000_000, fields.size(), reused,
+                grid.getCellCount(), bytes > mmapThresholdBytes ? ", memory-mapped" : "");
+        return fields;
+    }
+
+    private static FloatBuffer mapped(long bytes) {
+        try {
+            Path file = Files.createTempFile("return-field", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FloatBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+                // the mapping outlives both the channel and the directory entry
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit(); // platforms that refuse to delete a mapped file
+                }
+                return buffer;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String keyOf(Position p) {
+        return p.getLng() + "," + p.getLat();
+    }
+}
@@ -0,0 +1,61 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last few requests that took longer than {@code ilp.timing.slow-threshold}, with their
+ * phase breakdown, served at /actuator/slowrequests (newest first). Only slow requests take
+ * the lock, so the fast path costs one comparison.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestLog {
+
+    /**
+     * One slow request as reported by the endpoint.
+     */
+    public record Entry(Instant at, String method, String path, int status, double totalMillis,
+                        Map<String, RequestTimings.PhaseStat> phases) {
+    }
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final ArrayDeque<Entry> entries;
+
+    public SlowRequestLog(@Value("${ilp.timing.slow-threshold:500ms}") Duration threshold,
+                          @Value("${ilp.timing.ring-size:50}") int capacity) {
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = Math.max(1, capacity);
+        this.entries = new ArrayDeque<>(this.capacity);
+    }
+
+    public boolean isSlow(long totalNanos) {
+        return totalNanos >= thresholdNanos;
+    }
+
+    public void record(String method, String path, int status, long totalNanos, RequestTimings timings) {
+        if (!isSlow(totalNanos)) return;
+        Entry entry = new Entry(Instant.now(), method, path, status, totalNanos / 1e6, timings.snapshot());
+        synchronized (entries) {
+            if (entries.size() == capacity) entries.removeLast();
+            entries.addFirst(entry);
+        }
+    }
+
+    @ReadOperation
+    public List<Entry> recent() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.*;
+
+/**
+ * Visibility graph over the convex corners of the no-fly polygons, pushed outwards by a
+ * small clearance. Shortest routes in continuous space bend only at such corners, so a
+ * Dijkstra over a few hundred nodes gives the corridor a long leg has to follow.
+ */
+public final class VisibilityGraph {
+
+    private final List<double[][]> polygons;
+    private final double[] nodeLng;
+    private final double[] nodeLat;
+    private final List<int[]> adjacency;
+
+    private VisibilityGraph(List<double[][]> polygons, double[] nodeLng, double[] nodeLat, List<int[]> adjacency) {
+        this.polygons = polygons;
+        this.nodeLng = nodeLng;
+        this.nodeLat = nodeLat;
+        this.adjacency = adjacency;
+    }
+
+    public static VisibilityGraph build(List<double[][]> polygons, double clearance) {
+        List<double[]> nodes = new ArrayList<>();
+        for (double[][] poly : polygons) {
+            for (double[] corner : inflatedCorners(poly, clearance)) {
+                if (!insideAny(polygons, corner[0], corner[1])) nodes.add(corner);
+            }
+        }
+
+        int n = nodes.size();
+        double[] lng = new double[n];
+        double[] lat = new double[n];
+        for (int i = 0; i < n; i++) {
+            lng[i] = nodes.get(i)[0];
+            lat[i] = nodes.get(i)[1];
+        }
+
+        List<List<Integer>> edges = new ArrayList<>();
+        for (int i = 0; i < n; i++) edges.add(new ArrayList<>());
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (segmentClear(polygons, lng[i], lat[i], lng[j], lat[j])) {
+                    edges.get(i).add(j);
+                    edges.get(j).add(i);
+                }
+            }
+        }
+
+        List<int[]> adjacency = new ArrayList<>(n);
+        for (List<Integer> e : edges) adjacency.add(e.stream().mapToInt(Integer::intValue).toArray());
+        return new VisibilityGraph(polygons, lng, lat, adjacency);
+    }
+
+    // Convex corners only: a shortest path never bends around a reflex vertex
+    private static List<double[]> inflatedCorners(double[][] poly, double clearance) {
+        double[] xs = poly[0];
+        double[] ys = poly[1];
+        int m = xs.length - 1; // ring is closed, last == first
+        double area = 0;
+        for (int i = 0; i < m; i++) area += xs[i] * ys[i + 1] - xs[i + 1] * ys[i];
+        double orientation = Math.signum(area);
+
+        List<double[]> corners = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            int prev = (i + m - 1) % m, next = (i + 1) % m;
+            double ax = xs[i] - xs[prev], ay = ys[i] - ys[prev];
+            double bx = xs[next] - xs[i], by = ys[next] - ys[i];
+            double turn = ax * by - ay * bx;
+            if (turn * orientation <= 0) continue; // reflex or collinear
+
+            double la = Math.hypot(ax, ay), lb = Math.hypot(bx, by);
+            if (la == 0 || lb == 0) continue;
+            // outward normals of both edges; their sum points away from the corner
+            double nx = orientation * (ay / la + by / lb);
+            double ny = -orientation * (ax / la + bx / lb);
+            double len = Math.hypot(nx, ny);
+            if (len == 0) continue;
+            corners.add(new double[]{xs[i] + clearance * nx / len * Math.sqrt(2), ys[i] + clearance * ny / len * Math.sqrt(2)});
+        }
+        return corners;
+    }
+
+    /**
+     * Corner waypoints of the shortest clear route, including both endpoints, or null when
+     * the endpoints cannot see the graph (e.g. one of them is inside a polygon).
+     */
+    public List<Position> route(Position start, Position goal) {
+        double sx = start.getLng(), sy = start.getLat();
+        double gx = goal.getLng(), gy = goal.getLat();
+        if (segmentClear(polygons, sx, sy, gx, gy)) return List.of(start, goal);
+
+        int n = nodeLng.length;
+        int source = n, target = n + 1;
+        double[] dist = new double[n + 2];
+        int[] prev = new int[n + 2];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+
+        boolean[] seenFromGoal = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            seenFromGoal[i] = segmentClear(polygons, nodeLng[i], nodeLat[i], gx, gy);
+        }
+
+        PriorityQueue<double[]> open = new PriorityQueue<>(Comparator.comparingDouble(e -> e[0]));
+        dist[source] = 0;
+        for (int i = 0; i < n; i++) {
+            if (!segmentClear(polygons, sx, sy, nodeLng[i], nodeLat[i])) continue;
+            dist[i] = Math.hypot(nodeLng[i] - sx, nodeLat[i] - sy);
+            prev[i] = source;
+            open.add(new double[]{dist[i] + Math.hypot(gx - nodeLng[i], gy - nodeLat[i]), i});
+        }
+
+        while (!open.isEmpty()) {
+            int u = (int) open.poll()[1];
+            if (u == target) break;
+
+            if (seenFromGoal[u]) {
+                double d = dist[u] + Math.hypot(gx - nodeLng[u], gy - nodeLat[u]);
+                if (d < dist[target]) {
+                    dist[target] = d;
+                    prev[target] = u;
+                    open.add(new double[]{d, target});
+                }
+            }
+            for (int v : adjacency.get(u)) {
+                double d = dist[u] + Math.hypot(nodeLng[v] - nodeLng[u], nodeLat[v] - nodeLat[u]);
+                if (d < dist[v]) {
+                    dist[v] = d;
+                    prev[v] = u;
+                    open.add(new double[]{d + Math.hypot(gx - nodeLng[v], gy - nodeLat[v]), v});
+                }
+            }
+        }
+        if (prev[target] < 0) return null;
+
+        LinkedList<Position> route = new LinkedList<>();
+        route.addFirst(goal);
+        for (int v = prev[target]; v != source; v = prev[v]) {
+            Position p = new Position();
+            p.setLng(nodeLng[v]);
+            p.setLat(nodeLat[v]);
+            route.addFirst(p);
+        }
+        route.addFirst(start);
+        return new ArrayList<>(route);
+    }
+
+    public int getNodeCount() {
+        return nodeLng.length;
+    }
+
+    static boolean segmentClear(List<double[][]> polygons, double ax, double ay, double bx, double by) {
+        double minX = Math.min(ax, bx), maxX = Math.max(ax, bx);
+        double minY = Math.min(ay, by), maxY = Math.max(ay, by);
+        for (double[][] poly : polygons) {
+            double[] xs = poly[0];
+            double[] ys = poly[1];
+            for (int i = 0; i < xs.length - 1; i++) {
+                if (Math.max(xs[i], xs[i + 1]) < minX || Math.min(xs[i], xs[i + 1]) > maxX) continue;
+                if (Math.max(ys[i], ys[i + 1]) < minY || Math.min(ys[i], ys[i + 1]) > maxY) continue;
+                if (segmentsCross(ax, ay, bx, by, xs[i], ys[i], xs[i + 1], ys[i + 1])) return false;
+            }
+            // catches chords that enter and leave exactly through vertices
+            if (LatticeGrid.containsPoint(xs, ys, (ax + bx) / 2, (ay + by) / 2)) return false;
+        }
+        return true;
+    }
+
+    private static boolean segmentsCross(double ax, double ay, double bx, double by,
+                                         double cx, double cy, double dx, double dy) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static double cross(double ox, double oy, double ax, double ay, double bx, double by) {
+        return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+    }
+
+    private static boolean insideAny(List<double[][]> polygons, double x, double y) {
+        for (double[][] poly : polygons) {
+            if (LatticeGrid.containsPoint(poly[0], poly[1], x, y)) return true;
+        }
+        return false;
+    }
+}
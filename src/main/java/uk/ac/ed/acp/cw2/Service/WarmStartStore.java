@@ -0,0 +1,265 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps planner results across restarts: one append-only file per airspace snapshot
+ * version holding return fields and leg paths. A file is memory-mapped and read the first
+ * time its version is asked for, and files of any other version are deleted as soon as the
+ * service sees the airspace change. An empty directory setting turns the store off.
+ * <p>
+ * The files are trusted no more than any other input: a path record that is not a lattice
+ * path between its own endpoints is skipped on load, and a path is checked against the
+ * airspace's no-fly areas every time it is handed out.
+ */
+@Service
+public class WarmStartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmStartStore.class);
+
+    private static final int MAGIC = 0x494C5057; // "ILPW"
+    private static final int FORMAT = 1;
+    private static final byte FIELD = 1;
+    private static final byte PATH = 2;
+
+    private final Path dir;
+    private final int maxPaths;
+    private final Map<String, Log> logs = new ConcurrentHashMap<>();
+
+    public WarmStartStore(@Value("${ilp.warm-start.dir:}") String dir,
+                          @Value("${ilp.warm-start.max-paths:100000}") int maxPaths) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.maxPaths = maxPaths;
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * Stored field towards {@code servicePoint} for this version, or null. The buffer is a
+     * read-only view of the mapped file and must have {@code cellCount} cells.
+     */
+    public FloatBuffer findField(String version, Position servicePoint, int radiusMoves, int cellCount) {
+        Log log = logFor(version);
+        if (log == null) return null;
+        FloatBuffer field = log.fields.get(fieldKey(servicePoint, radiusMoves));
+        return field != null && field.capacity() == cellCount ? field.duplicate() : null;
+    }
+
+    public void saveField(String version, Position servicePoint, int radiusMoves, FloatBuffer dist) {
+        Log log = logFor(version);
+        if (log == null) return;
+        int cells = dist.capacity();
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 8 * 2 + 4 + 4 + cells * Float.BYTES);
+        record.put(FIELD).putInt(record.capacity() - 5);
+        record.putDouble(servicePoint.getLng()).putDouble(servicePoint.getLat()).putInt(radiusMoves).putInt(cells);
+        for (int i = 0; i < cells; i++) record.putFloat(dist.get(i));
+        log.append(record.flip());
+    }
+
+    /**
+     * Leg path stored in {@code airspace}'s file for exactly this start and goal, or null.
+     * A stored path that is not flyable in that airspace is dropped so it can be replaced.
+     */
+    public List<Position> findPath(AirspaceSnapshot airspace, Position start, Position goal) {
+        Log log = logFor(airspace.getVersion());
+        if (log == null) return null;
+        String key = pathKey(start, goal);
+        List<Position> path = log.paths.get(key);
+        if (path == null || LegPaths.isFlyable(path, start, goal, airspace)) return path;
+        logger.warn("Dropping stored path {} of snapshot {}: not a flyable leg.", key, airspace.getVersion());
+        log.paths.remove(key, path);
+        return null;
+    }
+
+    public void savePath(String version, Position start, Position goal, List<Position> path) {
+        Log log = logFor(version);
+        if (log == null || log.paths.size() >= maxPaths) return;
+        if (log.paths.putIfAbsent(pathKey(start, goal), List.copyOf(path)) != null) return;
+
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 8 * 4 + 4 + path.size() * 16);
+        record.put(PATH).putInt(record.capacity() - 5);
+        record.putDouble(start.getLng()).putDouble(start.getLat()).putDouble(goal.getLng()).putDouble(goal.getLat());
+        record.putInt(path.size());
+        for (Position p : path) record.putDouble(p.getLng()).putDouble(p.getLat());
+        log.append(record.flip());
+    }
+
+    // Results of other airspace versions can never be used again
+    @EventListener
+    public void onAirspaceChanged(AirspaceChangedEvent event) {
+        if (dir == null) return;
+        String current = event.current().getVersion();
+        logs.keySet().removeIf(version -> {
+            if (version.equals(current)) return false;
+            logs.get(version).close();
+            return true;
+        });
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "airspace-*.log")) {
+            for (Path file : files) {
+                if (!file.equals(fileOf(current))) Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not clear stale warm-start files in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logs.values().forEach(Log::close);
+        logs.clear();
+    }
+
+    private Log logFor(String version) {
+        if (dir == null) return null;
+        return logs.computeIfAbsent(version, this::open);
+    }
+
+    private Log open(String version) {
+        Log log = new Log();
+        Path file = fileOf(version);
+        try {
+            Files.createDirectories(dir);
+            long valid = Files.exists(file) ? load(file, version, log) : 0;
+            log.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (valid == 0) {
+                // new (or unusable) file: start over with a fresh header
+                byte[] tag = version.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + tag.length)
+                        .putInt(MAGIC).putInt(FORMAT).putInt(tag.length).put(tag);
+                log.channel.truncate(0);
+                log.channel.write(header.flip(), 0);
+                valid = header.capacity();
+            }
+            // drop a half-written record left by a crash
+            log.channel.truncate(valid);
+            log.channel.position(valid);
+        } catch (IOException e) {
+            logger.warn("Warm-start store unavailable for snapshot {}: {}", version, e.getMessage());
+            log.close();
+        }
+        return log;
+    }
+
+    // Reads every complete record; returns the offset just past the last one (0 = unusable file)
+    private long load(Path file, String version, Log log) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) return 0;
+                byte[] tag = new byte[buffer.getInt()];
+                buffer.get(tag);
+                if (!version.equals(new String(tag, StandardCharsets.UTF_8))) return 0;
+            } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+                return 0;
+            }
+
+            long valid = buffer.position();
+            while (buffer.remaining() >= 5) {
+                byte type = buffer.get();
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) break;
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                try {
+                    if (type == FIELD) readField(payload, log);
+                    else if (type == PATH) readPath(payload, log);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                    break; // corrupt record: keep what came before it
+                }
+                buffer.position(buffer.position() + length);
+                valid = buffer.position();
+            }
+            logger.info("Warm start: loaded {} fields and {} paths for snapshot {} ({} invalid paths skipped).",
+                    log.fields.size(), log.paths.size(), version, log.rejected);
+            return valid;
+        }
+    }
+
+    private static void readField(ByteBuffer payload, Log log) {
+        Position sp = pos(payload.getDouble(), payload.getDouble());
+        int radius = payload.getInt();
+        int cells = payload.getInt();
+        // a view straight into the mapped file, no copy onto the heap
+        FloatBuffer field = payload.slice(payload.position(), cells * Float.BYTES).asFloatBuffer().asReadOnlyBuffer();
+        log.fields.put(fieldKey(sp, radius), field);
+    }
+
+    private static void readPath(ByteBuffer payload, Log log) {
+        Position start = pos(payload.getDouble(), payload.getDouble());
+        Position goal = pos(payload.getDouble(), payload.getDouble());
+        int n = payload.getInt();
+        List<Position> path = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) path.add(pos(payload.getDouble(), payload.getDouble()));
+        // an intact record that still is not a path between its endpoints is skipped, not trusted
+        if (LegPaths.isWellFormed(path, start, goal)) log.paths.put(pathKey(start, goal), List.copyOf(path));
+        else log.rejected++;
+    }
+
+    private Path fileOf(String version) {
+        return dir.resolve("airspace-" + version + ".log");
+    }
+
+    private static String fieldKey(Position sp, int radiusMoves) {
+        return sp.getLng() + "," + sp.getLat() + "@" + radiusMoves;
+    }
+
+    private static String pathKey(Position start, Position goal) {
+        return start.getLng() + "," + start.getLat() + ">" + goal.getLng() + "," + goal.getLat();
+    }
+
+    private static Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+
+    // one version's file: what was loaded from it, plus the channel new records go to
+    private static final class Log {
+        final Map<String, FloatBuffer> fields = new ConcurrentHashMap<>();
+        final Map<String, List<Position>> paths = new ConcurrentHashMap<>();
+        int rejected;
+        FileChannel channel;
+
+        synchronized void append(ByteBuffer record) {
+            if (channel == null) return;
+            try {
+                while (record.hasRemaining()) channel.write(record);
+            } catch (IOException e) {
+                logger.warn("Warm-start append failed, keeping results in memory only: {}", e.getMessage());
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (channel == null) return;
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to flush
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package uk.ac.ed.acp.cw2.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Warms the service up before it takes traffic: loads the ILP reference data, builds the
+ * airspace indexes and return fields, then runs a batch of synthetic geometry, JSON and
+ * planning calls so the JIT has seen the hot paths. Until that finishes this indicator is
+ * OUT_OF_SERVICE, and it is part of the readiness group, so the readiness probe stays down.
+ * A failing step is logged and skipped; the probe always comes up in the end.
+ */
+@Component("warmUp")
+public class WarmUpRunner implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private final IlpClient ilpClient;
+    private final AirspaceService airspaceService;
+    private final ReturnFieldService returnFields;
+    private final GeometricService geometricService;
+    private final PathPlanner pathPlanner;
+    private final ObjectMapper objectMapper;
+    private final Timer warmUpTimer;
+    private final boolean enabled;
+    private final int iterations;
+    private final int plans;
+
+    private volatile boolean done;
+    private volatile Duration took;
+
+    public WarmUpRunner(IlpClient ilpClient, AirspaceService airspaceService, ReturnFieldService returnFields,
+                        GeometricService geometricService, PathPlanner pathPlanner, ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${ilp.warmup.enabled:true}") boolean enabled,
+                        @Value("${ilp.warmup.iterations:2000}") int iterations,
+                        @Value("${ilp.warmup.plans:16}") int plans) {
+        this.ilpClient = ilpClient;
+        this.airspaceService = airspaceService;
+        this.returnFields = returnFields;
+        this.geometricService = geometricService;
+        this.pathPlanner = pathPlanner;
+        this.objectMapper = objectMapper;
+        this.warmUpTimer = Timer.builder("ilp.warmup.duration")
+                .description("Time from application ready until the readiness probe came up")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.plans = plans;
+        this.done = !enabled;
+    }
+
+    // runs off the startup thread so liveness and the actuator answer while we warm up
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) return;
+        Thread.ofPlatform().name("warm-up").daemon().start(this::run);
+    }
+
+    @Override
+    public Health health() {
+        if (!done) return Health.outOfService().withDetail("warmUp", "running").build();
+        Health.Builder health = Health.up();
+        if (took != null) health.withDetail("tookMillis", took.toMillis());
+        return health.build();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Runs every warm-up step on the calling thread, then marks the service ready.
+     */
+    public void run() {
+        long started = System.nanoTime();
+        try {
+            AirspaceSnapshot airspace = step("reference data", this::loadAirspace);
+            step("geometry", () -> {
+                warmGeometry();
+                return null;
+            });
+            step("json", () -> {
+                warmJson();
+                return null;
+            });
+            if (airspace != null) {
+                step("planning", () -> {
+                    warmPlanning(airspace);
+                    return null;
+                });
+            }
+        } finally {
+            took = Duration.ofNanos(System.nanoTime() - started);
+            warmUpTimer.record(took);
+            done = true;
+            logger.info("Warm-up finished in {} ms; accepting traffic.", took.toMillis());
+        }
+    }
+
+    private <T> T step(String name, Supplier<T> body) {
+        long started = System.nanoTime();
+        try {
+            T result = body.get();
+            logger.debug("Warm-up step '{}' took {} ms.", name, (System.nanoTime() - started) / 1_000_000);
+            return result;
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up step '{}' failed, skipping it: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    // Same snapshot the first request would build, so its indexes and return fields are reused
+    private AirspaceSnapshot loadAirspace() {
+        RestrictedArea[] areas = ilpClient.getRestrictedAreas();
+        ServicePoint[] servicePoints = ilpClient.getAllServicePoints();
+        ilpClient.getAllDrones();
+        ilpClient.getAllDronesForServicePoints();
+        if (areas == null || servicePoints == null) return null;
+
+        AirspaceSnapshot airspace = airspaceService.snapshotOf(areas, servicePoints);
+        for (Position sp : airspace.getServicePointLocations()) returnFields.fieldFor(airspace, sp);
+        return airspace;
+    }
+
+    private void warmGeometry() {
+        Region square = new Region();
+        square.setName("warm-up");
+        square.setVertices(List.of(pos(-3.19, 55.94), pos(-3.18, 55.94), pos(-3.18, 55.95),
+                pos(-3.19, 55.95), pos(-3.19, 55.94)));
+        for (int i = 0; i < iterations; i++) {
+            Position p = pos(-3.19 + (i % 100) * 0.0002, 55.94 + (i / 100 % 100) * 0.0002);
+
+            DistanceRequest distance = new DistanceRequest();
+            distance.setPosition1(p);
+            distance.setPosition2(pos(-3.185, 55.945));
+            geometricService.calculateDistance(distance);
+            geometricService.isCloseTo(distance);
+
+            NextPositionRequest next = new NextPositionRequest();
+            next.setStart(p);
+            next.setAngle((i % 16) * 22.5);
+            geometricService.nextPosition(next);
+
+            IsInRegionRequest inRegion = new IsInRegionRequest();
+            inRegion.setPosition(p);
+            inRegion.setRegion(square);
+            geometricService.isInRegion(inRegion);
+        }
+    }
+
+    private void warmJson() {
+        try {
+            MedDispatchRec dispatch = new MedDispatchRec();
+            dispatch.setId(1);
+            dispatch.setDate("2025-12-22");
+            dispatch.setTime("09:00");
+            dispatch.setRequirements(new MedDispatchRequirements());
+            dispatch.setDelivery(pos(-3.1850, 55.9450));
+            String json = objectMapper.writeValueAsString(List.of(dispatch));
+
+            CalcDeliveryResponse response = new CalcDeliveryResponse();
+            response.setDronePaths(List.of(new CalcDeliveryResponse.DronePath(1,
+                    List.of(new CalcDeliveryResponse.DeliveryPath(1, List.of(pos(-3.19, 55.94), pos(-3.185, 55.945)))))));
+            for (int i = 0; i < iterations / 10; i++) {
+                objectMapper.readValue(json, new TypeReference<List<MedDispatchRec>>() {
+                });
+                objectMapper.writeValueAsString(response);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Short and long legs out of every service point, so both A* and the corridor planner run
+    private void warmPlanning(AirspaceSnapshot airspace) {
+        List<Position> targets = new ArrayList<>();
+        for (int i = 0; i < plans; i++) {
+            double angle = Math.toRadians(i * 360.0 / plans);
+            double moves = i % 2 == 0 ? 30 : 90;
+            targets.add(pos(Math.cos(angle) * moves * STEP_SIZE, Math.sin(angle) * moves * STEP_SIZE));
+        }
+        for (Position sp : airspace.getServicePointLocations()) {
+            List<Position> goals = new ArrayList<>();
+            for (Position offset : targets) {
+                Position goal = pos(sp.getLng() + offset.getLng(), sp.getLat() + offset.getLat());
+                goals.add(goal);
+                pathPlanner.plan(sp, goal, airspace, 2000);
+            }
+            pathPlanner.nearestTarget(sp, goals, new int[goals.size()], (i, moves) -> true, airspace, 2000,
+                    new PlanningProgress());
+        }
+    }
+
+    private static Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
@@ -0,0 +1,75 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import uk.ac.ed.acp.cw2.Service.AdmissionLanes;
+
+import java.io.IOException;
+
+/**
+ * Puts each /api request through its {@link AdmissionLanes} lane before anything else runs;
+ * when the lane is full the request gets 429 with a {@code Retry-After} straight away.
+ * Runs ahead of the timing filter so rejected requests cost next to nothing.
+ * Off with {@code ilp.lanes.enabled=false}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private final AdmissionLanes lanes;
+    private final boolean enabled;
+
+    public AdmissionFilter(AdmissionLanes lanes, @Value("${ilp.lanes.enabled:true}") boolean enabled) {
+        this.lanes = lanes;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        AdmissionLanes.Lane lane = lanes.laneFor(request.getRequestURI());
+        if (lane == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean admitted;
+        try {
+            admitted = lane.enter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            logger.debug("Rejected {} {}: {} lane is full", request.getMethod(), request.getRequestURI(), lane.getName());
+            long seconds = Math.max(1, (lane.getRetryAfter().toMillis() + 999) / 1000);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many " + lane.getName() + " requests, try again later");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            lane.exit();
+        }
+    }
+}
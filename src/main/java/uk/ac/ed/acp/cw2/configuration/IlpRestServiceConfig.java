@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.net.URL;
 
@@ -19,4 +20,17 @@ public class IlpRestServiceConfig {
         );
     }
 
+    // Background planning jobs get their own small pool so they never compete with request threads
+    @Bean
+    public ThreadPoolTaskExecutor planningExecutor(@Value("${ilp.jobs.threads:2}") int threads,
+                                                   @Value("${ilp.jobs.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("planning-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
 }
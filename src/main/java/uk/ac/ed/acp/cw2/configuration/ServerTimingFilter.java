@@ -0,0 +1,89 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+import uk.ac.ed.acp.cw2.Service.SlowRequestLog;
+
+import java.io.IOException;
+
+/**
+ * Times every /api request by phase and reports it in a {@code Server-Timing} header, so the
+ * breakdown shows up in the browser's network tab; slow ones also go to {@link SlowRequestLog}.
+ * The body is held back until the handler is done so the header can still include the
+ * serialisation time. The phases go into the timings {@link StaleDataFilter} bound for the
+ * request, if any. Off with {@code ilp.timing.enabled=false}.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequests;
+    private final boolean enabled;
+
+    public ServerTimingFilter(SlowRequestLog slowRequests, @Value("${ilp.timing.enabled:true}") boolean enabled) {
+        this.slowRequests = slowRequests;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // streamed NDJSON answers go out line by line, which the caching wrapper would hold back
+        return !enabled || !request.getRequestURI().startsWith("/api/")
+                || (request.getContentType() != null && request.getContentType().startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        RequestTimings bound = RequestTimings.current();
+        RequestTimings timings = bound != null ? bound : new RequestTimings();
+        timings.startTiming();
+        ContentCachingResponseWrapper wrapped = new ContentCachingResponseWrapper(response);
+        try (RequestTimings.Scope ignored = timings.bind()) {
+            chain.doFilter(request, wrapped);
+        } finally {
+            long serializationStart = timings.serializationStartNanos();
+            if (serializationStart != 0) timings.add("serialize", System.nanoTime() - serializationStart);
+            long total = timings.elapsedNanos();
+            if (!wrapped.isCommitted()) wrapped.setHeader("Server-Timing", timings.toServerTiming(total));
+            wrapped.copyBodyToResponse();
+            slowRequests.record(request.getMethod(), request.getRequestURI(), wrapped.getStatus(), total, timings);
+        }
+    }
+
+    /**
+     * Marks where the handler ended and message conversion starts.
+     */
+    @ControllerAdvice
+    static class SerializationMarker implements ResponseBodyAdvice<Object> {
+
+        @Override
+        public boolean supports(@NonNull MethodParameter returnType,
+                                @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType contentType,
+                                      @NonNull Class<? extends HttpMessageConverter<?>> converterType,
+                                      @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+            RequestTimings timings = RequestTimings.current();
+            if (timings != null) timings.markSerializationStart();
+            return body;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tells clients when an /api response was built from a stale copy of ILP data: an
+ * {@code ILP-Data-Stale} header naming the resources and their age in seconds. Always on,
+ * whatever {@code ilp.timing.enabled} says, and it does not buffer the body: the header is
+ * added the moment the response is about to commit, so streamed NDJSON answers get it too
+ * (for what was known by their first line; each live-plan line also says so itself).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class StaleDataFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "ILP-Data-Stale";
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        // the timing filter, when on, adds its phases to this same binding
+        RequestTimings timings = RequestTimings.staleOnly();
+        StaleHeaderResponse wrapped = new StaleHeaderResponse(response, timings);
+        try (RequestTimings.Scope ignored = timings.bind()) {
+            chain.doFilter(request, wrapped);
+        } finally {
+            wrapped.beforeCommit();
+        }
+    }
+
+    // Sets the header right before anything would commit the response
+    private static final class StaleHeaderResponse extends HttpServletResponseWrapper {
+
+        private final RequestTimings timings;
+        private ServletOutputStream out;
+        private PrintWriter writer;
+
+        StaleHeaderResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void beforeCommit() {
+            if (isCommitted()) return;
+            String stale = timings.toStaleDataHeader();
+            if (stale != null) setHeader(HEADER, stale);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (out == null) out = new CommitAwareStream(super.getOutputStream());
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                Charset charset = getCharacterEncoding() == null ? StandardCharsets.ISO_8859_1 : Charset.forName(getCharacterEncoding());
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            beforeCommit();
+            if (writer != null) writer.flush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            beforeCommit();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            beforeCommit();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            beforeCommit();
+            super.sendRedirect(location);
+        }
+
+        private final class CommitAwareStream extends ServletOutputStream {
+
+            private final ServletOutputStream delegate;
+
+            CommitAwareStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                beforeCommit();
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(@NonNull byte[] b, int off, int len) throws IOException {
+                beforeCommit();
+                delegate.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                beforeCommit();
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                beforeCommit();
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                delegate.setWriteListener(listener);
+            }
+        }
+    }
+}
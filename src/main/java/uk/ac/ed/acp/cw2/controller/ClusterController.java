@@ -0,0 +1,64 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.Service.AirspaceService;
+import uk.ac.ed.acp.cw2.Service.AirspaceSnapshot;
+import uk.ac.ed.acp.cw2.Service.ClusterService;
+import uk.ac.ed.acp.cw2.Service.LegPaths;
+import uk.ac.ed.acp.cw2.Service.WarmStartStore;
+import uk.ac.ed.acp.cw2.dto.ClusterPath;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.List;
+
+/**
+ * Leg paths this node owns in cluster mode, for its peers. Only paths of the airspace this
+ * node is currently planning in are served or kept; anything else is treated as a miss.
+ * Every call must carry the cluster secret, and a stored path has to be flyable in the
+ * current airspace before it is kept.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/internal/v1/cluster")
+public class ClusterController {
+
+    private final ClusterService clusterService;
+    private final AirspaceService airspaceService;
+    private final WarmStartStore warmStart;
+
+    @PostMapping("/paths/lookup")
+    public ResponseEntity<List<Position>> lookupPath(@RequestBody ClusterPath request,
+                                                     @RequestHeader(name = ClusterService.SECRET_HEADER, required = false) String secret) {
+        AirspaceSnapshot airspace = currentFor(request, secret);
+        if (airspace == null) return ResponseEntity.noContent().build();
+        List<Position> path = warmStart.findPath(airspace, request.getFrom(), request.getTo());
+        return path == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(path);
+    }
+
+    @PutMapping("/paths")
+    public ResponseEntity<Void> savePath(@RequestBody ClusterPath request,
+                                         @RequestHeader(name = ClusterService.SECRET_HEADER, required = false) String secret) {
+        AirspaceSnapshot airspace = currentFor(request, secret);
+        if (airspace == null) return ResponseEntity.noContent().build();
+        if (!LegPaths.isFlyable(request.getPath(), request.getFrom(), request.getTo(), airspace)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "path is not a flyable leg from 'from' to 'to'");
+        }
+        warmStart.savePath(request.getVersion(), request.getFrom(), request.getTo(), request.getPath());
+        return ResponseEntity.noContent().build();
+    }
+
+    // the snapshot the request's version names, if that is the one this node plans in; null otherwise
+    private AirspaceSnapshot currentFor(ClusterPath request, String secret) {
+        if (!clusterService.isEnabled()) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        if (!clusterService.isTrusted(secret)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (request.getFrom() == null || request.getTo() == null || request.getVersion() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "version, from and to are required");
+        }
+        AirspaceSnapshot current = airspaceService.getCurrent();
+        return current != null && current.getVersion().equals(request.getVersion()) ? current : null;
+    }
+}
@@ -1,14 +1,21 @@
 package uk.ac.ed.acp.cw2.controller;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.Service.ClusterService;
 import uk.ac.ed.acp.cw2.Service.DroneService;
 import uk.ac.ed.acp.cw2.Service.IlpClient;
+import uk.ac.ed.acp.cw2.Service.PlanningProgress;
 import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
 import uk.ac.ed.acp.cw2.dto.Drone;
 import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.Position;
 import uk.ac.ed.acp.cw2.dto.QueryAttribute;
+import uk.ac.ed.acp.cw2.dto.RouteRepairReport;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +25,7 @@ import java.util.Map;
 public class DroneController {
 
     private final DroneService droneService;
+    private final ClusterService clusterService;
 
     @GetMapping("/dronesWithCooling/{state}")
     public List<Integer> dronesWithCooling(@PathVariable boolean state) {
@@ -46,9 +54,33 @@ public class DroneController {
         return droneService.queryAvailableDrones(dispatches);
     }
 
+    // maxMillis turns on anytime planning: the best complete plan found within the budget is returned
     @PostMapping("/calcDeliveryPath")
-    public CalcDeliveryResponse calcDeliveryPath(@RequestBody List<MedDispatchRec> dispatchRequests) {
-        return droneService.calcDeliveryPath(dispatchRequests);
+    public CalcDeliveryResponse calcDeliveryPath(@RequestBody List<MedDispatchRec> dispatchRequests,
+                                                 @RequestParam(required = false) Long maxMillis,
+                                                 @RequestHeader(name = ClusterService.FORWARDED_HEADER, required = false) String forwardedBy,
+                                                 @RequestHeader(name = ClusterService.SECRET_HEADER, required = false) String clusterSecret) {
+        if (maxMillis == null) {
+            // another cluster node sent us a plan we own; without the secret it is an ordinary request
+            if (forwardedBy != null && clusterService.isTrusted(clusterSecret)) return droneService.calcDeliveryPathAsOwner(dispatchRequests);
+            return droneService.calcDeliveryPath(dispatchRequests);
+        }
+        if (maxMillis <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxMillis must be positive");
+        }
+        return droneService.calcDeliveryPath(dispatchRequests, PlanningProgress.withDeadline(Duration.ofMillis(maxMillis)));
+    }
+
+    @PostMapping("/activeRoutes/refresh")
+    public ResponseEntity<RouteRepairReport> refreshActiveRoutes() {
+        RouteRepairReport report = droneService.refreshActiveRoutes();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    // batch check against the ILP no-fly zones, one boolean per position in request order
+    @PostMapping("/isInRestrictedArea")
+    public List<Boolean> isInRestrictedArea(@RequestBody List<Position> positions) {
+        return droneService.isInRestrictedArea(positions);
     }
 
     @PostMapping("/calcDeliveryPathAsGeoJson")
@@ -11,6 +11,7 @@ import uk.ac.ed.acp.cw2.Service.GeometricService;
 import uk.ac.ed.acp.cw2.dto.*;
 
 import java.net.URL;
+import java.util.List;
 
 /**
  * Controller class that handles various HTTP endpoints for the application.
@@ -77,4 +78,14 @@ public class GeometricServiceController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    // one region, many positions: the region is prepared once and the points are tested together
+    @PostMapping("/isInRegion/batch")
+    public ResponseEntity<List<Boolean>> isInRegionBatch(@RequestBody IsInRegionBatchRequest request) {
+        try {
+            return ResponseEntity.ok(geometricService.isInRegionBatch(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
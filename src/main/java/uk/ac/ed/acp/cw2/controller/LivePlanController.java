@@ -0,0 +1,76 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.Service.DroneService;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.LivePlanUpdate;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Online variant of calcDeliveryPath: dispatches are streamed in as NDJSON, one per line, and
+ * each is inserted into a plan kept on the server. Every dispatch is answered with its own
+ * line as soon as it is in, so a client can keep one request open and feed it.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/livePlan")
+public class LivePlanController {
+
+    private final DroneService droneService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(path = "/dispatches", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void ingest(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        RequestTimings request = RequestTimings.current();
+        try (MappingIterator<MedDispatchRec> dispatches = objectMapper.readerFor(MedDispatchRec.class).readValues(body)) {
+            while (dispatches.hasNextValue()) {
+                MedDispatchRec dispatch = dispatches.nextValue();
+                // the stream may outlive a stale spell of the ILP service, so every line says what it used
+                RequestTimings line = RequestTimings.staleOnly();
+                LivePlanUpdate update;
+                try (RequestTimings.Scope ignored = line.bind()) {
+                    update = droneService.ingestDispatch(dispatch);
+                }
+                update.setIlpDataStale(line.toStaleDataHeader());
+                if (request != null) request.addStaleData(line);
+                out.write(objectMapper.writeValueAsBytes(update));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (JsonProcessingException e) {
+            // a broken line leaves the rest of the stream unreadable; what came before it stays in the plan
+            if (!response.isCommitted()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed dispatch: " + e.getOriginalMessage());
+            LivePlanUpdate error = new LivePlanUpdate();
+            error.setError("malformed dispatch: " + e.getOriginalMessage());
+            out.write(objectMapper.writeValueAsBytes(error));
+            out.write('\n');
+        }
+    }
+
+    @GetMapping
+    public CalcDeliveryResponse livePlan() {
+        return droneService.getLivePlan();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        droneService.clearLivePlan();
+        return ResponseEntity.noContent().build();
+    }
+}
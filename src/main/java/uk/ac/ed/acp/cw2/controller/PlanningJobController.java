@@ -0,0 +1,40 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.Service.PlanningJobService;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.PlanningJobStatus;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Background variant of calcDeliveryPath for batches too large to answer within one request.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/calcDeliveryPath/jobs")
+public class PlanningJobController {
+
+    private final PlanningJobService planningJobService;
+
+    @PostMapping
+    public ResponseEntity<PlanningJobStatus> submit(@RequestBody List<MedDispatchRec> dispatches) {
+        PlanningJobStatus status = planningJobService.submit(dispatches);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/calcDeliveryPath/jobs/" + status.getJobId()))
+                .body(status);
+    }
+
+    @GetMapping("/{jobId}")
+    public PlanningJobStatus status(@PathVariable String jobId) {
+        return planningJobService.getStatus(jobId);
+    }
+
+    @DeleteMapping("/{jobId}")
+    public PlanningJobStatus cancel(@PathVariable String jobId) {
+        return planningJobService.cancel(jobId);
+    }
+}
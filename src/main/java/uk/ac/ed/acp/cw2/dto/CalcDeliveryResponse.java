@@ -1,5 +1,6 @@
 package uk.ac.ed.acp.cw2.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,10 @@ public class CalcDeliveryResponse {
     private double totalCost;
     private int totalMoves;
     private List<DronePath> dronePaths;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Integer> undeliveredDispatchIds;  // dispatches no drone could take (or left when the deadline hit)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean deadlineReached;               // only set when a maxMillis budget was given
 
     @Data
     @NoArgsConstructor
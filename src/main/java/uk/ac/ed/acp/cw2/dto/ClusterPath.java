@@ -0,0 +1,26 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * A leg path as passed between cluster nodes: the airspace version it was planned in, its
+ * endpoints and, when it is being stored, the path itself.
+ */
+public class ClusterPath {
+    private String version;
+    private Position from;
+    private Position to;
+    private List<Position> path;
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public Position getFrom() { return from; }
+    public void setFrom(Position from) { this.from = from; }
+
+    public Position getTo() { return to; }
+    public void setTo(Position to) { this.to = to; }
+
+    public List<Position> getPath() { return path; }
+    public void setPath(List<Position> path) { this.path = path; }
+}
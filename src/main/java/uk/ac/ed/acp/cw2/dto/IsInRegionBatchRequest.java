@@ -0,0 +1,24 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+public class IsInRegionBatchRequest {
+    private List<Position> positions;
+    private Region region;
+
+    public List<Position> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<Position> positions) {
+        this.positions = positions;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    public void setRegion(Region region) {
+        this.region = region;
+    }
+}
@@ -0,0 +1,23 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * What ingesting one dispatch did to the live plan.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LivePlanUpdate {
+    private Integer dispatchId;
+    private Integer droneId;          // null when no drone could take it; it is kept as undelivered
+    private Integer servicePointId;
+    private Integer stopIndex;        // place in that drone's deliveries
+    private Integer addedMoves;
+    private Double addedCost;
+    private boolean replaced;         // the id was already in the plan and its old stop was taken out first
+    private boolean replanned;        // ILP data changed, so every live dispatch was inserted again
+    private double updateMillis;
+    private String error;             // the record was rejected and the plan left as it was
+    private String ilpDataStale;      // as the ILP-Data-Stale header, for the ILP data this line was planned with
+}
@@ -0,0 +1,24 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlanningJobStatus {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    private String jobId;
+    private State state;
+    private int totalDispatches;
+    private int dispatchesAssigned;
+    private int searchesDone;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;                 // only for FAILED
+    private CalcDeliveryResponse result;  // only for DONE
+}
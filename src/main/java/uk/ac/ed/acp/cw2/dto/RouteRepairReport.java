@@ -0,0 +1,17 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class RouteRepairReport {
+    private String fromVersion;
+    private String toVersion;
+    private List<Integer> changedDroneIds = new ArrayList<>(); // flight path was spliced around a new area
+    private List<Integer> failedDroneIds = new ArrayList<>();  // no repair within maxMoves, route dropped
+    private int unchangedRoutes;
+    private int legsRepaired;
+    private long repairMillis;
+}
@@ -0,0 +1,164 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.*;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActiveRouteRegistryTests {
+
+    private final GeometricService geometricService = new GeometricService();
+    private final AirspaceService airspaceService = new AirspaceService();
+    private final PathPlanner pathPlanner = new PathPlanner(geometricService);
+    private final ActiveRouteRegistry registry = new ActiveRouteRegistry(pathPlanner);
+
+    private final ServicePoint base = createServicePoint(1, -3.1900, 55.9445);
+
+    private static final String PLAN = "plan-a";
+
+    @Test
+    void testNewArea_RepairsOnlyAffectedDrone() {
+        AirspaceSnapshot openSky = airspaceService.snapshotOf(new RestrictedArea[0], new ServicePoint[]{base});
+        registry.register(PLAN, 0, plannedRoute(5, pos(-3.1840, 55.9445), openSky), 2000, openSky);
+        // drone 6 flies north, well clear of the new wall
+        registry.register(PLAN, 1, plannedRoute(6, pos(-3.1900, 55.9500), openSky), 2000, openSky);
+        List<Position> before = flatten(registry.getRoute(PLAN, 5).orElseThrow());
+
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        AirspaceSnapshot walled = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{base});
+        RouteRepairReport report = registry.repairAgainst(walled);
+
+        assertEquals(List.of(5), report.getChangedDroneIds());
+        assertTrue(report.getFailedDroneIds().isEmpty());
+        assertEquals(1, report.getUnchangedRoutes());
+
+        CalcDeliveryResponse.DronePath repaired = registry.getRoute(PLAN, 5).orElseThrow();
+        List<Position> outbound = repaired.getDeliveries().get(0).getFlightPath();
+        // the flown-in part before the wall is kept as it was
+        for (int i = 0; i < 10; i++) {
+            assertEquals(before.get(i).getLng(), outbound.get(i).getLng(), 1e-12);
+        }
+        for (CalcDeliveryResponse.DeliveryPath leg : repaired.getDeliveries()) {
+            for (Position p : leg.getFlightPath()) {
+                assertFalse(p.getLng() > -3.1871 && p.getLng() < -3.1869 && p.getLat() > 55.9400 && p.getLat() < 55.9490,
+                        "Repaired route entered the new area");
+            }
+        }
+        // still delivers and hovers over the original delivery point
+        Position hover = outbound.getLast();
+        assertEquals(-3.1840, hover.getLng(), 1e-12);
+        assertEquals(55.9445, hover.getLat(), 1e-12);
+        assertEquals(hover, outbound.get(outbound.size() - 2));
+
+        // nothing left to do once every route is at the new version
+        assertTrue(registry.repairAgainst(walled).getChangedDroneIds().isEmpty());
+    }
+
+    @Test
+    void testRepairExceedingMaxMoves_DropsRoute() {
+        AirspaceSnapshot openSky = airspaceService.snapshotOf(new RestrictedArea[0], new ServicePoint[]{base});
+        registry.register(PLAN, 0, plannedRoute(5, pos(-3.1840, 55.9445), openSky), 90, openSky);
+
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        AirspaceSnapshot walled = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{base});
+        RouteRepairReport report = registry.repairAgainst(walled);
+
+        assertEquals(List.of(5), report.getFailedDroneIds());
+        assertTrue(registry.getRoute(PLAN, 5).isEmpty());
+    }
+
+    @Test
+    void testSameAreasFetchedAgain_LeaveRoutesAlone() {
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        AirspaceSnapshot walled = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{base});
+        registry.register(PLAN, 0, plannedRoute(5, pos(-3.1840, 55.9445), walled), 2000, walled);
+        List<Position> before = flatten(registry.getRoute(PLAN, 5).orElseThrow());
+
+        // a new service point changes the version; the wall comes back as fresh, equal-valued objects
+        ServicePoint other = createServicePoint(2, -3.1800, 55.9500);
+        RestrictedArea refetched = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        AirspaceSnapshot next = airspaceService.snapshotOf(new RestrictedArea[]{refetched}, new ServicePoint[]{base, other});
+        RouteRepairReport report = registry.repairAgainst(next);
+
+        assertTrue(report.getChangedDroneIds().isEmpty());
+        assertTrue(report.getFailedDroneIds().isEmpty());
+        assertEquals(1, report.getUnchangedRoutes());
+        assertEquals(before.size(), flatten(registry.getRoute(PLAN, 5).orElseThrow()).size());
+    }
+
+    @Test
+    void testAirspaceEvent_RepairsEveryPlanOffTheCallingThread() {
+        AirspaceSnapshot openSky = airspaceService.snapshotOf(new RestrictedArea[0], new ServicePoint[]{base});
+        // the same drone flies in two plans; each keeps its own route
+        registry.register(PLAN, 0, plannedRoute(5, pos(-3.1840, 55.9445), openSky), 2000, openSky);
+        registry.register("plan-b", 0, plannedRoute(5, pos(-3.1900, 55.9500), openSky), 2000, openSky);
+        List<Position> north = flatten(registry.getRoute("plan-b", 5).orElseThrow());
+
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        AirspaceSnapshot walled = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{base});
+        registry.onAirspaceChanged(new AirspaceChangedEvent(openSky, walled));
+        RouteRepairReport report = registry.awaitRepairs();
+
+        assertEquals(walled.getVersion(), report.getToVersion());
+        assertEquals(List.of(5), report.getChangedDroneIds());
+        assertEquals(1, report.getUnchangedRoutes());
+        assertEquals(north.size(), flatten(registry.getRoute("plan-b", 5).orElseThrow()).size());
+        for (Position p : flatten(registry.getRoute(PLAN, 5).orElseThrow())) {
+            assertFalse(p.getLng() > -3.1871 && p.getLng() < -3.1869 && p.getLat() > 55.9400 && p.getLat() < 55.9490);
+        }
+
+        // what was handed out is a copy: changing it does not touch the registered route
+        CalcDeliveryResponse.DronePath handedOut = registry.getRoute(PLAN, 5).orElseThrow();
+        handedOut.getDeliveries().getFirst().getFlightPath().getFirst().setLng(0.0);
+        assertEquals(-3.1900, flatten(registry.getRoute(PLAN, 5).orElseThrow()).getFirst().getLng(), 1e-12);
+        registry.shutdown();
+    }
+
+    // out to the delivery, hover, and back to base, as calcDeliveryPath lays it out
+    private CalcDeliveryResponse.DronePath plannedRoute(int droneId, Position delivery, AirspaceSnapshot airspace) {
+        Position start = base.getLocation();
+        List<Position> out = new ArrayList<>(pathPlanner.plan(start, delivery, airspace, 2000));
+        out.add(out.getLast());
+        List<Position> back = pathPlanner.plan(delivery, start, airspace, 2000);
+        return new CalcDeliveryResponse.DronePath(droneId, List.of(
+                new CalcDeliveryResponse.DeliveryPath(1, out),
+                new CalcDeliveryResponse.DeliveryPath(null, back)));
+    }
+
+    private List<Position> flatten(CalcDeliveryResponse.DronePath dronePath) {
+        return dronePath.getDeliveries().get(0).getFlightPath();
+    }
+
+    private RestrictedArea createArea(int id, double minLng, double minLat, double maxLng, double maxLat) {
+        RestrictedArea ra = new RestrictedArea();
+        ra.setId(id);
+        ra.setName("area-" + id);
+        ra.setVertices(List.of(
+                pos(minLng, minLat),
+                pos(maxLng, minLat),
+                pos(maxLng, maxLat),
+                pos(minLng, maxLat),
+                pos(minLng, minLat)
+        ));
+        return ra;
+    }
+
+    private ServicePoint createServicePoint(int id, double lng, double lat) {
+        ServicePoint sp = new ServicePoint();
+        sp.setId(id);
+        sp.setName("sp-" + id);
+        sp.setLocation(pos(lng, lat));
+        return sp;
+    }
+
+    private Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ed.acp.cw2;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ed.acp.cw2.Service.AdmissionLanes;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "ilp.lanes.planning.concurrency=1",
+        "ilp.lanes.planning.queue-capacity=1",
+        "ilp.lanes.planning.max-wait=5s",
+        "ilp.lanes.planning.retry-after=3s"
+})
+@AutoConfigureMockMvc
+class AdmissionLanesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmissionLanes lanes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testFullPlanningLane_RejectsWith429WhileGeometryStillRuns() throws Exception {
+        AdmissionLanes.Lane planning = lanes.lane("planning");
+        assertSame(planning, lanes.laneFor("/api/v1/calcDeliveryPath"));
+        assertSame(lanes.lane("fleet"), lanes.laneFor("/api/v1/droneDetails/4"));
+        assertNull(lanes.laneFor("/api/v1/calcDeliveryPath/jobs"));
+
+        // one plan running and one waiting fill the lane
+        assertTrue(planning.enter());
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean queuedAdmitted = new AtomicBoolean();
+        Thread queued = Thread.ofVirtual().start(() -> {
+            waiting.countDown();
+            try {
+                queuedAdmitted.set(planning.enter());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            waiting.await();
+            while (planning.getQueued() == 0) Thread.onSpinWait();
+            assertEquals(1.0, meterRegistry.get("ilp.lane.queued").tag("lane", "planning").gauge().value());
+
+            mockMvc.perform(post("/api/v1/calcDeliveryPath").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "3"));
+            assertEquals(1.0, meterRegistry.get("ilp.lane.rejected").tag("lane", "planning").counter().count());
+
+            String body = "{\"position1\":{\"lng\":-3.19,\"lat\":55.94},\"position2\":{\"lng\":-3.18,\"lat\":55.94}}";
+            mockMvc.perform(post("/api/v1/distanceTo").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isOk());
+        } finally {
+            planning.exit();
+            queued.join();
+        }
+
+        // the queued request got the slot once it was released
+        assertTrue(queuedAdmitted.get());
+        assertEquals(1, planning.getActive());
+        planning.exit();
+        assertEquals(0, planning.getActive());
+    }
+}
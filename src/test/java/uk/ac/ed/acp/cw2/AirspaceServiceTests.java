@@ -0,0 +1,186 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.AirspaceService;
+import uk.ac.ed.acp.cw2.Service.AirspaceSnapshot;
+import uk.ac.ed.acp.cw2.Service.GeometricService;
+import uk.ac.ed.acp.cw2.Service.LandmarkHeuristic;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AirspaceServiceTests {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private final AirspaceService airspaceService = new AirspaceService();
+
+    @Test
+    void testLandmarkBound_SeesAroundWall() {
+        // Wall between start and goal: straight line says 40 moves, the detour is ~72
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        ServicePoint sp = createServicePoint(1, -3.1900, 55.9445);
+
+        AirspaceSnapshot snapshot = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+        LandmarkHeuristic.Bound bound = snapshot.heuristicToward(makePos(-3.1900, 55.9445), makePos(-3.1840, 55.9445));
+
+        double estimate = bound.estimate(-3.1900, 55.9445);
+        double detour = 2 * Math.hypot(0.0030, 0.0045) / STEP_SIZE;
+
+        assertTrue(estimate > 60, "Landmark bound should see the detour, got " + estimate);
+        assertTrue(estimate <= detour, "Landmark bound must stay admissible, got " + estimate);
+    }
+
+    @Test
+    void testLandmarkBound_WallThinnerThanAHopIsNoDetour() {
+        // Narrower than one move, so a single eastward move clears it (moves only check where they land)
+        RestrictedArea wall = createArea(1, -3.18700, 55.9400, -3.18690, 55.9490);
+        ServicePoint sp = createServicePoint(1, -3.1900, 55.9445);
+
+        AirspaceSnapshot snapshot = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+        Position start = makePos(-3.18702, 55.9445);
+        Position goal = makePos(-3.18702 + STEP_SIZE, 55.9445);
+        assertFalse(snapshot.isNoFly(start.getLng(), start.getLat()));
+        assertFalse(snapshot.isNoFly(goal.getLng(), goal.getLat()));
+
+        double estimate = snapshot.heuristicToward(start, goal).estimate(start.getLng(), start.getLat());
+
+        assertTrue(estimate <= 1 + 1e-6, "Landmark bound must stay admissible across a jumpable wall, got " + estimate);
+    }
+
+    @Test
+    void testLandmarkBound_OpenSkyIsEuclidean() {
+        ServicePoint sp = createServicePoint(1, -3.1900, 55.9445);
+
+        AirspaceSnapshot snapshot = airspaceService.snapshotOf(new RestrictedArea[0], new ServicePoint[]{sp});
+        LandmarkHeuristic.Bound bound = snapshot.heuristicToward(makePos(-3.1900, 55.9445), makePos(-3.1840, 55.9445));
+
+        assertEquals(40.0, bound.estimate(-3.1900, 55.9445), 1e-6);
+    }
+
+    @Test
+    void testSnapshotReusedUntilAreasChange() {
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        ServicePoint sp = createServicePoint(1, -3.1900, 55.9445);
+
+        AirspaceSnapshot first = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+        AirspaceSnapshot same = airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+        assertSame(first, same);
+
+        RestrictedArea moved = createArea(1, -3.1881, 55.9400, -3.1879, 55.9490);
+        AirspaceSnapshot changed = airspaceService.snapshotOf(new RestrictedArea[]{moved}, new ServicePoint[]{sp});
+        assertNotEquals(first.getVersion(), changed.getVersion());
+    }
+
+    @Test
+    void testBlockedDirections_MatchNextPositionAndIsInRegion() {
+        RestrictedArea wall = createArea(1, -3.1871, 55.9400, -3.1869, 55.9490);
+        RestrictedArea block = createArea(2, -3.1850, 55.9440, -3.1840, 55.9450);
+        ServicePoint sp = createServicePoint(1, -3.1900, 55.9445);
+        AirspaceSnapshot snapshot = airspaceService.snapshotOf(new RestrictedArea[]{wall, block}, new ServicePoint[]{sp});
+        GeometricService geometricService = new GeometricService();
+
+        int blockedMoves = 0;
+        // a sweep across the wall, the block and the open sky between them, off the lattice on purpose
+        for (double lng = -3.1880; lng < -3.1835; lng += 0.000073) {
+            for (double lat = 55.9436; lat < 55.9454; lat += 0.000041) {
+                int mask = snapshot.blockedDirections(lng, lat);
+                for (int d = 0; d < 16; d++) {
+                    NextPositionRequest next = new NextPositionRequest();
+                    next.setStart(makePos(lng, lat));
+                    next.setAngle(d * 22.5);
+                    Position neighbour = geometricService.nextPosition(next);
+                    boolean expected = false;
+                    for (RestrictedArea ra : List.of(wall, block)) {
+                        IsInRegionRequest inside = new IsInRegionRequest();
+                        inside.setPosition(neighbour);
+                        Region region = new Region();
+                        region.setVertices(ra.getVertices());
+                        inside.setRegion(region);
+                        expected |= geometricService.isInRegion(inside);
+                    }
+                    assertEquals(expected, (mask & (1 << d)) != 0, "direction " + d + " from " + lng + "," + lat);
+                    if (expected) blockedMoves++;
+                }
+            }
+        }
+        assertTrue(blockedMoves > 0);
+        // far from both areas nothing is blocked
+        assertEquals(0, snapshot.blockedDirections(-3.2000, 55.9600));
+    }
+
+    @Test
+    void testOccupancyBitmap_AgreesWithRayCast() {
+        // a slanted quadrilateral and a thin wall, so cells straddle diagonal and axis edges
+        RestrictedArea slanted = new RestrictedArea();
+        slanted.setId(1);
+        slanted.setName("slanted");
+        slanted.setVertices(List.of(makePos(-3.1900, 55.9420), makePos(-3.1860, 55.9410), makePos(-3.1845, 55.9450),
+                makePos(-3.1890, 55.9462), makePos(-3.1900, 55.9420)));
+        RestrictedArea wall = createArea(2, -3.1831, 55.9400, -3.1829, 55.9490);
+        ServicePoint sp = createServicePoint(1, -3.1950, 55.9445);
+        RestrictedArea[] areas = {slanted, wall};
+
+        AirspaceSnapshot snapshot = airspaceService.snapshotOf(areas, new ServicePoint[]{sp});
+        assertTrue(snapshot.rasterise());
+
+        List<Position> probes = new java.util.ArrayList<>();
+        java.util.Random random = new java.util.Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            probes.add(makePos(-3.1910 + random.nextDouble() * 0.0090, 55.9395 + random.nextDouble() * 0.0100));
+        }
+        // vertices and edge midpoints sit in straddling cells and must get the exact answer
+        for (RestrictedArea ra : areas) {
+            List<Position> v = ra.getVertices();
+            for (int i = 0; i < v.size() - 1; i++) {
+                probes.add(v.get(i));
+                probes.add(makePos((v.get(i).getLng() + v.get(i + 1).getLng()) / 2, (v.get(i).getLat() + v.get(i + 1).getLat()) / 2));
+            }
+        }
+
+        GeometricService geometricService = new GeometricService();
+        for (Position p : probes) {
+            boolean expected = false;
+            for (RestrictedArea ra : areas) {
+                IsInRegionRequest request = new IsInRegionRequest();
+                request.setPosition(p);
+                Region region = new Region();
+                region.setVertices(ra.getVertices());
+                request.setRegion(region);
+                expected |= geometricService.isInRegion(request);
+            }
+            assertEquals(expected, snapshot.isNoFly(p.getLng(), p.getLat()), "at " + p.getLng() + "," + p.getLat());
+        }
+    }
+
+    private RestrictedArea createArea(int id, double minLng, double minLat, double maxLng, double maxLat) {
+        RestrictedArea ra = new RestrictedArea();
+        ra.setId(id);
+        ra.setName("area-" + id);
+        ra.setVertices(List.of(
+                makePos(minLng, minLat),
+                makePos(maxLng, minLat),
+                makePos(maxLng, maxLat),
+                makePos(minLng, maxLat),
+                makePos(minLng, minLat)
+        ));
+        return ra;
+    }
+
+    private ServicePoint createServicePoint(int id, double lng, double lat) {
+        ServicePoint sp = new ServicePoint();
+        sp.setId(id);
+        sp.setName("sp-" + id);
+        sp.setLocation(makePos(lng, lat));
+        return sp;
+    }
+
+    private Position makePos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
@@ -0,0 +1,143 @@
+package uk.ac.ed.acp.cw2;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.ac.ed.acp.cw2.Service.AirspaceService;
+import uk.ac.ed.acp.cw2.Service.ClusterRing;
+import uk.ac.ed.acp.cw2.Service.ClusterService;
+import uk.ac.ed.acp.cw2.Service.PlanCache;
+import uk.ac.ed.acp.cw2.loadtest.Scenarios;
+import uk.ac.ed.acp.cw2.loadtest.StubIlpServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterTests {
+
+    private static final String SECRET = "test-cluster-secret";
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testRing_SpreadsKeysAndOnlyMovesTheKeysOfARemovedNode() {
+        List<String> nodes = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+        ClusterRing three = new ClusterRing(nodes, 128);
+        ClusterRing reordered = new ClusterRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 128);
+        ClusterRing two = new ClusterRing(nodes.subList(0, 2), 128);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < 9000; i++) {
+            String key = "plan-" + i;
+            String owner = three.ownerOf(key);
+            owned.merge(owner, 1, Integer::sum);
+            // every node lists its peers its own way
+            assertEquals(owner, reordered.ownerOf(key));
+            // c leaves: only c's keys move
+            if (!owner.equals("http://c:8080")) assertEquals(owner, two.ownerOf(key));
+        }
+        for (String node : nodes) {
+            assertTrue(owned.get(node) > 2000 && owned.get(node) < 4000, node + " owns " + owned.get(node));
+        }
+    }
+
+    @Test
+    void testTwoInstances_PlanEachBatchOnceAndFallBackWhenThePeerIsGone(@TempDir Path dirA, @TempDir Path dirB) throws Exception {
+        List<String> batches = Scenarios.generated(7, 200).stream()
+                .filter(r -> r.path().equals("/api/v1/calcDeliveryPath"))
+                .map(Scenarios.LoadRequest::body)
+                .limit(10)
+                .toList();
+
+        try (StubIlpServer ilp = StubIlpServer.generated(42, 0)) {
+            int portA = freePort();
+            int portB = freePort();
+            ConfigurableApplicationContext a = start(ilp, portA, portB, dirA);
+            ConfigurableApplicationContext b = start(ilp, portB, portA, dirB);
+            try {
+                // the same batch asked of either node gives one plan, computed by its owner only
+                List<JsonNode> plans = new ArrayList<>();
+                for (String batch : batches) {
+                    JsonNode viaA = post(portA, batch);
+                    assertEquals(viaA, post(portB, batch));
+                    plans.add(viaA);
+                }
+                assertEquals(batches.size(), a.getBean(PlanCache.class).size() + b.getBean(PlanCache.class).size());
+                assertTrue(remoteCalls(a, "path") + remoteCalls(b, "path") > 0, "legs are looked up on their owners");
+
+                // the internal endpoints need the secret, and even with it only take real lattice legs;
+                // asked of a node that has planned, as one that only forwarded has no airspace yet
+                boolean aPlanned = a.getBean(AirspaceService.class).getCurrent() != null;
+                int plannerPort = aPlanned ? portA : portB;
+                String version = (aPlanned ? a : b).getBean(AirspaceService.class).getCurrent().getVersion();
+                String teleport = "{\"version\":\"" + version + "\",\"from\":{\"lng\":-3.19,\"lat\":55.94},"
+                        + "\"to\":{\"lng\":-3.17,\"lat\":55.95},\"path\":[{\"lng\":-3.19,\"lat\":55.94},{\"lng\":-3.17,\"lat\":55.95}]}";
+                assertEquals(401, putPath(plannerPort, teleport, null));
+                assertEquals(401, putPath(plannerPort, teleport, "wrong"));
+                assertEquals(400, putPath(plannerPort, teleport, SECRET));
+
+                b.close();
+                // B's batches are planned on A now, with the same result
+                for (int i = 0; i < batches.size(); i++) assertEquals(plans.get(i), post(portA, batches.get(i)));
+                assertEquals(batches.size(), a.getBean(PlanCache.class).size());
+            } finally {
+                a.close();
+                b.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(StubIlpServer ilp, int port, int peerPort, Path warmStartDir) {
+        return SpringApplication.run(Application.class,
+                "--server.port=" + port,
+                "--ilp.service.url=" + ilp.url(),
+                "--ilp.warmup.enabled=false",
+                "--ilp.warm-start.dir=" + warmStartDir,
+                "--ilp.cluster.enabled=true",
+                "--ilp.cluster.secret=" + SECRET,
+                "--ilp.cluster.self=http://127.0.0.1:" + port,
+                "--ilp.cluster.peers=http://127.0.0.1:" + port + ",http://127.0.0.1:" + peerPort);
+    }
+
+    private JsonNode post(int port, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/calcDeliveryPath"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return mapper.readTree(response.body());
+    }
+
+    private int putPath(int port, String body, String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/internal/v1/cluster/paths"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body));
+        if (secret != null) request.header(ClusterService.SECRET_HEADER, secret);
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static double remoteCalls(ConfigurableApplicationContext context, String kind) {
+        return context.getBean(MeterRegistry.class).find("ilp.cluster.remote").tag("kind", kind).counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
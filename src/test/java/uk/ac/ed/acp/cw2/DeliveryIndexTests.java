@@ -0,0 +1,74 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.DeliveryIndex;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryIndexTests {
+
+    @Test
+    void testNearest_MatchesSortingEveryPointByDistance() {
+        Random random = new Random(45);
+        List<Position> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            points.add(pos(-3.20 + random.nextDouble() * 0.03, 55.93 + random.nextDouble() * 0.02));
+        }
+        // a few duplicates, which must come out in list order
+        points.add(pos(points.get(7).getLng(), points.get(7).getLat()));
+        points.add(pos(points.get(7).getLng(), points.get(7).getLat()));
+        DeliveryIndex index = DeliveryIndex.of(points);
+
+        // from inside the cloud and from well outside it
+        for (Position from : List.of(pos(-3.19, 55.94), points.get(7), pos(-3.30, 55.80))) {
+            List<Integer> expected = IntStream.range(0, points.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> distance(points.get(i), from)).thenComparingInt(i -> i))
+                    .toList();
+            assertEquals(expected, drain(index.nearest(from.getLng(), from.getLat())));
+        }
+    }
+
+    @Test
+    void testRemove_SkipsRemovedPointsAndReportsTheNextDistance() {
+        List<Position> points = List.of(pos(-3.190, 55.940), pos(-3.189, 55.940), pos(-3.180, 55.940), pos(-3.150, 55.940));
+        DeliveryIndex index = DeliveryIndex.of(points);
+
+        DeliveryIndex.Cursor cursor = index.nearest(-3.1901, 55.940);
+        assertEquals(0, cursor.next());
+        // removing a point the cursor has not reached yet hides it too
+        index.remove(1);
+        assertEquals(3, index.size());
+        assertEquals(distance(points.get(2), pos(-3.1901, 55.940)), cursor.peekDistance(), 1e-12);
+        assertEquals(List.of(2, 3), drain(cursor));
+        assertEquals(Double.POSITIVE_INFINITY, cursor.peekDistance());
+
+        index.remove(0);
+        index.remove(3);
+        assertEquals(List.of(2), drain(index.nearest(0, 0)));
+        assertFalse(DeliveryIndex.of(List.of()).nearest(-3.19, 55.94).hasNext());
+    }
+
+    private static List<Integer> drain(DeliveryIndex.Cursor cursor) {
+        List<Integer> order = new ArrayList<>();
+        while (cursor.hasNext()) order.add(cursor.next());
+        return order;
+    }
+
+    private static double distance(Position a, Position b) {
+        return Math.hypot(a.getLng() - b.getLng(), a.getLat() - b.getLat());
+    }
+
+    private static Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
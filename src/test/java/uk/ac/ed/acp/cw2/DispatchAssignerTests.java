@@ -0,0 +1,50 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.DispatchAssigner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchAssignerTests {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Test
+    void testAssign_FindsGlobalMinimumWhereGreedyWouldNot() {
+        DispatchAssigner assigner = new DispatchAssigner(1, 1);
+        // greedy gives dispatch 0 its cheapest slot and leaves dispatch 1 with the expensive one (101)
+        double[][] cost = {
+                {1, 2},
+                {1, 100}
+        };
+
+        assertArrayEquals(new int[]{1, 0}, assigner.assign(cost, 2));
+    }
+
+    @Test
+    void testAssign_InfeasiblePairsAreNeverUsed() {
+        DispatchAssigner assigner = new DispatchAssigner(1, 4);
+        double[][] cost = {
+                {INF, 5},
+                {INF, INF},
+                {3, INF}
+        };
+
+        assertArrayEquals(new int[]{1, -1, 0}, assigner.assign(cost, 2));
+    }
+
+    @Test
+    void testAssign_RespectsPerDroneLimit() {
+        DispatchAssigner assigner = new DispatchAssigner(1, 2);
+        double[][] cost = {{1, INF}, {1, INF}, {1, INF}, {4, 9}};
+
+        int[] slotOf = assigner.assign(cost, 2);
+
+        int onFirst = 0;
+        for (int s : slotOf) if (s == 0) onFirst++;
+        assertEquals(2, onFirst);
+        assertEquals(1, slotOf[3]);
+        assertTrue(new DispatchAssigner(24, 8).appliesTo(24));
+        assertFalse(new DispatchAssigner(0, 8).appliesTo(100));
+    }
+}
@@ -0,0 +1,124 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.DispatchPartitioner;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchPartitionerTests {
+
+    private final DispatchPartitioner partitioner = new DispatchPartitioner(400, Duration.ofHours(6), 2);
+
+    @AfterEach
+    void tearDown() {
+        partitioner.shutdown();
+    }
+
+    @Test
+    void testPartition_GroupsByNearestHubAndTimeSlot() {
+        List<Position> hubs = List.of(pos(-3.19, 55.94), pos(-3.17, 55.94));
+        List<MedDispatchRec> dispatches = List.of(
+                dispatch(1, -3.189, 55.941, "2025-12-22", "09:00"),
+                dispatch(2, -3.171, 55.941, "2025-12-22", "09:30"),
+                dispatch(3, -3.188, 55.939, "2025-12-22", "11:59"),
+                dispatch(4, -3.188, 55.939, "2025-12-22", "12:00"),
+                dispatch(5, -3.188, 55.939, "2025-12-23", "09:00"),
+                dispatch(6, -3.188, 55.939, null, null));
+
+        List<DispatchPartitioner.Partition> parts = partitioner.partition(dispatches, hubs);
+
+        assertEquals(List.of(List.of(1, 3), List.of(2), List.of(4), List.of(5), List.of(6)),
+                parts.stream().map(p -> p.dispatches().stream().map(MedDispatchRec::getId).toList()).toList());
+        assertEquals(1, parts.get(1).hub());
+        assertEquals("any", parts.get(4).slot());
+    }
+
+    @Test
+    void testPlanAll_KeepsPartitionOrderAndRunsInParallel() {
+        List<DispatchPartitioner.Partition> parts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) parts.add(new DispatchPartitioner.Partition(i, "any", List.of()));
+        // every region waits until a second one is being planned at the same time
+        CountDownLatch together = new CountDownLatch(2);
+
+        List<Integer> hubs = partitioner.planAll(parts, part -> {
+            together.countDown();
+            try {
+                assertTrue(together.await(10, TimeUnit.SECONDS), "regions were planned one after another");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return part.hub();
+        });
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), hubs);
+        assertTrue(partitioner.appliesTo(400));
+        assertFalse(partitioner.appliesTo(399));
+    }
+
+    @Test
+    void testPlanAll_RunsTheSlotsOfOneRegionInTurn() {
+        List<DispatchPartitioner.Partition> parts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) parts.add(new DispatchPartitioner.Partition(i % 2, "slot-" + i, List.of()));
+        AtomicIntegerArray busy = new AtomicIntegerArray(2);
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+        List<String> slots = partitioner.planAll(parts, part -> {
+            assertEquals(1, busy.incrementAndGet(part.hub()), "two slots of region " + part.hub() + " at once");
+            seen.add(part.slot());
+            LockSupport.parkNanos(2_000_000);
+            busy.decrementAndGet(part.hub());
+            return part.slot();
+        });
+
+        assertEquals(parts.stream().map(DispatchPartitioner.Partition::slot).toList(), slots);
+        // each region saw its own slots in partition order
+        for (int hub = 0; hub < 2; hub++) {
+            int h = hub;
+            assertEquals(parts.stream().filter(p -> p.hub() == h).map(DispatchPartitioner.Partition::slot).toList(),
+                    seen.stream().filter(slot -> Integer.parseInt(slot.substring(5)) % 2 == h).toList());
+        }
+    }
+
+    @Test
+    void testMapAll_KeepsOrderAndStaysOffTheCommonPool() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 64; i++) items.add(i);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        List<Integer> doubled = partitioner.mapAll(items, i -> {
+            threads.add(Thread.currentThread().getName());
+            return 2 * i;
+        });
+
+        assertEquals(items.stream().map(i -> 2 * i).toList(), doubled);
+        assertTrue(threads.stream().noneMatch(name -> name.contains("commonPool")), "ran on " + threads);
+    }
+
+    private MedDispatchRec dispatch(int id, double lng, double lat, String date, String time) {
+        MedDispatchRec m = new MedDispatchRec();
+        m.setId(id);
+        m.setDate(date);
+        m.setTime(time);
+        m.setDelivery(pos(lng, lat));
+        return m;
+    }
+
+    private Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
@@ -13,10 +13,15 @@ import org.springframework.web.server.ResponseStatusException;
 
 import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
 import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.LivePlanUpdate;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
 
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -413,4 +418,33 @@ class DroneControllerTests {
                 .andExpect(status().isOk())
                 .andExpect(content().json(expectedJson, false)); // No cast needed!
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLivePlanDispatches_AnswersEachNdjsonLineWithItsOwnLine() throws Exception {
+        when(droneService.ingestDispatch(any())).thenAnswer(call -> {
+            MedDispatchRec dispatch = call.getArgument(0);
+            LivePlanUpdate update = new LivePlanUpdate();
+            update.setDispatchId(dispatch.getId());
+            update.setDroneId(dispatch.getId() == 1 ? 5 : null);
+            return update;
+        });
+
+        String body = mockMvc.perform(post("/api/v1/livePlan/dispatches")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\":1,\"delivery\":{\"lng\":-3.19,\"lat\":55.94}}\n"
+                                + "{\"id\":2,\"delivery\":{\"lng\":-3.18,\"lat\":55.95}}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals(5, objectMapper.readTree(lines.get(0)).get("droneId").asInt());
+        assertFalse(objectMapper.readTree(lines.get(1)).has("droneId"));
+
+        mockMvc.perform(post("/api/v1/livePlan/dispatches")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\": 3, "))
+                .andExpect(status().isBadRequest());
+    }
+}
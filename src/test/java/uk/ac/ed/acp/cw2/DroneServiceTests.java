@@ -7,9 +7,11 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.web.server.ResponseStatusException;
 import uk.ac.ed.acp.cw2.Service.DroneService;
 import uk.ac.ed.acp.cw2.Service.IlpClient;
-import uk.ac.ed.acp.cw2.dto.Drone;
-import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.Service.PlanningProgress;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+import uk.ac.ed.acp.cw2.dto.*;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -119,4 +121,281 @@ class DroneServiceTests {
         // Use ResponseStatusException.class because that is exactly what Service throws
         assertThrows(ResponseStatusException.class, () -> droneService.getDroneDetails(999));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCalcDeliveryPath_RoutesAroundRestrictedArea() {
+        // DATA: one drone at a service point, a wall between it and the delivery
+        stubSingleDroneAirspace();
+
+        MedDispatchRec dispatch = createDispatch(101, -3.1840, 55.9445);
+
+        // ACTION
+        CalcDeliveryResponse response = droneService.calcDeliveryPath(List.of(dispatch));
+
+        // ASSERT: delivered, never inside the wall, ends back at base
+        assertEquals(1, response.getDronePaths().size());
+        List<CalcDeliveryResponse.DeliveryPath> deliveries = response.getDronePaths().get(0).getDeliveries();
+        assertEquals(101, deliveries.get(0).getDeliveryId());
+
+        List<Position> outbound = deliveries.get(0).getFlightPath();
+        Position last = outbound.get(outbound.size() - 1);
+        assertEquals(-3.1840, last.getLng(), 1e-9);
+        assertEquals(55.9445, last.getLat(), 1e-9);
+
+        for (CalcDeliveryResponse.DeliveryPath segment : deliveries) {
+            for (Position p : segment.getFlightPath()) {
+                boolean insideWall = p.getLng() > -3.1871 && p.getLng() < -3.1869
+                        && p.getLat() > 55.9400 && p.getLat() < 55.9490;
+                assertFalse(insideWall, "Flight path entered the restricted area");
+            }
+        }
+        assertNull(deliveries.get(deliveries.size() - 1).getDeliveryId());
+    }
+
+    @Test
+    void testCalcDeliveryPath_DeadlineReturnsPartialPlan() {
+        stubSingleDroneAirspace();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(201, -3.1840, 55.9445),
+                createDispatch(202, -3.1850, 55.9470),
+                createDispatch(203, -3.1830, 55.9420));
+
+        // a budget far too small for three detours around the wall
+        long started = System.nanoTime();
+        CalcDeliveryResponse response = droneService.calcDeliveryPath(dispatches,
+                PlanningProgress.withDeadline(Duration.ofMillis(1)));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(Boolean.TRUE, response.getDeadlineReached());
+        assertTrue(elapsedMillis < 5_000, "Deadline not honoured, took " + elapsedMillis + " ms");
+
+        // every dispatch is either in the plan or listed as undelivered
+        List<Integer> delivered = response.getDronePaths().stream()
+                .flatMap(dp -> dp.getDeliveries().stream())
+                .map(CalcDeliveryResponse.DeliveryPath::getDeliveryId)
+                .filter(java.util.Objects::nonNull)
+                .toList();
+        assertEquals(3, delivered.size() + response.getUndeliveredDispatchIds().size());
+        assertFalse(response.getUndeliveredDispatchIds().isEmpty());
+    }
+
+    @Test
+    void testCalcDeliveryPath_AmpleDeadlineMatchesOrBeatsGreedy() {
+        stubSingleDroneAirspace();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(301, -3.1890, 55.9460),
+                createDispatch(302, -3.1910, 55.9430));
+
+        CalcDeliveryResponse greedy = droneService.calcDeliveryPath(dispatches);
+        CalcDeliveryResponse anytime = droneService.calcDeliveryPath(dispatches,
+                PlanningProgress.withDeadline(Duration.ofSeconds(60)));
+
+        assertEquals(Boolean.FALSE, anytime.getDeadlineReached());
+        assertTrue(anytime.getUndeliveredDispatchIds().isEmpty());
+        assertTrue(anytime.getTotalMoves() <= greedy.getTotalMoves());
+    }
+
+    @Test
+    void testCalcDeliveryPath_LargeBatchGoesThroughAssignment() {
+        stubSingleDroneAirspace();
+        // a 6 x 4 block on the base side of the wall, above ilp.assignment.min-batch
+        List<MedDispatchRec> dispatches = new java.util.ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            dispatches.add(createDispatch(400 + i, -3.1925 + (i % 6) * 0.0008, 55.9430 + (i / 6) * 0.0008));
+        }
+
+        CalcDeliveryResponse response = droneService.calcDeliveryPath(dispatches);
+
+        // the per-drone limit only shapes the assignment; the greedy pass tops the tour up
+        assertTrue(response.getUndeliveredDispatchIds().isEmpty());
+        List<Integer> delivered = response.getDronePaths().stream()
+                .flatMap(dp -> dp.getDeliveries().stream())
+                .map(CalcDeliveryResponse.DeliveryPath::getDeliveryId)
+                .filter(java.util.Objects::nonNull)
+                .toList();
+        assertEquals(24, delivered.size());
+        assertEquals(24, new java.util.HashSet<>(delivered).size());
+    }
+
+    @Test
+    void testCalcDeliveryPath_PartitionedBatchGivesEachDroneOneTourWithinItsMoves() {
+        stubSingleDroneAirspace();
+        // above ilp.partition.min-batch: three time slots plus undated ones, all in one region
+        List<MedDispatchRec> dispatches = new java.util.ArrayList<>();
+        String[] times = {"03:00", "09:00", "15:00", null};
+        for (int i = 0; i < 400; i++) {
+            MedDispatchRec dispatch = createDispatch(1000 + i, -3.1930 + (i % 20) * 0.0002, 55.9420 + (i / 20) * 0.0003);
+            dispatch.setTime(times[i % times.length]);
+            if (dispatch.getTime() == null) dispatch.setDate(null);
+            dispatches.add(dispatch);
+        }
+
+        CalcDeliveryResponse response = droneService.calcDeliveryPath(dispatches);
+
+        // one drone at one service point: one flight, and every slot's share counts against its maxMoves
+        assertEquals(1, response.getDronePaths().size());
+        List<CalcDeliveryResponse.DeliveryPath> deliveries = response.getDronePaths().getFirst().getDeliveries();
+        int finalReturn = deliveries.getLast().getFlightPath().size() - 1;
+        assertTrue(response.getTotalMoves() - finalReturn <= 2000, "flew " + response.getTotalMoves());
+        assertFalse(response.getUndeliveredDispatchIds().isEmpty());
+        assertEquals(400, deliveries.size() - 1 + response.getUndeliveredDispatchIds().size());
+    }
+
+    @Test
+    void testIsInRestrictedArea_BatchAgainstTheWall() {
+        stubSingleDroneAirspace();
+
+        List<Boolean> inside = droneService.isInRestrictedArea(List.of(
+                pos(-3.1870, 55.9445),      // middle of the wall
+                pos(-3.1900, 55.9445),      // service point
+                pos(-3.18705, 55.94005),    // just inside a corner
+                pos(-3.1868, 55.9445)));    // just east of it
+
+        assertEquals(List.of(true, false, true, false), inside);
+    }
+
+    @Test
+    void testCalcDeliveryPath_IneligibleDispatchesNeverReachASearch() {
+        stubSingleDroneAirspace();
+
+        MedDispatchRec heated = createDispatch(700, -3.1905, 55.9450);
+        heated.getRequirements().setHeating(true);        // drone 5 has no heating
+        MedDispatchRec heavy = createDispatch(701, -3.1905, 55.9440);
+        heavy.getRequirements().setCapacity(50.0);         // capacity is 10
+        MedDispatchRec cheap = createDispatch(702, -3.1895, 55.9450);
+        cheap.getRequirements().setMaxCost(1.5);           // initial + final alone cost 2
+        MedDispatchRec far = createDispatch(703, -3.6900, 55.9445); // ~3300 moves back, maxMoves is 2000
+
+        RequestTimings timings = new RequestTimings();
+        CalcDeliveryResponse response;
+        try (RequestTimings.Scope ignored = timings.bind()) {
+            response = droneService.calcDeliveryPath(List.of(heated, heavy, cheap, far));
+        }
+
+        assertEquals(List.of(700, 701, 702, 703), response.getUndeliveredDispatchIds());
+        assertFalse(timings.snapshot().containsKey("astar"), "searched for " + timings.snapshot());
+    }
+
+    @Test
+    void testLivePlan_InsertsStreamedDispatchesIntoTheRunningTour() {
+        stubSingleDroneAirspace();
+        droneService.clearLivePlan();
+
+        for (MedDispatchRec dispatch : List.of(createDispatch(801, -3.1890, 55.9460),
+                createDispatch(802, -3.1910, 55.9430), createDispatch(803, -3.1895, 55.9450))) {
+            LivePlanUpdate update = droneService.ingestDispatch(dispatch);
+            assertNull(update.getError());
+            assertEquals(5, update.getDroneId());
+            assertTrue(update.getAddedMoves() > 0);
+        }
+
+        // moved: its old stop is taken out and it goes in where it is cheapest now
+        LivePlanUpdate moved = droneService.ingestDispatch(createDispatch(801, -3.1905, 55.9455));
+        assertTrue(moved.isReplaced());
+        MedDispatchRec heated = createDispatch(804, -3.1905, 55.9450);
+        heated.getRequirements().setHeating(true);
+        assertNull(droneService.ingestDispatch(heated).getDroneId());
+        assertNotNull(droneService.ingestDispatch(new MedDispatchRec()).getError());
+
+        CalcDeliveryResponse plan = droneService.getLivePlan();
+        assertEquals(List.of(804), plan.getUndeliveredDispatchIds());
+        assertEquals(1, plan.getDronePaths().size());
+        List<CalcDeliveryResponse.DeliveryPath> deliveries = plan.getDronePaths().get(0).getDeliveries();
+        assertEquals(java.util.Set.of(801, 802, 803), deliveries.stream()
+                .map(CalcDeliveryResponse.DeliveryPath::getDeliveryId).filter(java.util.Objects::nonNull)
+                .collect(java.util.stream.Collectors.toSet()));
+
+        // one unbroken flight out of and back to the service point, through the moved delivery
+        Position at = pos(-3.1900, 55.9445);
+        for (CalcDeliveryResponse.DeliveryPath segment : deliveries) {
+            List<Position> flight = segment.getFlightPath();
+            assertEquals(at.getLng(), flight.getFirst().getLng(), 1e-9);
+            assertEquals(at.getLat(), flight.getFirst().getLat(), 1e-9);
+            at = flight.getLast();
+            if (Integer.valueOf(801).equals(segment.getDeliveryId())) assertEquals(-3.1905, at.getLng(), 1e-9);
+        }
+        assertEquals(-3.1900, at.getLng(), 1e-9);
+        assertEquals(55.9445, at.getLat(), 1e-9);
+        droneService.clearLivePlan();
+    }
+
+    @Test
+    void testLivePlan_DispatchOnAnExistingLegFitsANearlyFullTour() {
+        stubSingleDroneAirspace();
+        // room for the 40-move trip west and about 30 moves more
+        ilpClient.getAllDrones()[0].getCapability().setMaxMoves(112);
+        droneService.clearLivePlan();
+
+        assertEquals(5, droneService.ingestDispatch(createDispatch(811, -3.1960, 55.9445)).getDroneId());
+
+        // halfway along that leg: its own trip would be ~41 moves, but flown on the way it adds ~21
+        LivePlanUpdate onTheWay = droneService.ingestDispatch(createDispatch(812, -3.1930, 55.9445));
+        assertEquals(5, onTheWay.getDroneId());
+        assertEquals(0, onTheWay.getStopIndex());
+        assertTrue(onTheWay.getAddedMoves() < 30, "added " + onTheWay.getAddedMoves());
+        assertTrue(droneService.getLivePlan().getUndeliveredDispatchIds().isEmpty());
+        droneService.clearLivePlan();
+    }
+
+    // Shared fixture: service point 1 at (-3.1900, 55.9445), drone 5 available all week,
+    // and a thin wall at lng -3.1870 spanning 55.9400..55.9490
+    private void stubSingleDroneAirspace() {
+        Drone drone = createMockDrone(5, true);
+        drone.getCapability().setCapacity(10);
+        drone.getCapability().setMaxMoves(2000);
+        drone.getCapability().setCostPerMove(0.01);
+        drone.getCapability().setCostInitial(1.0);
+        drone.getCapability().setCostFinal(1.0);
+
+        ServicePoint sp = new ServicePoint();
+        sp.setId(1);
+        sp.setName("base");
+        sp.setLocation(pos(-3.1900, 55.9445));
+
+        List<DroneForServicePoint.DroneAvailability.Availability> slots = new java.util.ArrayList<>();
+        for (String day : List.of("MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY")) {
+            DroneForServicePoint.DroneAvailability.Availability slot = new DroneForServicePoint.DroneAvailability.Availability();
+            slot.setDayOfWeek(day);
+            slot.setFrom("00:00:00");
+            slot.setUntil("23:59:59");
+            slots.add(slot);
+        }
+        DroneForServicePoint.DroneAvailability availability = new DroneForServicePoint.DroneAvailability();
+        availability.setId(5);
+        availability.setAvailability(slots);
+        DroneForServicePoint dfsp = new DroneForServicePoint();
+        dfsp.setServicePointId(1);
+        dfsp.setDrones(List.of(availability));
+
+        RestrictedArea wall = new RestrictedArea();
+        wall.setId(1);
+        wall.setName("wall");
+        wall.setVertices(List.of(pos(-3.1871, 55.9400), pos(-3.1869, 55.9400), pos(-3.1869, 55.9490),
+                pos(-3.1871, 55.9490), pos(-3.1871, 55.9400)));
+
+        when(ilpClient.getAllDrones()).thenReturn(new Drone[]{drone});
+        when(ilpClient.getAllServicePoints()).thenReturn(new ServicePoint[]{sp});
+        when(ilpClient.getAllDronesForServicePoints()).thenReturn(new DroneForServicePoint[]{dfsp});
+        when(ilpClient.getRestrictedAreas()).thenReturn(new RestrictedArea[]{wall});
+    }
+
+    private MedDispatchRec createDispatch(int id, double lng, double lat) {
+        MedDispatchRequirements requirements = new MedDispatchRequirements();
+        requirements.setCapacity(1.0);
+
+        MedDispatchRec dispatch = new MedDispatchRec();
+        dispatch.setId(id);
+        dispatch.setDate("2025-12-22");
+        dispatch.setTime("09:00");
+        dispatch.setRequirements(requirements);
+        dispatch.setDelivery(pos(lng, lat));
+        return dispatch;
+    }
+
+    private Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
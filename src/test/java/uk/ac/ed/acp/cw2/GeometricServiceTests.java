@@ -148,6 +148,39 @@ class GeometricServiceTests {
         assertFalse(geometricService.isInRegion(req));
     }
 
+    @Test
+    void testIsInRegionBatch_MatchesSingleCalls() {
+        Region region = createSampleRegion();
+        List<Position> points = List.of(
+                geometricService.makePos(-3.188, 55.944),
+                geometricService.makePos(-3.200, 55.944),
+                geometricService.makePos(-3.192473, 55.946233),
+                geometricService.makePos(-3.185, 55.943),
+                geometricService.makePos(-3.184, 55.943));
+
+        IsInRegionBatchRequest batch = new IsInRegionBatchRequest();
+        batch.setRegion(region);
+        batch.setPositions(points);
+        List<Boolean> result = geometricService.isInRegionBatch(batch);
+
+        assertEquals(List.of(true, false, false, true, false), result);
+        for (int i = 0; i < points.size(); i++) {
+            IsInRegionRequest single = new IsInRegionRequest();
+            single.setPosition(points.get(i));
+            single.setRegion(region);
+            assertEquals(geometricService.isInRegion(single), result.get(i));
+        }
+    }
+
+    @Test
+    void testIsInRegionBatch_InvalidPositionRejectsBatch() {
+        IsInRegionBatchRequest batch = new IsInRegionBatchRequest();
+        batch.setRegion(createSampleRegion());
+        batch.setPositions(List.of(geometricService.makePos(-3.188, 55.944), geometricService.makePos(-3.188, 95.0)));
+
+        assertThrows(IllegalArgumentException.class, () -> geometricService.isInRegionBatch(batch));
+    }
+
     private Region createSampleRegion() {
         Region region = new Region();
         region.setVertices(List.of(
@@ -0,0 +1,117 @@
+package uk.ac.ed.acp.cw2;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.Service.IlpClient;
+import uk.ac.ed.acp.cw2.Service.IlpTransport;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IlpClientTests {
+
+    private static final byte[] DRONES = "[{\"id\":1,\"name\":\"one\"}]".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicLong delayMillis = new AtomicLong();
+    private final AtomicInteger hits = new AtomicInteger();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                hits.incrementAndGet();
+                if (delayMillis.get() > 0) Thread.sleep(delayMillis.get());
+                byte[] body = status.get() == 200 ? DRONES : new byte[0];
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status.get(), body.length == 0 ? -1 : body.length);
+                if (body.length > 0) {
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void testFailingIlp_ServesLastGoodCopyAsStaleAndOpensTheCircuit() {
+        IlpClient client = client(Duration.ZERO, Duration.ZERO);
+        assertEquals(1, client.getAllDrones()[0].getId());
+        assertEquals(1, hits.get());
+
+        status.set(500);
+        RequestTimings timings = new RequestTimings();
+        try (RequestTimings.Scope ignored = timings.bind()) {
+            // both attempts fail, which is the threshold: the circuit opens and the old copy is served
+            assertEquals(1, client.getAllDrones()[0].getId());
+            assertEquals(3, hits.get());
+            // open: the ILP is not called at all
+            assertEquals(1, client.getAllDrones()[0].getId());
+            assertEquals(3, hits.get());
+        }
+        assertEquals("drones;age=0", timings.toStaleDataHeader());
+
+        // nothing to fall back on: the error comes through, then the open circuit answers 503
+        assertThrows(HttpServerErrorException.class, client::getRestrictedAreas);
+        ResponseStatusException open = assertThrows(ResponseStatusException.class, client::getRestrictedAreas);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, open.getStatusCode());
+        assertEquals(5, hits.get());
+    }
+
+    @Test
+    void testSlowIlp_IsCutOffByTheReadTimeoutOrServedWhileRevalidating() throws Exception {
+        IlpClient bounded = client(Duration.ZERO, Duration.ZERO);
+        IlpClient revalidating = client(Duration.ZERO, Duration.ofHours(1));
+        bounded.getAllDrones();
+        revalidating.getAllDrones();
+
+        delayMillis.set(3000);
+        RequestTimings timings = new RequestTimings();
+        long started = System.nanoTime();
+        try (RequestTimings.Scope ignored = timings.bind()) {
+            // the stale copy is handed out at once while one background call refreshes it
+            assertEquals(1, revalidating.getAllDrones()[0].getId());
+            assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1000);
+            assertNull(timings.toStaleDataHeader());
+
+            // two attempts of at most 300 ms each, then the stale copy
+            assertEquals(1, bounded.getAllDrones()[0].getId());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 2500);
+        assertEquals("drones;age=0", timings.toStaleDataHeader());
+    }
+
+    private IlpClient client(Duration freshFor, Duration staleWhileRevalidate) {
+        IlpTransport transport = new IlpTransport("http://127.0.0.1:" + server.getAddress().getPort() + "/", "",
+                Duration.ofSeconds(1), Duration.ofMillis(300), 0.95, Duration.ofMillis(250), Duration.ofMillis(20),
+                new SimpleMeterRegistry());
+        return new IlpClient(transport, 1, Duration.ofMillis(1), 2, Duration.ofHours(1), freshFor, staleWhileRevalidate);
+    }
+}
@@ -0,0 +1,136 @@
+package uk.ac.ed.acp.cw2;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.IlpTransport;
+import uk.ac.ed.acp.cw2.dto.Drone;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IlpTransportTests {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void stopStubs() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    @Test
+    void testSlowPrimary_IsHedgedToTheMirrorAfterItsP95() {
+        Stub primary = stub(1);
+        Stub mirror = stub(2);
+        IlpTransport transport = transport(primary, mirror, Duration.ofMillis(250));
+
+        // a fast primary answers, and teaches the transport its latency
+        for (int i = 0; i < 25; i++) assertEquals(1, transport.get("/drones", Drone[].class)[0].getId());
+        double hedges = meterRegistry.get("ilp.client.hedges").counter().count();
+        double wins = meterRegistry.get("ilp.client.hedge.wins").counter().count();
+        assertTrue(hedges < 5, "a fast primary is hardly ever hedged");
+
+        // now it stalls: the mirror gets the request once the (floored) p95 has passed, and wins
+        primary.delayMillis.set(2000);
+        long started = System.nanoTime();
+        assertEquals(2, transport.get("/drones", Drone[].class)[0].getId());
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1000);
+        assertEquals(hedges + 1, meterRegistry.get("ilp.client.hedges").counter().count());
+        assertEquals(wins + 1, meterRegistry.get("ilp.client.hedge.wins").counter().count());
+        assertEquals(26.0, meterRegistry.get("ilp.client.requests").counter().count());
+    }
+
+    @Test
+    void testRecordPaths_ShareOneLatencyWindowPerEndpoint() {
+        Stub primary = stub(1);
+        Stub mirror = stub(2);
+        IlpTransport transport = transport(primary, mirror, Duration.ofSeconds(3));
+
+        // every dispatch id is a new path, but they all teach the same endpoint's latency
+        for (int i = 0; i < 25; i++) transport.get("/api/v1/dispatches/" + i, Drone[].class);
+
+        // so a stalled fetch of an id never seen before is hedged on that p95, not the 3 s initial delay
+        primary.delayMillis.set(2000);
+        long started = System.nanoTime();
+        assertEquals(2, transport.get("/api/v1/dispatches/999", Drone[].class)[0].getId());
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1000);
+    }
+
+    @Test
+    void testFailingPrimary_FailsOverWithoutWaitingAndAllFailingEndpointsThrow() {
+        Stub primary = stub(1);
+        Stub mirror = stub(2);
+        IlpTransport transport = transport(primary, mirror, Duration.ofSeconds(3));
+        assertEquals(1, transport.get("/drones", Drone[].class)[0].getId());
+
+        primary.status.set(500);
+        long started = System.nanoTime();
+        assertEquals(2, transport.get("/drones", Drone[].class)[0].getId());
+        // well inside the 3 s hedge delay
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1500);
+
+        mirror.status.set(503);
+        assertThrows(RuntimeException.class, () -> transport.get("/drones", Drone[].class));
+        assertEquals(3, primary.hits.get());
+        assertEquals(2, mirror.hits.get());
+    }
+
+    private IlpTransport transport(Stub primary, Stub mirror, Duration initialDelay) {
+        return new IlpTransport(primary.url(), " " + mirror.url() + "/ ,", Duration.ofSeconds(1), Duration.ofSeconds(5),
+                0.95, initialDelay, Duration.ofMillis(20), meterRegistry);
+    }
+
+    // answers every path with one drone of the given id, after delayMillis
+    private Stub stub(int droneId) {
+        try {
+            Stub stub = new Stub(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0));
+            byte[] body = ("[{\"id\":" + droneId + "}]").getBytes(StandardCharsets.UTF_8);
+            stub.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            stub.server.createContext("/", exchange -> {
+                try (exchange) {
+                    stub.hits.incrementAndGet();
+                    if (stub.delayMillis.get() > 0) Thread.sleep(stub.delayMillis.get());
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    if (stub.status.get() != 200) {
+                        exchange.sendResponseHeaders(stub.status.get(), -1);
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            stub.server.start();
+            servers.add(stub.server);
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Stub(HttpServer server, AtomicInteger status, AtomicLong delayMillis, AtomicInteger hits) {
+        Stub(HttpServer server) {
+            this(server, new AtomicInteger(200), new AtomicLong(), new AtomicInteger());
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.AirspaceService;
+import uk.ac.ed.acp.cw2.Service.AirspaceSnapshot;
+import uk.ac.ed.acp.cw2.Service.GeometricService;
+import uk.ac.ed.acp.cw2.Service.LegPaths;
+import uk.ac.ed.acp.cw2.Service.PathPlanner;
+import uk.ac.ed.acp.cw2.Service.PlanningProgress;
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPlannerTests {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private final GeometricService geometricService = new GeometricService();
+    private final AirspaceService airspaceService = new AirspaceService();
+    private final PathPlanner pathPlanner = new PathPlanner(geometricService);
+
+    @Test
+    void testLongLeg_FollowsCorridorAroundWall() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.2000, 55.9445);
+        Position goal = geometricService.makePos(-3.1700, 55.9445);
+
+        List<Position> path = pathPlanner.plan(start, goal, airspace, 2000);
+
+        assertNotNull(path);
+        assertValidFlight(path, goal);
+        // corner-to-corner detour is ~209 moves; allow for lattice stretch
+        assertTrue(path.size() - 1 <= 220, "Corridor path too long: " + (path.size() - 1));
+    }
+
+    @Test
+    void testLongLeg_NeverExceedsItsMoveLimit() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.2000, 55.9445);
+        Position goal = geometricService.makePos(-3.1700, 55.9445);
+        int moves = pathPlanner.plan(start, goal, airspace, 2000).size() - 1;
+
+        // around the tightest budgets, including the closing snap onto the goal
+        for (int limit = moves - 3; limit <= moves + 1; limit++) {
+            List<Position> path = pathPlanner.plan(start, goal, airspace, limit);
+            if (path != null) assertTrue(path.size() - 1 <= limit, (path.size() - 1) + " moves for a limit of " + limit);
+        }
+        assertNotNull(pathPlanner.plan(start, goal, airspace, moves));
+    }
+
+    @Test
+    void testShortLeg_StillReachesGoal() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.1900, 55.9445);
+        Position goal = geometricService.makePos(-3.1840, 55.9445);
+
+        List<Position> path = pathPlanner.plan(start, goal, airspace, 2000);
+
+        assertNotNull(path);
+        assertValidFlight(path, goal);
+    }
+
+    @Test
+    void testRespectsMoveLimit() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.2000, 55.9445);
+        Position goal = geometricService.makePos(-3.1700, 55.9445);
+
+        assertNull(pathPlanner.plan(start, goal, airspace, 150));
+    }
+
+    @Test
+    void testNearestTarget_PicksCheapestTotalInOneSearch() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.1900, 55.9445);
+        // the far side of the wall is closer in a straight line but needs the long detour
+        List<Position> targets = List.of(
+                geometricService.makePos(-3.1860, 55.9445),
+                geometricService.makePos(-3.1900, 55.9480),
+                geometricService.makePos(-3.1930, 55.9445));
+
+        PathPlanner.TargetPath best = pathPlanner.nearestTarget(start, targets, new int[]{0, 0, 0},
+                (i, moves) -> true, airspace, 2000, new PlanningProgress());
+
+        assertNotNull(best);
+        assertEquals(2, best.target());
+        assertValidFlight(best.path(), targets.get(2));
+    }
+
+    @Test
+    void testNearestTarget_ExtraMovesAndFilterChangeChoice() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.1900, 55.9445);
+        List<Position> targets = List.of(
+                geometricService.makePos(-3.1900, 55.9480),
+                geometricService.makePos(-3.1930, 55.9445));
+
+        // a long way home from the nearer target tips the balance
+        PathPlanner.TargetPath best = pathPlanner.nearestTarget(start, targets, new int[]{0, 50},
+                (i, moves) -> true, airspace, 2000, new PlanningProgress());
+        assertEquals(0, best.target());
+
+        // rejecting that target leaves the other one
+        best = pathPlanner.nearestTarget(start, targets, new int[]{0, 50},
+                (i, moves) -> i != 0, airspace, 2000, new PlanningProgress());
+        assertEquals(1, best.target());
+
+        // neither target fits a move limit that is too tight
+        assertNull(pathPlanner.nearestTarget(start, targets, new int[]{0, 50},
+                (i, moves) -> true, airspace, 10, new PlanningProgress()));
+    }
+
+    @Test
+    void testLegPaths_AcceptPlannerOutputAndRejectAnythingElse() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position start = geometricService.makePos(-3.2000, 55.9445);
+        Position goal = geometricService.makePos(-3.1700, 55.9445);
+        Position near = geometricService.makePos(-3.1900, 55.9460);
+
+        List<Position> corridor = pathPlanner.plan(start, goal, airspace, 2000);
+        List<Position> lattice = pathPlanner.plan(start, near, airspace, 2000);
+        assertTrue(LegPaths.isFlyable(corridor, start, goal, airspace));
+        assertTrue(LegPaths.isFlyable(lattice, start, near, airspace));
+
+        // straight through the wall, cut short, or starting elsewhere
+        assertFalse(LegPaths.isFlyable(List.of(start, goal), start, goal, airspace));
+        assertFalse(LegPaths.isFlyable(corridor.subList(0, corridor.size() / 2), start, goal, airspace));
+        assertFalse(LegPaths.isFlyable(corridor.subList(1, corridor.size()), start, goal, airspace));
+        // lattice hops, but the last of them lands inside the wall
+        List<Position> intoWall = new ArrayList<>(List.of(geometricService.makePos(-3.1872, 55.9445)));
+        intoWall.add(geometricService.makePos(-3.1872 + STEP_SIZE, 55.9445));
+        assertTrue(LegPaths.isWellFormed(intoWall, intoWall.getFirst(), intoWall.getLast()));
+        assertFalse(LegPaths.isFlyable(intoWall, intoWall.getFirst(), intoWall.getLast(), airspace));
+    }
+
+    // every hop but the final snap onto the goal is one STEP_SIZE move on a 22.5 degree heading
+    private void assertValidFlight(List<Position> path, Position goal) {
+        for (int i = 0; i < path.size() - 2; i++) {
+            Position a = path.get(i);
+            Position b = path.get(i + 1);
+            double dLng = b.getLng() - a.getLng();
+            double dLat = b.getLat() - a.getLat();
+            assertEquals(STEP_SIZE, Math.hypot(dLng, dLat), 1e-12);
+
+            double angle = (Math.toDegrees(Math.atan2(dLat, dLng)) + 360) % 360;
+            double quotient = angle / 22.5;
+            assertEquals(Math.round(quotient), quotient, 1e-6);
+
+            assertFalse(b.getLng() > -3.1871 && b.getLng() < -3.1869 && b.getLat() > 55.9400 && b.getLat() < 55.9490,
+                    "Path entered the restricted area");
+        }
+
+        Position last = path.get(path.size() - 1);
+        assertEquals(goal.getLng(), last.getLng(), 1e-12);
+        assertEquals(goal.getLat(), last.getLat(), 1e-12);
+    }
+
+    private AirspaceSnapshot wallAirspace() {
+        RestrictedArea wall = new RestrictedArea();
+        wall.setId(1);
+        wall.setName("wall");
+        wall.setVertices(List.of(
+                geometricService.makePos(-3.1871, 55.9400),
+                geometricService.makePos(-3.1869, 55.9400),
+                geometricService.makePos(-3.1869, 55.9490),
+                geometricService.makePos(-3.1871, 55.9490),
+                geometricService.makePos(-3.1871, 55.9400)
+        ));
+
+        ServicePoint sp = new ServicePoint();
+        sp.setId(1);
+        sp.setName("base");
+        sp.setLocation(geometricService.makePos(-3.2000, 55.9445));
+
+        return airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+    }
+}
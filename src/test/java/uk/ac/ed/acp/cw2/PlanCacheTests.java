@@ -0,0 +1,85 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.PlanCache;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanCacheTests {
+
+    @Test
+    void testKey_SameContentSameKey() {
+        PlanCache cache = new PlanCache(16, Duration.ofMinutes(5));
+        String first = cache.keyOf(List.of(dispatch(1, -3.18), dispatch(2, -3.19)), "v1");
+        String second = cache.keyOf(List.of(dispatch(1, -3.18), dispatch(2, -3.19)), "v1");
+
+        assertEquals(first, second);
+        // order and reference data both change the plan, so both change the key
+        assertNotEquals(first, cache.keyOf(List.of(dispatch(2, -3.19), dispatch(1, -3.18)), "v1"));
+        assertNotEquals(first, cache.keyOf(List.of(dispatch(1, -3.18), dispatch(2, -3.19)), "v2"));
+    }
+
+    @Test
+    void testConcurrentIdenticalRequests_PlanOnce() throws Exception {
+        PlanCache cache = new PlanCache(16, Duration.ofMinutes(5));
+        AtomicInteger plans = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService callers = Executors.newFixedThreadPool(4)) {
+            List<Future<CalcDeliveryResponse>> results = new java.util.ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> cache.computeIfAbsent("k", () -> {
+                    plans.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return new CalcDeliveryResponse();
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            CalcDeliveryResponse shared = results.get(0).get();
+            for (Future<CalcDeliveryResponse> result : results) {
+                assertSame(shared, result.get());
+            }
+        }
+        assertEquals(1, plans.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        PlanCache cache = new PlanCache(2, Duration.ofMinutes(5));
+        cache.put("a", new CalcDeliveryResponse());
+        cache.put("b", new CalcDeliveryResponse());
+        cache.getIfPresent("a");
+        cache.put("c", new CalcDeliveryResponse());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+    }
+
+    private MedDispatchRec dispatch(int id, double lng) {
+        Position delivery = new Position();
+        delivery.setLng(lng);
+        delivery.setLat(55.94);
+        MedDispatchRec rec = new MedDispatchRec();
+        rec.setId(id);
+        rec.setDelivery(delivery);
+        return rec;
+    }
+}
@@ -0,0 +1,50 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.PlanningCpuPool;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanningCpuPoolTests {
+
+    private final PlanningCpuPool pool = new PlanningCpuPool(2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testVirtualCaller_RunsOnPlatformPool() throws Exception {
+        AtomicReference<String> worker = new AtomicReference<>();
+        Thread caller = Thread.ofVirtual().start(() ->
+                worker.set(pool.call(() -> Thread.currentThread().getName())));
+        caller.join();
+
+        assertTrue(worker.get().startsWith("planner-cpu-"), "Ran on " + worker.get());
+    }
+
+    @Test
+    void testPlatformCaller_RunsInline() {
+        String caller = Thread.currentThread().getName();
+        assertEquals(caller, pool.call(() -> Thread.currentThread().getName()));
+    }
+
+    @Test
+    void testFailure_IsRethrownUnwrapped() throws Exception {
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                pool.call(() -> { throw new IllegalStateException("boom"); });
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        caller.join();
+
+        assertInstanceOf(IllegalStateException.class, thrown.get());
+    }
+}
@@ -0,0 +1,100 @@
+package uk.ac.ed.acp.cw2;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ed.acp.cw2.Service.DroneService;
+import uk.ac.ed.acp.cw2.dto.CalcDeliveryResponse;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PlanningJobControllerTests {
+
+    private static final String DISPATCHES = "[{\"id\": 1, \"delivery\": {\"lng\": -3.186, \"lat\": 55.944}}]";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DroneService droneService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testSubmittedJob_CompletesWithResult() throws Exception {
+        CalcDeliveryResponse response = new CalcDeliveryResponse();
+        response.setTotalMoves(42);
+        response.setDronePaths(List.of());
+        when(droneService.calcDeliveryPath(anyList(), any())).thenReturn(response);
+
+        String jobId = submit();
+        JsonNode status = awaitState(jobId, "DONE");
+
+        assertEquals(1, status.get("totalDispatches").asInt());
+        assertEquals(42, status.get("result").get("totalMoves").asInt());
+    }
+
+    @Test
+    void testRunningJob_CanBeCancelled() throws Exception {
+        when(droneService.calcDeliveryPath(anyList(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                throw new CancellationException();
+            }
+            return new CalcDeliveryResponse();
+        });
+
+        String jobId = submit();
+        awaitState(jobId, "RUNNING");
+
+        mockMvc.perform(delete("/api/v1/calcDeliveryPath/jobs/" + jobId))
+                .andExpect(status().isOk());
+        awaitState(jobId, "CANCELLED");
+    }
+
+    @Test
+    void testUnknownJob_Returns404() throws Exception {
+        mockMvc.perform(get("/api/v1/calcDeliveryPath/jobs/does-not-exist"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String submit() throws Exception {
+        String body = mockMvc.perform(post("/api/v1/calcDeliveryPath/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(DISPATCHES))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("jobId").asText();
+    }
+
+    private JsonNode awaitState(String jobId, String state) throws Exception {
+        JsonNode status = null;
+        for (int i = 0; i < 100; i++) {
+            String body = mockMvc.perform(get("/api/v1/calcDeliveryPath/jobs/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = objectMapper.readTree(body);
+            if (state.equals(status.get("state").asText())) return status;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job " + jobId + " never reached " + state + ", last status " + status);
+    }
+}
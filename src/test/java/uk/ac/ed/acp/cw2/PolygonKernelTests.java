@@ -0,0 +1,79 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.PolygonKernel;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolygonKernelTests {
+
+    // the original edge-by-edge ray-cast from GeometricService
+    private static boolean rayCast(double[] xs, double[] ys, double px, double py) {
+        int crossings = 0;
+        for (int i = 0; i < xs.length - 1; i++) {
+            if ((ys[i] > py) != (ys[i + 1] > py)) {
+                double slope = (xs[i + 1] - xs[i]) * (py - ys[i]) / (ys[i + 1] - ys[i]) + xs[i];
+                if (px < slope) crossings++;
+            }
+        }
+        return crossings % 2 == 1;
+    }
+
+    // a jagged star around the Forum with a few hundred vertices, closed
+    private static double[][] star(int points, Random random) {
+        double[] xs = new double[points + 1];
+        double[] ys = new double[points + 1];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            double r = 0.002 + random.nextDouble() * 0.004;
+            xs[i] = -3.1863 + r * Math.cos(angle);
+            ys[i] = 55.9447 + r * Math.sin(angle);
+        }
+        xs[points] = xs[0];
+        ys[points] = ys[0];
+        return new double[][]{xs, ys};
+    }
+
+    @Test
+    void testContains_MatchesRayCastOnLargePolygon() {
+        Random random = new Random(3);
+        double[][] poly = star(400, random);
+        PolygonKernel kernel = PolygonKernel.of(poly[0], poly[1]);
+
+        int n = 5003;
+        double[] px = new double[n];
+        double[] py = new double[n];
+        for (int i = 0; i < n; i++) {
+            px[i] = -3.1863 + (random.nextDouble() * 2 - 1) * 0.007;
+            py[i] = 55.9447 + (random.nextDouble() * 2 - 1) * 0.007;
+        }
+        // vertices themselves are the boundary cases
+        System.arraycopy(poly[0], 0, px, 0, 100);
+        System.arraycopy(poly[1], 0, py, 0, 100);
+
+        boolean[] batch = new boolean[n];
+        kernel.containsAll(px, py, batch);
+        int inside = 0;
+        for (int i = 0; i < n; i++) {
+            boolean expected = rayCast(poly[0], poly[1], px[i], py[i]);
+            assertEquals(expected, kernel.contains(px[i], py[i]), "single point " + i);
+            assertEquals(expected, batch[i], "batch point " + i);
+            if (expected) inside++;
+        }
+        assertTrue(inside > 0 && inside < n);
+    }
+
+    @Test
+    void testContains_SmallSquare() {
+        double[] xs = {-3.192473, -3.192473, -3.184319, -3.184319, -3.192473};
+        double[] ys = {55.946233, 55.942617, 55.942617, 55.946233, 55.946233};
+        PolygonKernel kernel = PolygonKernel.of(xs, ys);
+
+        assertTrue(kernel.contains(-3.188, 55.944));
+        assertFalse(kernel.contains(-3.200, 55.944));
+        assertFalse(kernel.contains(-3.192473, 55.946233));
+        assertEquals(4, kernel.getEdgeCount());
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.Service.*;
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReturnFieldServiceTests {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private final GeometricService geometricService = new GeometricService();
+    private final AirspaceService airspaceService = new AirspaceService();
+    private final PathPlanner pathPlanner = new PathPlanner(geometricService);
+    private final ReturnFieldService heapFields = new ReturnFieldService(250, 64, new WarmStartStore("", 0));
+    // a zero threshold forces every field into a memory-mapped file
+    private final ReturnFieldService mappedFields = new ReturnFieldService(250, 0, new WarmStartStore("", 0));
+
+    private final Position base = pos(-3.1900, 55.9445);
+
+    @AfterEach
+    void tearDown() {
+        heapFields.shutdown();
+        mappedFields.shutdown();
+    }
+
+    @Test
+    void testDescent_ReturnsAroundWallWithoutSearch() {
+        AirspaceSnapshot airspace = wallAirspace();
+        Position delivery = pos(-3.1840, 55.9445);
+
+        ReturnField field = heapFields.fieldFor(airspace, base);
+        assertNotNull(field);
+        assertNotNull(field.descend(delivery, p -> airspace.isNoFly(p.getLng(), p.getLat()), 2000), "descent got stuck");
+
+        List<Position> descent = pathPlanner.planReturn(delivery, base, field, airspace, 2000, new PlanningProgress());
+        List<Position> searched = pathPlanner.plan(delivery, base, airspace, 2000);
+
+        assertValidFlight(descent, base);
+        // the descent keeps a cell of clearance, so it may run a few moves longer than A*
+        assertTrue(descent.size() <= searched.size() * 1.15,
+                "Descent " + (descent.size() - 1) + " moves vs search " + (searched.size() - 1));
+    }
+
+    @Test
+    void testDescent_CountsTheClosingSnapAgainstMaxMoves() {
+        AirspaceSnapshot airspace = wallAirspace();
+        ReturnField field = heapFields.fieldFor(airspace, base);
+        Position delivery = pos(-3.1927, 55.9462);
+
+        List<Position> free = field.descend(delivery, p -> airspace.isNoFly(p.getLng(), p.getLat()), 2000);
+        assertNotNull(free);
+        int moves = free.size() - 1;
+
+        assertEquals(moves, field.descend(delivery, p -> airspace.isNoFly(p.getLng(), p.getLat()), moves).size() - 1);
+        assertNull(field.descend(delivery, p -> airspace.isNoFly(p.getLng(), p.getLat()), moves - 1));
+    }
+
+    @Test
+    void testMappedField_MatchesHeapField() {
+        AirspaceSnapshot airspace = wallAirspace();
+        ReturnField heap = heapFields.fieldFor(airspace, base);
+        ReturnField mapped = mappedFields.fieldFor(airspace, base);
+
+        for (double lng = -3.1950; lng <= -3.1830; lng += 0.0007) {
+            assertEquals(heap.movesFrom(lng, 55.9445), mapped.movesFrom(lng, 55.9445), 0.0);
+        }
+        // inside the wall there is no field
+        assertTrue(Double.isInfinite(heap.movesFrom(-3.1870, 55.9445)));
+    }
+
+    @Test
+    void testFieldLookup_IsLowerThanFlownDetour() {
+        AirspaceSnapshot airspace = wallAirspace();
+        ReturnField field = heapFields.fieldFor(airspace, base);
+
+        // straight line is 40 moves, going round the wall is ~72
+        double moves = field.movesFrom(-3.1840, 55.9445);
+        assertTrue(moves > 60 && moves < 90, "Unexpected field distance " + moves);
+    }
+
+    @Test
+    void testReplacedSnapshot_GetsNoFieldBuiltAgain() {
+        AirspaceSnapshot walled = wallAirspace();
+        assertNotNull(heapFields.fieldFor(walled, base));
+
+        ServicePoint sp = new ServicePoint();
+        sp.setId(1);
+        sp.setName("base");
+        sp.setLocation(base);
+        AirspaceSnapshot open = airspaceService.snapshotOf(new RestrictedArea[0], new ServicePoint[]{sp});
+        heapFields.onAirspaceChanged(new AirspaceChangedEvent(walled, open));
+
+        // a plan still on the old snapshot searches instead of flooding it again
+        assertNull(heapFields.fieldFor(walled, base));
+        assertNotNull(heapFields.fieldFor(open, base));
+
+        // and a snapshot that becomes current again is built again
+        heapFields.onAirspaceChanged(new AirspaceChangedEvent(open, walled));
+        assertNotNull(heapFields.fieldFor(walled, base));
+        assertNull(heapFields.fieldFor(open, base));
+    }
+
+    // every hop but the final snap onto the goal is one STEP_SIZE move on a 22.5 degree heading
+    private void assertValidFlight(List<Position> path, Position goal) {
+        assertNotNull(path);
+        for (int i = 0; i < path.size() - 2; i++) {
+            Position a = path.get(i);
+            Position b = path.get(i + 1);
+            double dLng = b.getLng() - a.getLng();
+            double dLat = b.getLat() - a.getLat();
+            assertEquals(STEP_SIZE, Math.hypot(dLng, dLat), 1e-12);
+
+            double quotient = ((Math.toDegrees(Math.atan2(dLat, dLng)) + 360) % 360) / 22.5;
+            assertEquals(Math.round(quotient), quotient, 1e-6);
+
+            assertFalse(b.getLng() > -3.1871 && b.getLng() < -3.1869 && b.getLat() > 55.9400 && b.getLat() < 55.9490,
+                    "Path entered the restricted area");
+        }
+        Position last = path.get(path.size() - 1);
+        assertEquals(goal.getLng(), last.getLng(), 1e-12);
+        assertEquals(goal.getLat(), last.getLat(), 1e-12);
+    }
+
+    private AirspaceSnapshot wallAirspace() {
+        RestrictedArea wall = new RestrictedArea();
+        wall.setId(1);
+        wall.setName("wall");
+        wall.setVertices(List.of(pos(-3.1871, 55.9400), pos(-3.1869, 55.9400), pos(-3.1869, 55.9490),
+                pos(-3.1871, 55.9490), pos(-3.1871, 55.9400)));
+
+        ServicePoint sp = new ServicePoint();
+        sp.setId(1);
+        sp.setName("base");
+        sp.setLocation(base);
+        return airspaceService.snapshotOf(new RestrictedArea[]{wall}, new ServicePoint[]{sp});
+    }
+
+    private Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
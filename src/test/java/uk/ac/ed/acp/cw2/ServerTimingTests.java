@@ -0,0 +1,71 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ed.acp.cw2.Service.PlanningCpuPool;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "ilp.timing.slow-threshold=0ms",
+        "management.endpoints.web.exposure.include=slowrequests"
+})
+@AutoConfigureMockMvc
+class ServerTimingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testApiResponse_CarriesServerTimingAndIsLoggedAsSlow() throws Exception {
+        String body = "{\"position1\":{\"lng\":-3.19,\"lat\":55.94},\"position2\":{\"lng\":-3.18,\"lat\":55.94}}";
+        mockMvc.perform(post("/api/v1/distanceTo").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", containsString("serialize;dur=")))
+                .andExpect(header().string("Server-Timing", containsString("total;dur=")));
+
+        // every request counts as slow with a zero threshold
+        mockMvc.perform(get("/actuator/slowrequests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].path").value("/api/v1/distanceTo"))
+                .andExpect(jsonPath("$[0].phases.serialize.count").value(1));
+    }
+
+    @Test
+    void testTimings_FollowWorkOntoThePlannerPool() throws Exception {
+        PlanningCpuPool pool = new PlanningCpuPool(1);
+        RequestTimings timings = new RequestTimings();
+        AtomicReference<String> header = new AtomicReference<>();
+        try {
+            Thread caller = Thread.ofVirtual().start(() -> {
+                try (RequestTimings.Scope ignored = timings.bind()) {
+                    pool.call(() -> {
+                        RequestTimings.record("astar", 2_000_000);
+                        RequestTimings.record("astar", 1_000_000);
+                        return null;
+                    });
+                }
+                header.set(timings.toServerTiming(5_000_000));
+            });
+            caller.join();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(2, timings.snapshot().get("astar").count());
+        assertEquals("astar;dur=3.0;desc=\"2 calls\", total;dur=5.0", header.get());
+        // nothing leaks onto threads that are not serving a request
+        assertNull(RequestTimings.current());
+    }
+}
@@ -0,0 +1,88 @@
+package uk.ac.ed.acp.cw2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ed.acp.cw2.Service.DroneService;
+import uk.ac.ed.acp.cw2.Service.RequestTimings;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.LivePlanUpdate;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the stale-data header must not depend on the timing switch
+@SpringBootTest(properties = "ilp.timing.enabled=false")
+@AutoConfigureMockMvc
+class StaleDataFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DroneService droneService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testJsonResponse_CarriesStaleHeaderWithTimingOff() throws Exception {
+        when(droneService.getDroneDetails(4)).thenAnswer(call -> {
+            RequestTimings.markStale("drones", Duration.ofSeconds(42));
+            return new Drone();
+        });
+
+        mockMvc.perform(get("/api/v1/droneDetails/4"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ILP-Data-Stale", "drones;age=42"))
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    @Test
+    void testFreshResponse_HasNoStaleHeader() throws Exception {
+        when(droneService.getDroneDetails(4)).thenReturn(new Drone());
+
+        mockMvc.perform(get("/api/v1/droneDetails/4"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ILP-Data-Stale"));
+    }
+
+    @Test
+    void testNdjsonLivePlan_CarriesStaleHeaderAndPerLineField() throws Exception {
+        when(droneService.ingestDispatch(any())).thenAnswer(call -> {
+            MedDispatchRec dispatch = call.getArgument(0);
+            // only the first dispatch was planned on stale data
+            if (dispatch.getId() == 1) RequestTimings.markStale("restricted-areas", Duration.ofSeconds(7));
+            LivePlanUpdate update = new LivePlanUpdate();
+            update.setDispatchId(dispatch.getId());
+            return update;
+        });
+
+        String body = mockMvc.perform(post("/api/v1/livePlan/dispatches")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"id\":1,\"delivery\":{\"lng\":-3.19,\"lat\":55.94}}\n"
+                                + "{\"id\":2,\"delivery\":{\"lng\":-3.18,\"lat\":55.95}}\n"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ILP-Data-Stale", "restricted-areas;age=7"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals("restricted-areas;age=7", objectMapper.readTree(lines.get(0)).get("ilpDataStale").asText());
+        assertFalse(objectMapper.readTree(lines.get(1)).has("ilpDataStale"));
+    }
+}
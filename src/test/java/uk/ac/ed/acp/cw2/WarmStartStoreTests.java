@@ -0,0 +1,130 @@
+package uk.ac.ed.acp.cw2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ed.acp.cw2.Service.*;
+import uk.ac.ed.acp.cw2.dto.Position;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmStartStoreTests {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    @TempDir
+    Path dir;
+
+    private final AirspaceSnapshot airspace = new AirspaceService().snapshotOf(new RestrictedArea[0], new ServicePoint[0]);
+
+    @Test
+    void testFieldsAndPathsSurviveRestart() {
+        Position sp = pos(-3.19, 55.94);
+        List<Position> path = eastward(-3.19, 55.94, 2);
+        String v1 = airspace.getVersion();
+
+        WarmStartStore first = new WarmStartStore(dir.toString(), 100);
+        first.saveField(v1, sp, 250, FloatBuffer.wrap(new float[]{0f, 1f, Float.POSITIVE_INFINITY}));
+        first.savePath(v1, path.getFirst(), path.getLast(), path);
+        first.shutdown();
+
+        WarmStartStore restarted = new WarmStartStore(dir.toString(), 100);
+        FloatBuffer field = restarted.findField(v1, sp, 250, 3);
+        assertNotNull(field);
+        assertEquals(1f, field.get(1));
+        assertEquals(Float.POSITIVE_INFINITY, field.get(2));
+        // a different radius or grid size is a different field
+        assertNull(restarted.findField(v1, sp, 100, 3));
+        assertNull(restarted.findField(v1, sp, 250, 4));
+
+        List<Position> loaded = restarted.findPath(airspace, path.getFirst(), path.getLast());
+        assertEquals(3, loaded.size());
+        assertEquals(-3.19 + 2 * STEP_SIZE, loaded.getLast().getLng(), 1e-12);
+        restarted.shutdown();
+    }
+
+    @Test
+    void testTornTailIsDroppedAndOlderRecordsKept() throws Exception {
+        List<Position> a = eastward(0, 0, 3);
+        List<Position> b = eastward(2, 2, 3);
+        WarmStartStore first = new WarmStartStore(dir.toString(), 100);
+        first.savePath(airspace.getVersion(), a.getFirst(), a.getLast(), a);
+        first.savePath(airspace.getVersion(), b.getFirst(), b.getLast(), b);
+        first.shutdown();
+
+        // a crash halfway through the second record
+        Path file = dir.resolve("airspace-" + airspace.getVersion() + ".log");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 10);
+        }
+
+        WarmStartStore restarted = new WarmStartStore(dir.toString(), 100);
+        assertNotNull(restarted.findPath(airspace, a.getFirst(), a.getLast()));
+        assertNull(restarted.findPath(airspace, b.getFirst(), b.getLast()));
+        restarted.shutdown();
+    }
+
+    @Test
+    void testFilesOfOtherAirspaceVersionsAreDiscarded() {
+        AirspaceSnapshot current = airspace;
+        List<Position> path = eastward(0, 0, 1);
+        WarmStartStore store = new WarmStartStore(dir.toString(), 100);
+        store.savePath("stale", path.getFirst(), path.getLast(), path);
+        store.savePath(current.getVersion(), path.getFirst(), path.getLast(), path);
+
+        store.onAirspaceChanged(new AirspaceChangedEvent(null, current));
+
+        assertFalse(Files.exists(dir.resolve("airspace-stale.log")));
+        assertTrue(Files.exists(dir.resolve("airspace-" + current.getVersion() + ".log")));
+        assertNotNull(store.findPath(current, path.getFirst(), path.getLast()));
+        store.shutdown();
+    }
+
+    @Test
+    void testInvalidPathsAreSkippedOnLoadAndDroppedWhenFound() {
+        List<Position> good = eastward(0, 0, 2);
+        // intact records that are no lattice path between their endpoints
+        List<Position> teleport = List.of(pos(1, 1), pos(1.5, 1.5));
+        WarmStartStore first = new WarmStartStore(dir.toString(), 100);
+        first.savePath(airspace.getVersion(), good.getFirst(), good.getLast(), good);
+        first.savePath(airspace.getVersion(), teleport.getFirst(), teleport.getLast(), teleport);
+        first.shutdown();
+
+        WarmStartStore restarted = new WarmStartStore(dir.toString(), 100);
+        assertNull(restarted.findPath(airspace, teleport.getFirst(), teleport.getLast()));
+        assertNotNull(restarted.findPath(airspace, good.getFirst(), good.getLast()));
+
+        // well formed, but flying through an area restricted in this snapshot
+        RestrictedArea box = new RestrictedArea();
+        box.setId(1);
+        box.setName("box");
+        box.setVertices(List.of(pos(-0.0001, -0.0001), pos(0.0004, -0.0001), pos(0.0004, 0.0001), pos(-0.0001, 0.0001), pos(-0.0001, -0.0001)));
+        AirspaceSnapshot restricted = new AirspaceService().snapshotOf(new RestrictedArea[]{box}, new ServicePoint[0]);
+        restarted.savePath(restricted.getVersion(), good.getFirst(), good.getLast(), good);
+        assertNull(restarted.findPath(restricted, good.getFirst(), good.getLast()));
+        restarted.shutdown();
+    }
+
+    // a lattice leg of {@code moves} steps due east, as the planner would store it
+    private List<Position> eastward(double lng, double lat, int moves) {
+        List<Position> path = new ArrayList<>();
+        for (int i = 0; i <= moves; i++) path.add(pos(lng + i * STEP_SIZE, lat));
+        return path;
+    }
+
+    private Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}
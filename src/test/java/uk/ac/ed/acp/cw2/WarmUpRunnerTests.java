@@ -0,0 +1,56 @@
+package uk.ac.ed.acp.cw2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import uk.ac.ed.acp.cw2.Service.*;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WarmUpRunnerTests {
+
+    private final GeometricService geometricService = new GeometricService();
+    private final IlpClient ilpClient = mock(IlpClient.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void testNotReadyUntilWarmUpHasRun() {
+        ServicePoint sp = new ServicePoint();
+        sp.setId(1);
+        sp.setName("base");
+        sp.setLocation(geometricService.makePos(-3.1900, 55.9445));
+        when(ilpClient.getRestrictedAreas()).thenReturn(new RestrictedArea[0]);
+        when(ilpClient.getAllServicePoints()).thenReturn(new ServicePoint[]{sp});
+
+        WarmUpRunner runner = runner(true);
+        assertEquals(Status.OUT_OF_SERVICE, runner.health().getStatus());
+
+        runner.run();
+
+        assertTrue(runner.isDone());
+        assertEquals(Status.UP, runner.health().getStatus());
+        assertEquals(1, meters.get("ilp.warmup.duration").timer().count());
+    }
+
+    @Test
+    void testUnreachableIlpStillEndsReady() {
+        when(ilpClient.getRestrictedAreas()).thenThrow(new IllegalStateException("ILP down"));
+
+        WarmUpRunner runner = runner(true);
+        runner.run();
+
+        assertEquals(Status.UP, runner.health().getStatus());
+        // disabled warm-up never holds the probe back
+        assertEquals(Status.UP, runner(false).health().getStatus());
+    }
+
+    private WarmUpRunner runner(boolean enabled) {
+        return new WarmUpRunner(ilpClient, new AirspaceService(), new ReturnFieldService(250, 64, new WarmStartStore("", 0)),
+                geometricService, new PathPlanner(geometricService), new ObjectMapper(), meters, enabled, 50, 4);
+    }
+}
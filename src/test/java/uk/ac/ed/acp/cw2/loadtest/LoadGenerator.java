@@ -0,0 +1,148 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a request mix against a running service and records per-endpoint latency.
+ * <p>
+ * Open-loop mode sends at a fixed rate whether or not earlier requests have finished, and
+ * measures each latency from the moment the request was due, so a stalled server shows up
+ * in the tail instead of just slowing the sender down (no coordinated omission). Closed-loop
+ * mode keeps a fixed number of requests in flight. Only 2xx responses count towards latency;
+ * 429s are counted as shed and every other failure as an error.
+ */
+public final class LoadGenerator {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final Map<String, ConcurrentHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> shed = new ConcurrentHashMap<>();
+
+    public LoadGenerator(String baseUrl, Duration requestTimeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Sends {@code requestsPerSecond} requests for {@code duration}, cycling through the mix.
+     */
+    public LoadReport runOpenLoop(String name, List<Scenarios.LoadRequest> mix, double requestsPerSecond, Duration duration) {
+        long intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        long total = (long) (requestsPerSecond * duration.toNanos() / 1e9);
+        long started = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long due = started + i * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                Scenarios.LoadRequest request = mix.get((int) (i % mix.size()));
+                senders.submit(() -> send(request, due));
+            }
+        }
+        return report(name, "open-loop " + requestsPerSecond + " rps", System.nanoTime() - started);
+    }
+
+    /**
+     * Keeps {@code concurrency} requests in flight for {@code duration}, cycling through the mix.
+     */
+    public LoadReport runClosedLoop(String name, List<Scenarios.LoadRequest> mix, int concurrency, Duration duration) {
+        long started = System.nanoTime();
+        long end = started + duration.toNanos();
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        Scenarios.LoadRequest request = mix.get(Math.floorMod(next.getAndIncrement(), mix.size()));
+                        send(request, System.nanoTime());
+                    }
+                });
+            }
+        }
+        return report(name, "closed-loop x" + concurrency, System.nanoTime() - started);
+    }
+
+    private void send(Scenarios.LoadRequest request, long dueNanos) {
+        HttpRequest.BodyPublisher body = request.body() == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(request.body());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + request.path()))
+                .timeout(requestTimeout)
+                .method(request.method(), body);
+        if (request.contentType() != null) builder.header("Content-Type", request.contentType());
+
+        int status;
+        try {
+            status = client.send(builder.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            status = -1;
+        }
+        // a fast rejection must not pass for a fast answer
+        if (status == 429) {
+            count(shed, request.endpoint());
+        } else if (status < 200 || status >= 300) {
+            count(errors, request.endpoint());
+        } else {
+            long micros = Math.min(MAX_LATENCY_MICROS, Math.max(1, (System.nanoTime() - dueNanos) / 1_000));
+            histogram(request.endpoint()).recordValue(micros);
+        }
+    }
+
+    private ConcurrentHistogram histogram(String endpoint) {
+        return latencies.computeIfAbsent(endpoint, e -> new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+    }
+
+    private static void count(Map<String, AtomicLong> counters, String endpoint) {
+        counters.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static long countOf(Map<String, AtomicLong> counters, String endpoint) {
+        AtomicLong counter = counters.get(endpoint);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private LoadReport report(String name, String mode, long elapsedNanos) {
+        LoadReport report = new LoadReport(name, mode, elapsedNanos / 1_000_000);
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        // an endpoint that never answered 2xx still gets a row
+        errors.keySet().forEach(this::histogram);
+        shed.keySet().forEach(this::histogram);
+        for (Map.Entry<String, ConcurrentHistogram> e : latencies.entrySet()) {
+            report.add(LoadReport.EndpointStats.of(e.getKey(), e.getValue(), countOf(errors, e.getKey()),
+                    countOf(shed, e.getKey()), elapsedNanos));
+            all.add(e.getValue());
+        }
+        long allErrors = errors.values().stream().mapToLong(AtomicLong::get).sum();
+        long allShed = shed.values().stream().mapToLong(AtomicLong::get).sum();
+        report.add(LoadReport.EndpointStats.of(LoadReport.ALL, all, allErrors, allShed, elapsedNanos));
+        latencies.clear();
+        errors.clear();
+        shed.clear();
+        return report;
+    }
+}
@@ -0,0 +1,138 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Result of one load run: latency percentiles (ms), throughput, errors and shed (429) requests
+ * per endpoint, plus an "ALL" row. Latency and throughput cover 2xx responses only. Saved as
+ * JSON so a later run can be compared against it.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public final class LoadReport {
+
+    public static final String ALL = "ALL";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public record EndpointStats(String endpoint, long requests, long errors, long shed, double throughputPerSecond,
+                                double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+        static EndpointStats of(String endpoint, Histogram micros, long errors, long shed, long elapsedNanos) {
+            return new EndpointStats(endpoint, micros.getTotalCount() + errors + shed, errors, shed,
+                    micros.getTotalCount() / (elapsedNanos / 1e9),
+                    micros.getValueAtPercentile(50) / 1000.0,
+                    micros.getValueAtPercentile(99) / 1000.0,
+                    micros.getValueAtPercentile(99.9) / 1000.0,
+                    micros.getMaxValue() / 1000.0);
+        }
+    }
+
+    private String name;
+    private String mode;
+    private long elapsedMillis;
+    private List<EndpointStats> endpoints = new ArrayList<>();
+
+    // for Jackson
+    LoadReport() {
+    }
+
+    LoadReport(String name, String mode, long elapsedMillis) {
+        this.name = name;
+        this.mode = mode;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    void add(EndpointStats stats) {
+        endpoints.add(stats);
+        endpoints.sort(Comparator.comparing((EndpointStats s) -> s.endpoint().equals(ALL)).thenComparing(EndpointStats::endpoint));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public List<EndpointStats> getEndpoints() {
+        return endpoints;
+    }
+
+    public Optional<EndpointStats> stats(String endpoint) {
+        return endpoints.stream().filter(s -> s.endpoint().equals(endpoint)).findFirst();
+    }
+
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        MAPPER.writeValue(file.toFile(), this);
+    }
+
+    public static LoadReport load(Path file) throws IOException {
+        return MAPPER.readValue(file.toFile(), LoadReport.class);
+    }
+
+    public String toTable() {
+        StringBuilder out = new StringBuilder(String.format("%s (%s, %d ms)%n", name, mode, elapsedMillis));
+        out.append(String.format("%-40s %8s %6s %6s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "shed", "ok/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (EndpointStats s : endpoints) {
+            out.append(String.format("%-40s %8d %6d %6d %9.1f %9.2f %9.2f %9.2f %9.2f%n", s.endpoint(), s.requests(),
+                    s.errors(), s.shed(), s.throughputPerSecond(), s.p50Millis(), s.p99Millis(), s.p999Millis(), s.maxMillis()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Side-by-side change of every endpoint present in both runs, as percentages of the baseline.
+     */
+    public static String compare(LoadReport baseline, LoadReport current) {
+        StringBuilder out = new StringBuilder(String.format("%s -> %s%n", baseline.name, current.name));
+        out.append(String.format("%-40s %9s %9s %9s %9s%n", "endpoint", "req/s", "p50", "p99", "p999"));
+        for (EndpointStats now : current.endpoints) {
+            baseline.stats(now.endpoint()).ifPresent(before -> out.append(String.format("%-40s %9s %9s %9s %9s%n",
+                    now.endpoint(),
+                    delta(before.throughputPerSecond(), now.throughputPerSecond()),
+                    delta(before.p50Millis(), now.p50Millis()),
+                    delta(before.p99Millis(), now.p99Millis()),
+                    delta(before.p999Millis(), now.p999Millis()))));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Endpoints whose p99 grew, or whose throughput fell, by more than {@code tolerancePercent}.
+     */
+    public static List<String> regressions(LoadReport baseline, LoadReport current, double tolerancePercent) {
+        List<String> found = new ArrayList<>();
+        for (EndpointStats now : current.endpoints) {
+            Optional<EndpointStats> before = baseline.stats(now.endpoint());
+            if (before.isEmpty()) continue;
+            double p99 = percent(before.get().p99Millis(), now.p99Millis());
+            double throughput = percent(before.get().throughputPerSecond(), now.throughputPerSecond());
+            if (p99 > tolerancePercent) found.add(String.format("%s p99 %+.1f%%", now.endpoint(), p99));
+            if (-throughput > tolerancePercent) found.add(String.format("%s throughput %+.1f%%", now.endpoint(), throughput));
+        }
+        return found;
+    }
+
+    private static String delta(double before, double now) {
+        return String.format("%+.1f%%", percent(before, now));
+    }
+
+    private static double percent(double before, double now) {
+        return before == 0 ? 0 : (now - before) / before * 100;
+    }
+}
@@ -0,0 +1,106 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.ac.ed.acp.cw2.Application;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Capacity check, not part of the normal build: {@code mvn test -Pload-test}.
+ * <p>
+ * By default it starts the service in-process against {@link StubIlpServer}, waits for the
+ * readiness probe (so the warm-up has run), and drives the generated mix. Settings are
+ * system properties:
+ * <ul>
+ *   <li>{@code load.target} - base URL of an already running service instead</li>
+ *   <li>{@code load.ilp-dir} - captured ILP JSON for the stub; {@code load.ilp-delay-ms} adds latency to it</li>
+ *   <li>{@code load.scenario} - a .http file to replay instead of the generated mix</li>
+ *   <li>{@code load.rate} (requests/s, open loop) or {@code load.concurrency} (closed loop)</li>
+ *   <li>{@code load.duration-s}, {@code load.name}</li>
+ *   <li>{@code load.baseline} - report of an earlier run to compare with, and
+ *       {@code load.max-regression-pct} to fail when p99 or throughput got worse by more</li>
+ * </ul>
+ * Reports are written to target/load-reports/&lt;name&gt;.json.
+ */
+@Tag("load")
+class LoadTest {
+
+    @Test
+    void runLoad() throws Exception {
+        String name = System.getProperty("load.name", "run-" + System.currentTimeMillis());
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-s", 30));
+        String target = System.getProperty("load.target");
+
+        StubIlpServer ilp = null;
+        ConfigurableApplicationContext app = null;
+        try {
+            if (target == null) {
+                String ilpDir = System.getProperty("load.ilp-dir");
+                long delay = Long.getLong("load.ilp-delay-ms", 0);
+                ilp = ilpDir == null ? StubIlpServer.generated(42, delay) : StubIlpServer.fromDirectory(Path.of(ilpDir), delay);
+                app = SpringApplication.run(Application.class,
+                        "--server.port=0",
+                        "--ilp.service.url=" + ilp.url(),
+                        "--ilp.warmup.enabled=true",
+                        "--ilp.warm-start.dir=");
+                target = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            }
+            awaitReady(target);
+
+            String scenario = System.getProperty("load.scenario");
+            List<Scenarios.LoadRequest> mix = scenario == null
+                    ? Scenarios.generated(7, 500)
+                    : Scenarios.fromHttpFile(Path.of(scenario));
+
+            LoadGenerator generator = new LoadGenerator(target, Duration.ofSeconds(30));
+            String concurrency = System.getProperty("load.concurrency");
+            LoadReport report = concurrency != null
+                    ? generator.runClosedLoop(name, mix, Integer.parseInt(concurrency), duration)
+                    : generator.runOpenLoop(name, mix, Double.parseDouble(System.getProperty("load.rate", "10")), duration);
+
+            System.out.println(report.toTable());
+            report.save(Path.of("target", "load-reports", name + ".json"));
+
+            String baseline = System.getProperty("load.baseline");
+            if (baseline != null) {
+                LoadReport before = LoadReport.load(Path.of(baseline));
+                System.out.println(LoadReport.compare(before, report));
+                String tolerance = System.getProperty("load.max-regression-pct");
+                if (tolerance != null) {
+                    List<String> regressions = LoadReport.regressions(before, report, Double.parseDouble(tolerance));
+                    assertTrue(regressions.isEmpty(), "Regressed against " + baseline + ": " + regressions);
+                }
+            }
+        } finally {
+            if (app != null) app.close();
+            if (ilp != null) ilp.close();
+        }
+    }
+
+    private static void awaitReady(String target) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(target + "/actuator/health/readiness")).build();
+        long giveUp = System.nanoTime() + Duration.ofMinutes(5).toNanos();
+        while (System.nanoTime() < giveUp) {
+            try {
+                if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (java.io.IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Service at " + target + " never became ready");
+    }
+}
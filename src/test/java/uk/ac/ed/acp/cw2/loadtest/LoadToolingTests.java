@@ -0,0 +1,106 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadToolingTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testHttpFile_ParsesRequestsAndStripsHost() throws Exception {
+        Path file = dir.resolve("capture.http");
+        Files.writeString(file, """
+                ### GET index
+                GET http://localhost:8080/api/v1/
+
+                ###
+                GET 127.0.0.1:8080/api/v1/droneDetails/4
+
+                ### distance
+                POST http://localhost:8080/api/v1/distanceTo
+                Content-Type: application/json
+
+                {"position1": {"lng": -3.19, "lat": 55.94},
+                 "position2": {"lng": -3.18, "lat": 55.94}}
+                """);
+
+        List<Scenarios.LoadRequest> requests = Scenarios.fromHttpFile(file);
+
+        assertEquals(3, requests.size());
+        assertEquals("/api/v1/", requests.get(0).path());
+        assertEquals("GET /api/v1/droneDetails/{n}", requests.get(1).endpoint());
+        assertEquals("application/json", requests.get(2).contentType());
+        assertTrue(requests.get(2).body().contains("position2"));
+    }
+
+    @Test
+    void testOpenLoopRunAgainstStubAndComparison() throws Exception {
+        try (StubIlpServer ilp = StubIlpServer.generated(1, 0)) {
+            List<Scenarios.LoadRequest> mix = List.of(
+                    new Scenarios.LoadRequest("GET /drones", "GET", "/drones", null, null),
+                    new Scenarios.LoadRequest("GET /service-points", "GET", "/service-points", null, null));
+            LoadGenerator generator = new LoadGenerator(ilp.url(), Duration.ofSeconds(5));
+
+            LoadReport first = generator.runOpenLoop("first", mix, 200, Duration.ofMillis(500));
+            first.save(dir.resolve("first.json"));
+            LoadReport reloaded = LoadReport.load(dir.resolve("first.json"));
+
+            assertEquals(100, reloaded.stats(LoadReport.ALL).orElseThrow().requests());
+            assertEquals(0, reloaded.stats(LoadReport.ALL).orElseThrow().errors());
+            assertEquals(50, reloaded.stats("GET /drones").orElseThrow().requests());
+            // a run compared with itself has nothing to report
+            assertTrue(LoadReport.regressions(reloaded, first, 0.1).isEmpty());
+            assertTrue(LoadReport.compare(reloaded, first).contains("GET /service-points"));
+        }
+    }
+
+    @Test
+    void testNon2xxResponses_StayOutOfTheLatencies() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/busy", exchange -> {
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            List<Scenarios.LoadRequest> mix = List.of(
+                    new Scenarios.LoadRequest("GET /ok", "GET", "/ok", null, null),
+                    new Scenarios.LoadRequest("GET /busy", "GET", "/busy", null, null),
+                    new Scenarios.LoadRequest("GET /missing", "GET", "/missing", null, null));
+            LoadGenerator generator = new LoadGenerator("http://127.0.0.1:" + server.getAddress().getPort(),
+                    Duration.ofSeconds(5));
+
+            LoadReport report = generator.runOpenLoop("statuses", mix, 120, Duration.ofMillis(500));
+
+            LoadReport.EndpointStats all = report.stats(LoadReport.ALL).orElseThrow();
+            assertEquals(60, all.requests());
+            assertEquals(20, all.shed());
+            assertEquals(20, all.errors());
+            LoadReport.EndpointStats busy = report.stats("GET /busy").orElseThrow();
+            assertEquals(20, busy.requests());
+            assertEquals(20, busy.shed());
+            // a shed request is neither a latency sample nor throughput
+            assertEquals(0, busy.throughputPerSecond());
+            assertEquals(0, busy.maxMillis());
+            assertEquals(20, report.stats("GET /missing").orElseThrow().errors());
+            assertEquals(0, report.stats("GET /ok").orElseThrow().errors());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
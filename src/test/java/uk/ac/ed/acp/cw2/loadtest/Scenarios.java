@@ -0,0 +1,143 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRequirements;
+import uk.ac.ed.acp.cw2.dto.Position;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Request mixes for the load generator: replayed from an IntelliJ-style .http file (like
+ * sample-requests.http) or generated around the stub ILP data.
+ */
+public final class Scenarios {
+
+    /**
+     * One request to send; {@code endpoint} groups the latency histograms.
+     */
+    public record LoadRequest(String endpoint, String method, String path, String contentType, String body) {
+    }
+
+    private Scenarios() {
+    }
+
+    /**
+     * Parses "###"-separated blocks of a request line, headers, a blank line and a body.
+     * Only the path is kept from the URL, so captured files replay against any host.
+     */
+    public static List<LoadRequest> fromHttpFile(Path file) throws IOException {
+        List<LoadRequest> requests = new ArrayList<>();
+        for (String block : Files.readString(file).split("(?m)^###.*$")) {
+            List<String> lines = block.strip().lines().filter(l -> !l.startsWith("#") && !l.startsWith("//")).toList();
+            if (lines.isEmpty()) continue;
+
+            String[] requestLine = lines.getFirst().trim().split("\\s+");
+            if (requestLine.length < 2) continue;
+            String method = requestLine[0].toUpperCase();
+            String path = pathOf(requestLine[1]);
+            if (path == null) continue;
+
+            String contentType = null;
+            int i = 1;
+            for (; i < lines.size() && !lines.get(i).isBlank(); i++) {
+                String header = lines.get(i);
+                int colon = header.indexOf(':');
+                if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Type")) {
+                    contentType = header.substring(colon + 1).trim();
+                }
+            }
+            String body = i < lines.size() ? String.join("\n", lines.subList(i, lines.size())).strip() : "";
+            requests.add(new LoadRequest(method + " " + endpointOf(path), method, path, contentType, body.isEmpty() ? null : body));
+        }
+        return requests;
+    }
+
+    /**
+     * A weighted mix of geometry calls and small delivery plans around the stub service points.
+     */
+    public static List<LoadRequest> generated(long seed, int count) {
+        Random random = new Random(seed);
+        ObjectMapper mapper = new ObjectMapper();
+        List<LoadRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Position sp = StubIlpServer.GeneratedData.SERVICE_POINTS[random.nextInt(StubIlpServer.GeneratedData.SERVICE_POINTS.length)];
+            Position a = near(sp, random, 0.01);
+            Position b = near(sp, random, 0.01);
+            int pick = random.nextInt(100);
+            try {
+                if (pick < 30) {
+                    requests.add(post("/api/v1/distanceTo", mapper.writeValueAsString(Map.of("position1", a, "position2", b))));
+                } else if (pick < 50) {
+                    requests.add(post("/api/v1/nextPosition", mapper.writeValueAsString(Map.of("start", a, "angle", random.nextInt(16) * 22.5))));
+                } else if (pick < 75) {
+                    List<Position> square = List.of(a, StubIlpServer.pos(a.getLng() + 0.002, a.getLat()),
+                            StubIlpServer.pos(a.getLng() + 0.002, a.getLat() + 0.002), StubIlpServer.pos(a.getLng(), a.getLat() + 0.002), a);
+                    requests.add(post("/api/v1/isInRegion", mapper.writeValueAsString(
+                            Map.of("position", b, "region", Map.of("name", "r", "vertices", square)))));
+                } else {
+                    List<MedDispatchRec> dispatches = new ArrayList<>();
+                    for (int d = 0, n = 1 + random.nextInt(3); d < n; d++) {
+                        MedDispatchRequirements requirements = new MedDispatchRequirements();
+                        requirements.setCapacity(1 + random.nextInt(3));
+                        MedDispatchRec dispatch = new MedDispatchRec();
+                        dispatch.setId(1000 * i + d);
+                        dispatch.setDate("2025-12-22");
+                        dispatch.setTime(String.format("%02d:%02d", 9 + random.nextInt(8), random.nextInt(60)));
+                        dispatch.setRequirements(requirements);
+                        dispatch.setDelivery(deliverable(sp, random));
+                        dispatches.add(dispatch);
+                    }
+                    requests.add(post("/api/v1/calcDeliveryPath", mapper.writeValueAsString(dispatches)));
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return requests;
+    }
+
+    private static LoadRequest post(String path, String json) {
+        return new LoadRequest("POST " + path, "POST", path, "application/json", json);
+    }
+
+    // the stub's no-fly blocks are rectangles; a delivery inside one would only measure a failed search
+    private static Position deliverable(Position sp, Random random) {
+        while (true) {
+            Position p = near(sp, random, 0.006);
+            boolean blocked = StubIlpServer.GeneratedData.BLOCKS.stream().anyMatch(b ->
+                    p.getLng() > b[0] && p.getLat() > b[1] && p.getLng() < b[2] && p.getLat() < b[3]);
+            if (!blocked) return p;
+        }
+    }
+
+    private static Position near(Position p, Random random, double spread) {
+        return StubIlpServer.pos(p.getLng() + (random.nextDouble() * 2 - 1) * spread,
+                p.getLat() + (random.nextDouble() * 2 - 1) * spread);
+    }
+
+    private static String pathOf(String url) {
+        String withScheme = url.contains("://") ? url : "http://" + url;
+        try {
+            URI uri = URI.create(withScheme);
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // path variables would give every drone id its own histogram, so keep the route only
+    private static String endpointOf(String path) {
+        String route = path.contains("?") ? path.substring(0, path.indexOf('?')) : path;
+        return route.replaceAll("/\\d+(?=/|$)", "/{n}");
+    }
+}
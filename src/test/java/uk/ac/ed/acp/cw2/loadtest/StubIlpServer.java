@@ -0,0 +1,149 @@
+package uk.ac.ed.acp.cw2.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import uk.ac.ed.acp.cw2.dto.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for the ILP REST service so load runs are offline and repeatable. Serves either
+ * JSON files captured from the real service (drones.json, service-points.json,
+ * drones-for-service-points.json, restricted-areas.json) or a generated Edinburgh-sized
+ * data set, with an optional fixed delay per response.
+ */
+public final class StubIlpServer implements AutoCloseable {
+
+    static final String[] RESOURCES = {"drones", "service-points", "drones-for-service-points", "restricted-areas"};
+
+    private final HttpServer server;
+
+    private StubIlpServer(Map<String, byte[]> bodies, long delayMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        for (Map.Entry<String, byte[]> e : bodies.entrySet()) {
+            server.createContext("/" + e.getKey(), exchange -> {
+                try (exchange) {
+                    if (delayMillis > 0) Thread.sleep(delayMillis);
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, e.getValue().length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(e.getValue());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        server.start();
+    }
+
+    public static StubIlpServer fromDirectory(Path dir, long delayMillis) throws IOException {
+        Map<String, byte[]> bodies = new HashMap<>();
+        for (String resource : RESOURCES) bodies.put(resource, Files.readAllBytes(dir.resolve(resource + ".json")));
+        return new StubIlpServer(bodies, delayMillis);
+    }
+
+    public static StubIlpServer generated(long seed, long delayMillis) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        GeneratedData data = GeneratedData.create(seed);
+        Map<String, byte[]> bodies = new HashMap<>();
+        bodies.put("drones", mapper.writeValueAsBytes(data.drones));
+        bodies.put("service-points", mapper.writeValueAsBytes(data.servicePoints));
+        bodies.put("drones-for-service-points", mapper.writeValueAsBytes(data.dronesForServicePoints));
+        bodies.put("restricted-areas", mapper.writeValueAsBytes(data.restrictedAreas));
+        return new StubIlpServer(bodies, delayMillis);
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // Two service points near the Informatics Forum, a handful of drones each, two no-fly blocks
+    static final class GeneratedData {
+        static final Position[] SERVICE_POINTS = {pos(-3.1863, 55.9447), pos(-3.1710, 55.9810)};
+        // minLng, minLat, maxLng, maxLat
+        static final List<double[]> BLOCKS = List.of(
+                new double[]{-3.1900, 55.9430, -3.1880, 55.9460},
+                new double[]{-3.1800, 55.9500, -3.1760, 55.9700});
+
+        final List<Drone> drones = new ArrayList<>();
+        final List<ServicePoint> servicePoints = new ArrayList<>();
+        final List<DroneForServicePoint> dronesForServicePoints = new ArrayList<>();
+        final List<RestrictedArea> restrictedAreas = new ArrayList<>();
+
+        static GeneratedData create(long seed) {
+            Random random = new Random(seed);
+            GeneratedData data = new GeneratedData();
+            int droneId = 1;
+            for (int s = 0; s < SERVICE_POINTS.length; s++) {
+                ServicePoint sp = new ServicePoint();
+                sp.setId(s + 1);
+                sp.setName("sp-" + (s + 1));
+                sp.setLocation(SERVICE_POINTS[s]);
+                data.servicePoints.add(sp);
+
+                DroneForServicePoint dfsp = new DroneForServicePoint();
+                dfsp.setServicePointId(sp.getId());
+                dfsp.setDrones(new ArrayList<>());
+                for (int d = 0; d < 5; d++, droneId++) {
+                    DroneCapability capability = new DroneCapability();
+                    capability.setCooling(random.nextBoolean());
+                    capability.setHeating(random.nextBoolean());
+                    capability.setCapacity(4 + random.nextInt(9));
+                    capability.setMaxMoves(1500 + random.nextInt(1500));
+                    capability.setCostPerMove(0.01 + random.nextInt(5) * 0.01);
+                    capability.setCostInitial(1.0 + random.nextInt(4));
+                    capability.setCostFinal(1.0 + random.nextInt(4));
+                    Drone drone = new Drone();
+                    drone.setId(droneId);
+                    drone.setName("drone-" + droneId);
+                    drone.setCapability(capability);
+                    data.drones.add(drone);
+
+                    DroneForServicePoint.DroneAvailability availability = new DroneForServicePoint.DroneAvailability();
+                    availability.setId(droneId);
+                    availability.setAvailability(new ArrayList<>());
+                    for (String day : List.of("MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY")) {
+                        DroneForServicePoint.DroneAvailability.Availability slot = new DroneForServicePoint.DroneAvailability.Availability();
+                        slot.setDayOfWeek(day);
+                        slot.setFrom("00:00:00");
+                        slot.setUntil("23:59:59");
+                        availability.getAvailability().add(slot);
+                    }
+                    dfsp.getDrones().add(availability);
+                }
+                data.dronesForServicePoints.add(dfsp);
+            }
+            for (double[] b : BLOCKS) data.restrictedAreas.add(block(data.restrictedAreas.size() + 1, b[0], b[1], b[2], b[3]));
+            return data;
+        }
+
+        private static RestrictedArea block(int id, double minLng, double minLat, double maxLng, double maxLat) {
+            RestrictedArea area = new RestrictedArea();
+            area.setId(id);
+            area.setName("block-" + id);
+            area.setVertices(List.of(pos(minLng, minLat), pos(maxLng, minLat), pos(maxLng, maxLat),
+                    pos(minLng, maxLat), pos(minLng, minLat)));
+            return area;
+        }
+    }
+
+    static Position pos(double lng, double lat) {
+        Position p = new Position();
+        p.setLng(lng);
+        p.setLat(lat);
+        return p;
+    }
+}